@@ -16,11 +16,14 @@ package com.gargoylesoftware.htmlunit;
 
 import java.io.Serializable;
 import java.net.URL;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +31,7 @@ import org.apache.http.client.utils.DateUtils;
 
 import com.gargoylesoftware.css.dom.CSSStyleSheetImpl;
 import com.gargoylesoftware.htmlunit.util.HeaderUtils;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
 import com.gargoylesoftware.htmlunit.util.UrlUtils;
 
 /**
@@ -35,6 +39,11 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
  * compiled JavaScript files avoids unnecessary web requests and additional compilation overhead, while
  * caching parsed CSS snippets avoids very expensive CSS parsing.</p>
  *
+ * <p>The cache is safe to be shared by many threads. The entries are distributed over a number of
+ * segments, each one guarded by its own lock and kept in access order; therefore lookups do not
+ * block each other and evicting the least recently used entry only has to look at the eldest
+ * entry of every segment.</p>
+ *
  * @author Marc Guillemot
  * @author Daniel Gredler
  * @author Ahmed Ashour
@@ -46,71 +55,87 @@ public class Cache implements Serializable {
     /** The maximum size of the cache. */
     private int maxSize_ = 40;
 
+    /** The maximum size of the cache in bytes; 0 or less means no limit. */
+    private long maxSizeInBytes_;
+
+    /** The number of segments; has to be a power of two. */
+    private static final int SEGMENT_COUNT = 16;
+
     private static final Pattern DATE_HEADER_PATTERN = Pattern.compile("-?\\d+");
     static final long DELAY = 10 * org.apache.commons.lang3.time.DateUtils.MILLIS_PER_MINUTE;
 
     /**
-     * The map which holds the cached responses. Note that when keying on URLs, we key on the string version
+     * The segments holding the cached responses. Note that when keying on URLs, we key on the string version
      * of the URLs, rather than on the URLs themselves. This is done for performance, because a) the
      * {@link java.net.URL#hashCode()} method is synchronized, and b) the {@link java.net.URL#hashCode()}
      * method triggers DNS lookups of the URL hostnames' IPs. As of this writing, the HtmlUnit unit tests
      * run ~20% faster whey keying on strings rather than on {@link java.net.URL} instances.
      */
-    private final Map<String, Entry> entries_ = Collections.synchronizedMap(new HashMap<String, Entry>(maxSize_));
+    private final Segment[] segments_ = new Segment[SEGMENT_COUNT];
+
+    private final AtomicInteger size_ = new AtomicInteger();
+    private final AtomicLong sizeInBytes_ = new AtomicLong();
+
+    /** Source of the access stamps; strictly increasing to get an exact LRU order. */
+    private final AtomicLong accessCounter_ = new AtomicLong();
+
+    private final AtomicLong hitCount_ = new AtomicLong();
+    private final AtomicLong missCount_ = new AtomicLong();
+    private final AtomicLong evictionCount_ = new AtomicLong();
+
+    /** The optional persistent second tier. */
+    private transient DiskCache diskCache_;
+
+    /**
+     * A part of the cache guarded by its own lock. The entries are kept in access order,
+     * the first one is the least recently used one.
+     */
+    private static final class Segment implements Serializable {
+        private final LinkedHashMap<String, Entry> entries_ = new LinkedHashMap<>(16, 0.75f, true);
+    }
 
     /**
      * A cache entry.
      */
-    private static class Entry implements Comparable<Entry>, Serializable {
+    private static class Entry implements Serializable {
         private final String key_;
         private final WebResponse response_;
         private final Object value_;
         private long lastAccess_;
-        private final long createdAt_;
+        private long createdAt_;
+        private long sizeInBytes_;
+
+        Entry(final String key, final WebResponse response, final Object value, final long accessStamp) {
+            this(key, response, value, accessStamp, System.currentTimeMillis());
+        }
 
-        Entry(final String key, final WebResponse response, final Object value) {
+        Entry(final String key, final WebResponse response, final Object value, final long accessStamp,
+                final long createdAt) {
             key_ = key;
             response_ = response;
             value_ = value;
-            createdAt_ = System.currentTimeMillis();
-            lastAccess_ = createdAt_;
+            createdAt_ = createdAt;
+            lastAccess_ = accessStamp;
         }
 
         /**
-         * {@inheritDoc}
+         * Updates the last access stamp.
+         * @param accessStamp the new stamp
          */
-        @Override
-        public int compareTo(final Entry other) {
-            if (lastAccess_ < other.lastAccess_) {
-                return -1;
-            }
-            if (lastAccess_ == other.lastAccess_) {
-                return 0;
-            }
-            return 1;
+        void touch(final long accessStamp) {
+            lastAccess_ = accessStamp;
         }
 
         /**
-         * {@inheritDoc}
+         * Estimates the memory used by this entry.
+         * @return the size in bytes
          */
-        @Override
-        public boolean equals(final Object obj) {
-            return obj instanceof Entry && lastAccess_ == ((Entry) obj).lastAccess_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int hashCode() {
-            return ((Long) lastAccess_).hashCode();
-        }
-
-        /**
-         * Updates the last access date.
-         */
-        public void touch() {
-            lastAccess_ = System.currentTimeMillis();
+        long weigh() {
+            if (response_ != null) {
+                return Math.max(0, response_.getContentLength()) + 2L * key_.length();
+            }
+            // parsed css; the snippet is the key
+            return 2L * key_.length();
         }
 
         /**
@@ -148,6 +173,24 @@ public class Cache implements Serializable {
             }
             return now - createdAt_ < freshnessLifetime * org.apache.commons.lang3.time.DateUtils.MILLIS_PER_SECOND;
         }
+
+        /**
+         * @return whether the response carries a validator usable for a conditional request
+         */
+        boolean isRevalidatable() {
+            return response_ != null
+                    && (response_.getResponseHeaderValue(HttpHeader.ETAG) != null
+                        || response_.getResponseHeaderValue(HttpHeader.LAST_MODIFIED) != null);
+        }
+    }
+
+    /**
+     * Creates a new cache.
+     */
+    public Cache() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments_[i] = new Segment();
+        }
     }
 
     /**
@@ -167,9 +210,17 @@ public class Cache implements Serializable {
                 return false;
             }
 
-            final Entry entry = new Entry(UrlUtils.normalize(url), response, toCache);
-            entries_.put(entry.key_, entry);
-            deleteOverflow();
+            // store the response itself, not the wrapper used for delivering it from the cache
+            final WebResponse toStore;
+            if (response instanceof WebResponseFromCache) {
+                toStore = ((WebResponseFromCache) response).getCachedResponse();
+            }
+            else {
+                toStore = response;
+            }
+            final Entry entry = new Entry(UrlUtils.normalize(url), toStore, toCache,
+                                    accessCounter_.incrementAndGet());
+            put(entry, true);
             return true;
         }
 
@@ -188,19 +239,96 @@ public class Cache implements Serializable {
      * @param styleSheet the parsed version of <tt>css</tt>
      */
     public void cache(final String css, final CSSStyleSheetImpl styleSheet) {
-        final Entry entry = new Entry(css, null, styleSheet);
-        entries_.put(entry.key_, entry);
+        final Entry entry = new Entry(css, null, styleSheet, accessCounter_.incrementAndGet());
+        put(entry, false);
+    }
+
+    private Segment segmentFor(final String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments_[hash & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Adds the entry to the memory cache.
+     * @param entry the entry
+     * @param store whether to write the response also to the disk cache (if any)
+     */
+    private void put(final Entry entry, final boolean store) {
+        if (maxSizeInBytes_ > 0) {
+            entry.sizeInBytes_ = entry.weigh();
+        }
+
+        final boolean sameResponse;
+        final Segment segment = segmentFor(entry.key_);
+        synchronized (segment) {
+            final Entry old = segment.entries_.put(entry.key_, entry);
+            if (old == null) {
+                size_.incrementAndGet();
+                sameResponse = false;
+            }
+            else {
+                sizeInBytes_.addAndGet(-old.sizeInBytes_);
+                // e.g. the compiled script for an already cached response
+                sameResponse = old.response_ == entry.response_;
+                if (sameResponse) {
+                    entry.createdAt_ = old.createdAt_;
+                }
+            }
+            sizeInBytes_.addAndGet(entry.sizeInBytes_);
+        }
+
+        final DiskCache diskCache = diskCache_;
+        if (store && !sameResponse && diskCache != null) {
+            diskCache.store(entry.key_, entry.response_, entry.createdAt_);
+        }
         deleteOverflow();
     }
 
     /**
-     * Truncates the cache to the maximal number of entries.
+     * Removes the given entry if it is still part of the cache.
+     * @return true if the entry was removed
+     */
+    private boolean remove(final Entry entry) {
+        final Segment segment = segmentFor(entry.key_);
+        synchronized (segment) {
+            if (segment.entries_.remove(entry.key_, entry)) {
+                size_.decrementAndGet();
+                sizeInBytes_.addAndGet(-entry.sizeInBytes_);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOverflow() {
+        return size_.get() > maxSize_
+                || (maxSizeInBytes_ > 0 && sizeInBytes_.get() > maxSizeInBytes_);
+    }
+
+    /**
+     * Truncates the cache to the maximal number of entries (and the maximal size in bytes if set).
+     * The least recently used entries are removed first.
      */
     protected void deleteOverflow() {
-        synchronized (entries_) {
-            while (entries_.size() > maxSize_) {
-                final Entry oldestEntry = Collections.min(entries_.values());
-                entries_.remove(oldestEntry.key_);
+        while (isOverflow()) {
+            Entry oldestEntry = null;
+            for (final Segment segment : segments_) {
+                synchronized (segment) {
+                    if (!segment.entries_.isEmpty()) {
+                        final Entry eldest = segment.entries_.values().iterator().next();
+                        if (oldestEntry == null || eldest.lastAccess_ < oldestEntry.lastAccess_) {
+                            oldestEntry = eldest;
+                        }
+                    }
+                }
+            }
+            if (oldestEntry == null) {
+                return;
+            }
+
+            if (remove(oldestEntry)) {
+                evictionCount_.incrementAndGet();
                 if (oldestEntry.response_ != null) {
                     oldestEntry.response_.cleanUp();
                 }
@@ -293,13 +421,31 @@ public class Cache implements Serializable {
      * no corresponding cached object, this method returns {@code null}.
      *
      * <p>Calculates and check if object still fresh(RFC 7234) otherwise returns {@code null}.</p>
+     * <p>A body read from the disk cache is kept in memory up to the default of
+     * {@link WebClientOptions#getMaxInMemory()}.</p>
      * @see <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>
      *
      * @param request the request whose corresponding response is sought
      * @return the cached response corresponding to the specified request if any
      */
     public WebResponse getCachedResponse(final WebRequest request) {
-        final Entry cachedEntry = getCacheEntry(request);
+        return getCachedResponse(request, WebClientOptions.DEFAULT_MAX_IN_MEMORY);
+    }
+
+    /**
+     * Returns the cached response corresponding to the specified request. If there is
+     * no corresponding cached object, this method returns {@code null}.
+     *
+     * <p>Calculates and check if object still fresh(RFC 7234) otherwise returns {@code null}.</p>
+     * @see <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>
+     *
+     * @param request the request whose corresponding response is sought
+     * @param maxInMemory the maximum size of a body read from the disk cache that is kept in memory,
+     *        see {@link WebClientOptions#getMaxInMemory()}
+     * @return the cached response corresponding to the specified request if any
+     */
+    public WebResponse getCachedResponse(final WebRequest request, final int maxInMemory) {
+        final Entry cachedEntry = getCacheEntry(request, maxInMemory);
         if (cachedEntry == null) {
             return null;
         }
@@ -311,20 +457,38 @@ public class Cache implements Serializable {
      * no corresponding cached object, this method returns {@code null}.
      *
      * <p>Calculates and check if object still fresh(RFC 7234) otherwise returns {@code null}.</p>
+     * <p>A body read from the disk cache is kept in memory up to the default of
+     * {@link WebClientOptions#getMaxInMemory()}.</p>
      * @see <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>
      *
      * @param request the request whose corresponding cached compiled script is sought
      * @return the cached object corresponding to the specified request if any
      */
     public Object getCachedObject(final WebRequest request) {
-        final Entry cachedEntry = getCacheEntry(request);
+        return getCachedObject(request, WebClientOptions.DEFAULT_MAX_IN_MEMORY);
+    }
+
+    /**
+     * Returns the cached object corresponding to the specified request. If there is
+     * no corresponding cached object, this method returns {@code null}.
+     *
+     * <p>Calculates and check if object still fresh(RFC 7234) otherwise returns {@code null}.</p>
+     * @see <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>
+     *
+     * @param request the request whose corresponding cached compiled script is sought
+     * @param maxInMemory the maximum size of a body read from the disk cache that is kept in memory,
+     *        see {@link WebClientOptions#getMaxInMemory()}
+     * @return the cached object corresponding to the specified request if any
+     */
+    public Object getCachedObject(final WebRequest request, final int maxInMemory) {
+        final Entry cachedEntry = getCacheEntry(request, maxInMemory);
         if (cachedEntry == null) {
             return null;
         }
         return cachedEntry.value_;
     }
 
-    private Entry getCacheEntry(final WebRequest request) {
+    private Entry getCacheEntry(final WebRequest request, final int maxInMemory) {
         if (HttpMethod.GET != request.getHttpMethod()) {
             return null;
         }
@@ -335,21 +499,191 @@ public class Cache implements Serializable {
         }
 
         final String normalizedUrl = UrlUtils.normalize(url);
-        final Entry cachedEntry = entries_.get(normalizedUrl);
+        Entry cachedEntry = getAndTouch(normalizedUrl);
         if (cachedEntry == null) {
-            return null;
+            cachedEntry = loadFromDisk(normalizedUrl, request, maxInMemory);
+            if (cachedEntry == null) {
+                missCount_.incrementAndGet();
+                return null;
+            }
         }
 
         if (cachedEntry.isStillFresh(getCurrentTimestamp())) {
-            synchronized (entries_) {
-                cachedEntry.touch();
-            }
+            hitCount_.incrementAndGet();
             return cachedEntry;
         }
-        entries_.remove(UrlUtils.normalize(url));
+        if (!cachedEntry.isRevalidatable()) {
+            // the pages did not clean up the response as long as it was part of the cache
+            if (remove(cachedEntry)) {
+                cachedEntry.response_.cleanUp();
+            }
+            final DiskCache diskCache = diskCache_;
+            if (diskCache != null) {
+                diskCache.remove(normalizedUrl);
+            }
+        }
+        // stale entries with a validator are kept, see getStaleResponse()
+        missCount_.incrementAndGet();
         return null;
     }
 
+    /**
+     * Returns whether the memory cache holds an entry for the specified request, fresh or stale.
+     * A stale entry may still be revalidated and its content reused, therefore the response
+     * must not be cleaned up by the page. Unlike {@link #getCachedResponse(WebRequest)}, nothing is
+     * loaded from the disk cache and neither the statistics nor the order of the entries are changed.
+     *
+     * @param request the request
+     * @return whether there is an entry for the request
+     */
+    public boolean contains(final WebRequest request) {
+        if (HttpMethod.GET != request.getHttpMethod()) {
+            return false;
+        }
+
+        final URL url = request.getUrl();
+        if (url == null) {
+            return false;
+        }
+
+        final String normalizedUrl = UrlUtils.normalize(url);
+        final Segment segment = segmentFor(normalizedUrl);
+        synchronized (segment) {
+            return segment.entries_.containsKey(normalizedUrl);
+        }
+    }
+
+    /**
+     * Returns the cached response corresponding to the specified request that is no longer fresh
+     * but carries a validator (<tt>ETag</tt> or <tt>Last-Modified</tt> header). Such a response
+     * can be revalidated using a conditional request; if the server answers with
+     * <tt>304 Not Modified</tt>, {@link #revalidated(WebRequest, WebResponse, WebResponse)}
+     * refreshes the entry without transferring the content again.
+     *
+     * @param request the request whose corresponding response is sought
+     * @param maxInMemory the maximum size of a body read from the disk cache that is kept in memory,
+     *        see {@link WebClientOptions#getMaxInMemory()}
+     * @return the stale response or {@code null}
+     */
+    public WebResponse getStaleResponse(final WebRequest request, final int maxInMemory) {
+        if (HttpMethod.GET != request.getHttpMethod()) {
+            return null;
+        }
+
+        final URL url = request.getUrl();
+        if (url == null) {
+            return null;
+        }
+
+        final String normalizedUrl = UrlUtils.normalize(url);
+        Entry cachedEntry = getAndTouch(normalizedUrl);
+        if (cachedEntry == null) {
+            cachedEntry = loadFromDisk(normalizedUrl, request, maxInMemory);
+        }
+        if (cachedEntry == null
+                || !cachedEntry.isRevalidatable()
+                || cachedEntry.isStillFresh(getCurrentTimestamp())) {
+            return null;
+        }
+        return cachedEntry.response_;
+    }
+
+    /**
+     * Refreshes the cache entry of a stale response after the server confirmed with
+     * <tt>304 Not Modified</tt> that it is still valid. The headers of the stale response are
+     * updated with the ones of the 304 response, the content is reused and the freshness
+     * lifetime starts again. A cached object (e.g. the compiled script) of the entry is kept.
+     *
+     * @param request the performed (conditional) request
+     * @param staleResponse the response returned by {@link #getStaleResponse(WebRequest, int)}
+     * @param notModifiedResponse the <tt>304 Not Modified</tt> response of the server
+     * @return the refreshed response
+     */
+    public WebResponse revalidated(final WebRequest request, final WebResponse staleResponse,
+            final WebResponse notModifiedResponse) {
+        final WebResponse refreshed;
+        final WebResponseData data = staleResponse.getResponseData();
+        if (data == null) {
+            // a wrapper, we can't access the content directly
+            refreshed = staleResponse;
+        }
+        else {
+            // the 304 headers replace the stored ones, except the ones describing the (empty) body
+            final List<NameValuePair> updates = new ArrayList<>();
+            for (final NameValuePair header : notModifiedResponse.getResponseHeaders()) {
+                final String name = header.getName();
+                if (!HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !HttpHeader.CONTENT_ENCODING.equalsIgnoreCase(name)
+                        && !HttpHeader.CONTENT_TYPE.equalsIgnoreCase(name)
+                        && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+                    updates.add(header);
+                }
+            }
+            final List<NameValuePair> headers = new ArrayList<>(staleResponse.getResponseHeaders());
+            for (final NameValuePair update : updates) {
+                headers.removeIf(header -> header.getName().equalsIgnoreCase(update.getName()));
+            }
+            headers.addAll(updates);
+            refreshed = new WebResponse(new WebResponseData(data, headers),
+                                staleResponse.getWebRequest(), notModifiedResponse.getLoadTime());
+        }
+
+        final URL url = request.getUrl();
+        if (url != null) {
+            final String normalizedUrl = UrlUtils.normalize(url);
+            final Entry old = getAndTouch(normalizedUrl);
+            final Object value = old != null && old.response_ == staleResponse ? old.value_ : null;
+            final Entry entry = new Entry(normalizedUrl, refreshed, value, accessCounter_.incrementAndGet());
+            put(entry, false);
+
+            // the content is unchanged, only the headers and the creation time have to be written
+            final DiskCache diskCache = diskCache_;
+            if (diskCache != null && refreshed != staleResponse) {
+                diskCache.updateMeta(normalizedUrl, refreshed, entry.createdAt_);
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Reads the response from the disk cache (if any) and promotes it to the memory cache.
+     * @param key the normalized url
+     * @param request the request
+     * @param maxInMemory the maximum size of the body kept in memory
+     * @return the new entry or {@code null}
+     */
+    private Entry loadFromDisk(final String key, final WebRequest request, final int maxInMemory) {
+        final DiskCache diskCache = diskCache_;
+        if (diskCache == null) {
+            return null;
+        }
+
+        final DiskCache.CachedResponse cached = diskCache.load(key, request, maxInMemory);
+        if (cached == null) {
+            return null;
+        }
+        final Entry entry = new Entry(key, cached.getResponse(), null,
+                                accessCounter_.incrementAndGet(), cached.getCreatedAt());
+        put(entry, false);
+        return entry;
+    }
+
+    /**
+     * Returns the entry for the given key and marks it as the most recently used one.
+     * @param key the key
+     * @return the entry or {@code null}
+     */
+    private Entry getAndTouch(final String key) {
+        final Segment segment = segmentFor(key);
+        synchronized (segment) {
+            final Entry entry = segment.entries_.get(key);
+            if (entry != null) {
+                entry.touch(accessCounter_.incrementAndGet());
+            }
+            return entry;
+        }
+    }
+
     /**
      * Returns the cached parsed version of the specified CSS snippet. If there is no
      * corresponding cached stylesheet, this method returns {@code null}.
@@ -358,13 +692,12 @@ public class Cache implements Serializable {
      * @return the cached stylesheet corresponding to the specified CSS snippet
      */
     public CSSStyleSheetImpl getCachedStyleSheet(final String css) {
-        final Entry cachedEntry = entries_.get(css);
+        final Entry cachedEntry = getAndTouch(css);
         if (cachedEntry == null) {
+            missCount_.incrementAndGet();
             return null;
         }
-        synchronized (entries_) {
-            cachedEntry.touch();
-        }
+        hitCount_.incrementAndGet();
         return (CSSStyleSheetImpl) cachedEntry.value_;
     }
 
@@ -398,20 +731,117 @@ public class Cache implements Serializable {
      * @return the number of entries in the cache
      */
     public int getSize() {
-        return entries_.size();
+        return size_.get();
+    }
+
+    /**
+     * Returns the maximum size of the cache in bytes. The size of an entry is estimated
+     * from the content length of the response. The default is <tt>0</tt> (no limit).
+     *
+     * @return the cache's maximum size in bytes
+     */
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes_;
+    }
+
+    /**
+     * Sets the maximum size of the cache in bytes. The size of an entry is estimated
+     * from the content length of the response. This limit is enforced in addition to
+     * the maximum number of entries (see {@link #setMaxSize(int)}).
+     *
+     * @param maxSizeInBytes the cache's maximum size in bytes; <tt>0</tt> or less means no limit
+     */
+    public void setMaxSizeInBytes(final long maxSizeInBytes) {
+        maxSizeInBytes_ = maxSizeInBytes;
+        if (maxSizeInBytes_ > 0) {
+            // entries added without limit are not weighed yet
+            for (final Segment segment : segments_) {
+                synchronized (segment) {
+                    for (final Entry entry : segment.entries_.values()) {
+                        final long size = entry.weigh();
+                        sizeInBytes_.addAndGet(size - entry.sizeInBytes_);
+                        entry.sizeInBytes_ = size;
+                    }
+                }
+            }
+        }
+        deleteOverflow();
+    }
+
+    /**
+     * Returns the estimated size of all entries in bytes. Entries are only weighed if
+     * a maximum size in bytes is set.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes_.get();
+    }
+
+    /**
+     * Returns the persistent second tier of this cache.
+     *
+     * @return the disk cache or {@code null} if responses are only cached in memory
+     */
+    public DiskCache getDiskCache() {
+        return diskCache_;
+    }
+
+    /**
+     * Sets a persistent second tier for this cache. All cacheable responses are stored also on
+     * the disk; if there is no entry in memory for a request, the disk cache is used. This way
+     * the cached responses survive the restart of the JVM and can be shared by many caches
+     * (all using the same {@link DiskCache}).
+     *
+     * @param diskCache the disk cache or {@code null} to cache only in memory (the default)
+     */
+    public void setDiskCache(final DiskCache diskCache) {
+        diskCache_ = diskCache;
+    }
+
+    /**
+     * Returns the number of lookups that found a (fresh) entry.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount_.get();
     }
 
     /**
-     * Clears the cache.
+     * Returns the number of lookups that did not find a (fresh) entry.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount_.get();
+    }
+
+    /**
+     * Returns the number of entries removed because the cache was full.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount_.get();
+    }
+
+    /**
+     * Clears the cache. The entries of the disk cache (if any) are not removed,
+     * use {@link DiskCache#clear()} for this.
      */
     public void clear() {
-        synchronized (entries_) {
-            for (final Entry entry : entries_.values()) {
-                if (entry.response_ != null) {
-                    entry.response_.cleanUp();
+        for (final Segment segment : segments_) {
+            synchronized (segment) {
+                for (final Entry entry : segment.entries_.values()) {
+                    if (entry.response_ != null) {
+                        entry.response_.cleanUp();
+                    }
+                    size_.decrementAndGet();
+                    sizeInBytes_.addAndGet(-entry.sizeInBytes_);
                 }
+                segment.entries_.clear();
             }
-            entries_.clear();
         }
     }
 
@@ -419,15 +849,19 @@ public class Cache implements Serializable {
      * Removes outdated entries from the cache.
      */
     public void clearOutdated() {
-        synchronized (entries_) {
-            final long now = getCurrentTimestamp();
-
-            final Iterator<Map.Entry<String, Entry>> iter = entries_.entrySet().iterator();
-            while (iter.hasNext()) {
-                final Map.Entry<String, Entry> entry = iter.next();
-                if (entry.getValue().response_ == null
-                        || !entry.getValue().isStillFresh(now)) {
-                    iter.remove();
+        final long now = getCurrentTimestamp();
+
+        for (final Segment segment : segments_) {
+            synchronized (segment) {
+                final Iterator<Map.Entry<String, Entry>> iter = segment.entries_.entrySet().iterator();
+                while (iter.hasNext()) {
+                    final Entry entry = iter.next().getValue();
+                    if (entry.response_ == null
+                            || !entry.isStillFresh(now)) {
+                        iter.remove();
+                        size_.decrementAndGet();
+                        sizeInBytes_.addAndGet(-entry.sizeInBytes_);
+                    }
                 }
             }
         }
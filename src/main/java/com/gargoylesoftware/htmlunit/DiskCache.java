@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * <p>A persistent second tier for the {@link Cache}. Responses stored in the cache are written to
+ * a directory and survive the restart of the JVM; if the memory cache does not contain an entry
+ * for a request, the entry is read from the disk and promoted to the memory cache.</p>
+ *
+ * <p>Every entry is stored as two files named by the hash of the normalized url: the <tt>.meta</tt>
+ * file holds the url, the creation time, the status and the response headers (required to check the
+ * freshness and to revalidate the entry), the <tt>.body</tt> file holds the (decoded) content.
+ * Only the responses are stored, compiled scripts and parsed style sheets are kept in memory.</p>
+ *
+ * <p>The least recently used entries are removed if the size of all files exceeds the max size.</p>
+ *
+ * @see Cache#setDiskCache(DiskCache)
+ */
+public class DiskCache {
+
+    private static final Log LOG = LogFactory.getLog(DiskCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String META_SUFFIX = ".meta";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory_;
+    private final long maxSizeInBytes_;
+
+    /** The size of the entries (both files) by hash, in access order. Guarded by the instance lock. */
+    private final LinkedHashMap<String, Long> index_ = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes_;
+
+    private final AtomicLong hitCount_ = new AtomicLong();
+    private final AtomicLong missCount_ = new AtomicLong();
+
+    /**
+     * A response read from the disk.
+     */
+    static final class CachedResponse {
+        private final WebResponse response_;
+        private final long createdAt_;
+
+        CachedResponse(final WebResponse response, final long createdAt) {
+            response_ = response;
+            createdAt_ = createdAt;
+        }
+
+        WebResponse getResponse() {
+            return response_;
+        }
+
+        long getCreatedAt() {
+            return createdAt_;
+        }
+    }
+
+    /**
+     * Creates a new disk cache using the given directory. Entries already stored in
+     * the directory (e.g. by a previous run) are reused.
+     *
+     * @param directory the directory to store the entries in; created if it does not exist
+     * @param maxSizeInBytes the maximum size of all stored files in bytes
+     */
+    public DiskCache(final File directory, final long maxSizeInBytes) {
+        if (maxSizeInBytes < 1) {
+            throw new IllegalArgumentException("Illegal value for maxSizeInBytes: " + maxSizeInBytes);
+        }
+        try {
+            Files.createDirectories(directory.toPath());
+        }
+        catch (final IOException e) {
+            throw new IllegalArgumentException("Can't create cache directory '" + directory + "'", e);
+        }
+        directory_ = directory;
+        maxSizeInBytes_ = maxSizeInBytes;
+
+        loadIndex();
+    }
+
+    /**
+     * Builds the index from the files found in the directory, the last modification
+     * time of the meta files defines the access order.
+     */
+    private synchronized void loadIndex() {
+        final File[] files = directory_.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final List<File> metaFiles = new ArrayList<>();
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // left over from an interrupted write
+                FileUtils.deleteQuietly(file);
+            }
+            else if (name.endsWith(META_SUFFIX)) {
+                metaFiles.add(file);
+            }
+        }
+        metaFiles.sort(Comparator.comparingLong(File::lastModified));
+
+        for (final File metaFile : metaFiles) {
+            final String name = metaFile.getName();
+            final String hash = name.substring(0, name.length() - META_SUFFIX.length());
+            final File bodyFile = new File(directory_, hash + BODY_SUFFIX);
+            if (bodyFile.isFile()) {
+                final long size = metaFile.length() + bodyFile.length();
+                index_.put(hash, Long.valueOf(size));
+                sizeInBytes_ += size;
+            }
+            else {
+                FileUtils.deleteQuietly(metaFile);
+            }
+        }
+        deleteOverflow();
+    }
+
+    /**
+     * Stores the given response.
+     * @param key the normalized url
+     * @param response the response
+     * @param createdAt the time the response was received
+     */
+    synchronized void store(final String key, final WebResponse response, final long createdAt) {
+        final String hash = hash(key);
+        final File metaTemp = new File(directory_, hash + META_SUFFIX + TEMP_SUFFIX);
+        final File bodyTemp = new File(directory_, hash + BODY_SUFFIX + TEMP_SUFFIX);
+        try {
+            try (InputStream in = response.getContentAsStream();
+                    OutputStream out = new BufferedOutputStream(Files.newOutputStream(bodyTemp.toPath()))) {
+                IOUtils.copy(in, out);
+            }
+
+            writeMeta(metaTemp, key, response, createdAt);
+
+            remove(key);
+            final File bodyFile = new File(directory_, hash + BODY_SUFFIX);
+            final File metaFile = new File(directory_, hash + META_SUFFIX);
+            Files.move(bodyTemp.toPath(), bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(metaTemp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            final long size = metaFile.length() + bodyFile.length();
+            index_.put(hash, Long.valueOf(size));
+            sizeInBytes_ += size;
+            deleteOverflow();
+        }
+        catch (final IOException e) {
+            LOG.warn("Failed to store '" + key + "' in the disk cache", e);
+            FileUtils.deleteQuietly(metaTemp);
+            FileUtils.deleteQuietly(bodyTemp);
+        }
+    }
+
+    /**
+     * Replaces the metadata (creation time, status and headers) of the stored entry after
+     * a revalidation, the body file is kept. Stores the whole response if there is no entry
+     * for the given key.
+     * @param key the normalized url
+     * @param response the revalidated response
+     * @param createdAt the time the response was revalidated
+     */
+    synchronized void updateMeta(final String key, final WebResponse response, final long createdAt) {
+        final String hash = hash(key);
+        final Long oldSize = index_.get(hash);
+        if (oldSize == null) {
+            store(key, response, createdAt);
+            return;
+        }
+
+        final File metaTemp = new File(directory_, hash + META_SUFFIX + TEMP_SUFFIX);
+        try {
+            writeMeta(metaTemp, key, response, createdAt);
+
+            final File metaFile = new File(directory_, hash + META_SUFFIX);
+            final File bodyFile = new File(directory_, hash + BODY_SUFFIX);
+            Files.move(metaTemp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            final long size = metaFile.length() + bodyFile.length();
+            index_.put(hash, Long.valueOf(size));
+            sizeInBytes_ += size - oldSize.longValue();
+            deleteOverflow();
+        }
+        catch (final IOException e) {
+            LOG.warn("Failed to update '" + key + "' in the disk cache", e);
+            FileUtils.deleteQuietly(metaTemp);
+            remove(key);
+        }
+    }
+
+    private static void writeMeta(final File file, final String key, final WebResponse response,
+            final long createdAt) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, key);
+            out.writeLong(createdAt);
+            out.writeInt(response.getStatusCode());
+            writeString(out, response.getStatusMessage());
+
+            final List<NameValuePair> headers = new ArrayList<>();
+            for (final NameValuePair header : response.getResponseHeaders()) {
+                final String name = header.getName();
+                // the body is stored decoded
+                if (!HttpHeader.CONTENT_ENCODING.equalsIgnoreCase(name)
+                        && !HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+                    headers.add(header);
+                }
+            }
+            out.writeInt(headers.size());
+            for (final NameValuePair header : headers) {
+                writeString(out, header.getName());
+                writeString(out, header.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads the response stored for the given key.
+     * @param key the normalized url
+     * @param request the request to associate with the response
+     * @param maxInMemory the maximum size of the body kept in memory, larger bodies are copied
+     *        to a temporary file owned by the response
+     * @return the stored response or {@code null}
+     */
+    synchronized CachedResponse load(final String key, final WebRequest request, final int maxInMemory) {
+        final String hash = hash(key);
+        if (index_.get(hash) == null) {
+            missCount_.incrementAndGet();
+            return null;
+        }
+
+        final File metaFile = new File(directory_, hash + META_SUFFIX);
+        final File bodyFile = new File(directory_, hash + BODY_SUFFIX);
+        try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(metaFile.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION || !key.equals(readString(in))) {
+                remove(key);
+                missCount_.incrementAndGet();
+                return null;
+            }
+
+            final long createdAt = in.readLong();
+            final int statusCode = in.readInt();
+            final String statusMessage = readString(in);
+            final int headerCount = in.readInt();
+            final List<NameValuePair> headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(new NameValuePair(readString(in), readString(in)));
+            }
+
+            // never hand out the cache file itself, the entry may be replaced or removed
+            // while the response is still in use
+            final DownloadedContent content;
+            try (InputStream body = Files.newInputStream(bodyFile.toPath())) {
+                content = HttpWebConnection.downloadContent(body, maxInMemory, bodyFile.length());
+            }
+
+            // keep the access order for the next run
+            metaFile.setLastModified(System.currentTimeMillis());
+
+            hitCount_.incrementAndGet();
+            final WebResponseData data = new WebResponseData(content, statusCode, statusMessage, headers);
+            return new CachedResponse(new WebResponse(data, request, 0), createdAt);
+        }
+        catch (final IOException e) {
+            LOG.warn("Failed to read '" + key + "' from the disk cache", e);
+            remove(key);
+            missCount_.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Removes the entry stored for the given key.
+     * @param key the normalized url
+     */
+    synchronized void remove(final String key) {
+        removeHash(hash(key));
+    }
+
+    private void removeHash(final String hash) {
+        final Long size = index_.remove(hash);
+        if (size != null) {
+            sizeInBytes_ -= size.longValue();
+        }
+        FileUtils.deleteQuietly(new File(directory_, hash + META_SUFFIX));
+        FileUtils.deleteQuietly(new File(directory_, hash + BODY_SUFFIX));
+    }
+
+    private void deleteOverflow() {
+        final Iterator<String> iter = index_.keySet().iterator();
+        while (sizeInBytes_ > maxSizeInBytes_ && iter.hasNext()) {
+            final String hash = iter.next();
+            iter.remove();
+            sizeInBytes_ -= removeFilesOf(hash);
+        }
+    }
+
+    private long removeFilesOf(final String hash) {
+        final File metaFile = new File(directory_, hash + META_SUFFIX);
+        final File bodyFile = new File(directory_, hash + BODY_SUFFIX);
+        final long size = metaFile.length() + bodyFile.length();
+        FileUtils.deleteQuietly(metaFile);
+        FileUtils.deleteQuietly(bodyFile);
+        return size;
+    }
+
+    private static String hash(final String key) {
+        return DigestUtils.sha256Hex(key);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Removes all entries from the disk.
+     */
+    public synchronized void clear() {
+        for (final String hash : new ArrayList<>(index_.keySet())) {
+            removeHash(hash);
+        }
+        sizeInBytes_ = 0;
+    }
+
+    /**
+     * Returns the directory used to store the entries.
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory_;
+    }
+
+    /**
+     * Returns the maximum size of all stored files in bytes.
+     * @return the maximum size in bytes
+     */
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes_;
+    }
+
+    /**
+     * Returns the size of all stored files in bytes.
+     * @return the size in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes_;
+    }
+
+    /**
+     * Returns the number of stored entries.
+     * @return the number of entries
+     */
+    public synchronized int getSize() {
+        return index_.size();
+    }
+
+    /**
+     * Returns the number of lookups that found an entry on the disk.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hitCount_.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find an entry on the disk.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return missCount_.get();
+    }
+}
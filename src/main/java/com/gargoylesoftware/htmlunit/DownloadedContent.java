@@ -21,7 +21,6 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 
 /**
@@ -92,7 +91,7 @@ public interface DownloadedContent extends Serializable {
         @Override
         public void cleanUp() {
             if (temporary_) {
-                FileUtils.deleteQuietly(file_);
+                TemporaryFiles.delete(file_);
             }
         }
 
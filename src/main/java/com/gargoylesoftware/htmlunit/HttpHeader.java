@@ -41,6 +41,15 @@ public final class HttpHeader {
     /** Expires. */
     public static final String EXPIRES = "Expires";
 
+    /** ETag. */
+    public static final String ETAG = "ETag";
+
+    /** If-None-Match. */
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** If-Modified-Since. */
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
     /** Accept. */
     public static final String ACCEPT = "Accept";
     /** Accept-LC. */
@@ -76,6 +85,9 @@ public final class HttpHeader {
     /** content-type. */
     public static final String CONTENT_TYPE_LC = "content-type";
 
+    /** Content-Encoding. */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
     /** content-language. */
     public static final String CONTENT_LANGUAGE_LC = "content-language";
 
@@ -17,7 +17,6 @@ package com.gargoylesoftware.htmlunit;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.URL_AUTH_CREDENTIALS;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
@@ -30,6 +29,8 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +43,7 @@ import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSocketFactory;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.logging.Log;
@@ -138,9 +140,15 @@ public class HttpWebConnection implements WebConnection {
 
     private static final String HACKED_COOKIE_POLICY = "mine";
 
+    /** The initial buffer size if the content length is not known. */
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
     // have one per thread because this is (re)configured for every call (see configureHttpProcessorBuilder)
     // do not use a ThreadLocal because this in only accessed form this class
-    private final Map<Thread, HttpClientBuilder> httpClientBuilder_ = new WeakHashMap<>();
+    // synchronized because the resources of a page may be loaded in parallel
+    private final Map<Thread, HttpClientBuilder> httpClientBuilder_ = Collections.synchronizedMap(new WeakHashMap<>());
     private final WebClient webClient_;
 
     private String virtualHost_;
@@ -728,6 +736,10 @@ public class HttpWebConnection implements WebConnection {
             headers.add(new NameValuePair(header.getName(), header.getValue()));
         }
         final WebResponseData responseData = new WebResponseData(responseBody, statusCode, statusMessage, headers);
+        final WebClientOptions options = webClient_.getOptions();
+        if (options.isDecodeContentOnce()) {
+            responseData.setKeepDecodedContent(options.getMaxInMemory());
+        }
         return newWebResponseInstance(responseData, loadTime, webRequest);
     }
 
@@ -744,7 +756,7 @@ public class HttpWebConnection implements WebConnection {
         }
 
         try (InputStream is = httpEntity.getContent()) {
-            return downloadContent(is, webClient_.getOptions().getMaxInMemory());
+            return downloadContent(is, webClient_.getOptions().getMaxInMemory(), httpEntity.getContentLength());
         }
     }
 
@@ -756,40 +768,84 @@ public class HttpWebConnection implements WebConnection {
      * @throws IOException in case of read issues
      */
     public static DownloadedContent downloadContent(final InputStream is, final int maxInMemory) throws IOException {
+        return downloadContent(is, maxInMemory, -1);
+    }
+
+    /**
+     * Reads the content of the stream and saves it in memory or on the file system.
+     * If the content length is known, the content is read directly into an array of the
+     * expected size (or directly into the file if it is too large to be kept in memory).
+     * @param is the stream to read
+     * @param maxInMemory the maximumBytes to store in memory, after which save to a local file
+     * @param contentLength the expected number of bytes or a negative value if unknown
+     * @return a wrapper around the downloaded content
+     * @throws IOException in case of read issues
+     */
+    public static DownloadedContent downloadContent(final InputStream is, final int maxInMemory,
+            final long contentLength) throws IOException {
         if (is == null) {
             return new DownloadedContent.InMemory(null);
         }
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[1024];
-            int nbRead;
-            try {
-                while ((nbRead = is.read(buffer)) != -1) {
-                    bos.write(buffer, 0, nbRead);
-                    if (bos.size() > maxInMemory) {
-                        // we have exceeded the max for memory, let's write everything to a temporary file
-                        final File file = File.createTempFile("htmlunit", ".tmp");
-                        file.deleteOnExit();
-                        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
-                            bos.writeTo(fos); // what we have already read
-                            IOUtils.copyLarge(is, fos); // what remains from the server response
-                        }
-                        return new DownloadedContent.OnFile(file, true);
+        if (contentLength > maxInMemory) {
+            return downloadToFile(ArrayUtils.EMPTY_BYTE_ARRAY, 0, is);
+        }
+
+        final int maxCapacity = (int) Math.min(Math.max(maxInMemory, 0) + 1L, MAX_ARRAY_SIZE);
+        byte[] bytes = new byte[contentLength < 0 ? Math.min(INITIAL_BUFFER_SIZE, maxCapacity) : (int) contentLength];
+        int count = 0;
+        try {
+            while (true) {
+                if (count == bytes.length) {
+                    // check for the end before growing; this is the usual case if the length was known
+                    final int b = is.read();
+                    if (b == -1) {
+                        break;
                     }
+                    final long newCapacity = Math.max(count * 2L, INITIAL_BUFFER_SIZE);
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(newCapacity, maxCapacity));
+                    bytes[count++] = (byte) b;
+                }
+                else {
+                    final int nbRead = is.read(bytes, count, bytes.length - count);
+                    if (nbRead == -1) {
+                        break;
+                    }
+                    count += nbRead;
+                }
+
+                if (count > maxInMemory) {
+                    // we have exceeded the max for memory, let's write everything to a temporary file
+                    return downloadToFile(bytes, count, is);
                 }
             }
-            catch (final ConnectionClosedException e) {
-                LOG.warn("Connection was closed while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
-            }
-            catch (final EOFException e) {
-                // this might happen with broken gzip content
-                LOG.warn("EOFException while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
-            }
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
 
-            return new DownloadedContent.InMemory(bos.toByteArray());
+        if (count < bytes.length) {
+            bytes = Arrays.copyOf(bytes, count);
+        }
+        return new DownloadedContent.InMemory(bytes);
+    }
+
+    private static DownloadedContent downloadToFile(final byte[] bytes, final int count, final InputStream is)
+            throws IOException {
+        final File file = TemporaryFiles.create();
+        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
+            fos.write(bytes, 0, count); // what we have already read
+            IOUtils.copyLarge(is, fos, COPY_BUFFER.get()); // what remains from the server response
+        }
+        catch (final IOException | RuntimeException e) {
+            TemporaryFiles.delete(file);
+            throw e;
         }
+        return new DownloadedContent.OnFile(file, true);
     }
 
     /**
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,7 +51,7 @@ public class MockWebConnection implements WebConnection {
     private final Map<String, RawResponseData> responseMap_ = new HashMap<>();
     private RawResponseData defaultResponse_;
     private WebRequest lastRequest_;
-    private int requestCount_;
+    private final AtomicInteger requestCount_ = new AtomicInteger();
     private final List<URL> requestedUrls_ = Collections.synchronizedList(new ArrayList<URL>());
 
     /**
@@ -180,7 +181,7 @@ public class MockWebConnection implements WebConnection {
         }
 
         lastRequest_ = request;
-        requestCount_++;
+        requestCount_.incrementAndGet();
         requestedUrls_.add(url);
 
         String urlString = url.toExternalForm();
@@ -511,7 +512,7 @@ public class MockWebConnection implements WebConnection {
      * @return the number of requests made to this mock web connection
      */
     public int getRequestCount() {
-        return requestCount_;
+        return requestCount_.get();
     }
 
     /**
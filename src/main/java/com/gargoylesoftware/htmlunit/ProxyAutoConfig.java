@@ -20,13 +20,15 @@ import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.net.util.SubnetUtils;
 
 import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.Function;
 import net.sourceforge.htmlunit.corejs.javascript.FunctionObject;
-import net.sourceforge.htmlunit.corejs.javascript.NativeFunction;
 import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
 import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
 import net.sourceforge.htmlunit.corejs.javascript.Undefined;
@@ -42,46 +44,112 @@ import net.sourceforge.htmlunit.corejs.javascript.Undefined;
 public final class ProxyAutoConfig {
     private static final String TIMEZONE_GMT = "GMT";
 
-    private ProxyAutoConfig() {
+    /** The max number of results cached per script. */
+    private static final int MAX_CACHED_RESULTS = 1_000;
+
+    private final Scriptable scope_;
+    private final Function findProxyForURL_;
+    private final long cacheTtl_;
+    private final Map<String, CachedResult> cache_ = new ConcurrentHashMap<>();
+
+    private static final class CachedResult {
+        private final String value_;
+        private final long expires_;
+
+        CachedResult(final String value, final long expires) {
+            value_ = value;
+            expires_ = expires;
+        }
+    }
+
+    private ProxyAutoConfig(final String content, final long cacheTtl) {
+        cacheTtl_ = cacheTtl;
+
+        final Context cx = Context.enter();
+        try {
+            scope_ = cx.initSafeStandardObjects();
+
+            defineMethod("isPlainHostName", scope_);
+            defineMethod("dnsDomainIs", scope_);
+            defineMethod("localHostOrDomainIs", scope_);
+            defineMethod("isResolvable", scope_);
+            defineMethod("isInNet", scope_);
+            defineMethod("dnsResolve", scope_);
+            defineMethod("myIpAddress", scope_);
+            defineMethod("dnsDomainLevels", scope_);
+            defineMethod("shExpMatch", scope_);
+            defineMethod("weekdayRange", scope_);
+            defineMethod("dateRange", scope_);
+            defineMethod("timeRange", scope_);
+
+            cx.evaluateString(scope_, "var ProxyConfig = function() {}; ProxyConfig.bindings = {}", "<init>", 1, null);
+            cx.compileString(content, "<Proxy Auto-Config>", 1, null).exec(cx, scope_);
+            findProxyForURL_ = (Function) scope_.get("FindProxyForURL", scope_);
+        }
+        finally {
+            Context.exit();
+        }
     }
 
     /**
      * Evaluates the <tt>FindProxyForURL</tt> method of the specified content.
+     * The script is compiled for every call; use {@link #compile(String, long)} to evaluate
+     * the same script several times.
      * @param content the JavaScript content
      * @param url the URL to be retrieved
      * @return semicolon-separated result
      */
     public static String evaluate(final String content, final URL url) {
+        return compile(content, 0).findProxyForURL(url);
+    }
+
+    /**
+     * Compiles the specified content. The returned instance can be used concurrently.
+     * @param content the JavaScript content
+     * @param cacheTtl the time (in milliseconds) the result of <tt>FindProxyForURL</tt> is cached
+     *        for an URL; 0 disables caching
+     * @return the compiled script
+     */
+    public static ProxyAutoConfig compile(final String content, final long cacheTtl) {
+        return new ProxyAutoConfig(content, cacheTtl);
+    }
+
+    /**
+     * Evaluates the <tt>FindProxyForURL</tt> method of the script for the specified url.
+     * @param url the URL to be retrieved
+     * @return semicolon-separated result
+     */
+    public String findProxyForURL(final URL url) {
+        final String urlString = url.toExternalForm();
+        final long now = cacheTtl_ > 0 ? System.currentTimeMillis() : 0;
+        if (cacheTtl_ > 0) {
+            final CachedResult cached = cache_.get(urlString);
+            if (cached != null && cached.expires_ > now) {
+                return cached.value_;
+            }
+        }
+
+        final String value;
         final Context cx = Context.enter();
         try {
-            final ProxyAutoConfig config = new ProxyAutoConfig();
-            final Scriptable scope = cx.initSafeStandardObjects();
-
-            config.defineMethod("isPlainHostName", scope);
-            config.defineMethod("dnsDomainIs", scope);
-            config.defineMethod("localHostOrDomainIs", scope);
-            config.defineMethod("isResolvable", scope);
-            config.defineMethod("isInNet", scope);
-            config.defineMethod("dnsResolve", scope);
-            config.defineMethod("myIpAddress", scope);
-            config.defineMethod("dnsDomainLevels", scope);
-            config.defineMethod("shExpMatch", scope);
-            config.defineMethod("weekdayRange", scope);
-            config.defineMethod("dateRange", scope);
-            config.defineMethod("timeRange", scope);
-
-            cx.evaluateString(scope, "var ProxyConfig = function() {}; ProxyConfig.bindings = {}", "<init>", 1, null);
-            cx.evaluateString(scope, content, "<Proxy Auto-Config>", 1, null);
-            final Object[] functionArgs = {url.toExternalForm(), url.getHost()};
-            final Object fObj = scope.get("FindProxyForURL", scope);
-
-            final NativeFunction f = (NativeFunction) fObj;
-            final Object result = f.call(cx, scope, scope, functionArgs);
-            return Context.toString(result);
+            // the script may change the state of the shared scope
+            synchronized (this) {
+                final Object[] functionArgs = {urlString, url.getHost()};
+                final Object result = findProxyForURL_.call(cx, scope_, scope_, functionArgs);
+                value = Context.toString(result);
+            }
         }
         finally {
             Context.exit();
         }
+
+        if (cacheTtl_ > 0) {
+            if (cache_.size() >= MAX_CACHED_RESULTS) {
+                cache_.clear();
+            }
+            cache_.put(urlString, new CachedResult(value, now + cacheTtl_));
+        }
+        return value;
     }
 
     private void defineMethod(final String methodName, final Scriptable scope) {
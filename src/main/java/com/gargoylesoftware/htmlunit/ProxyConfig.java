@@ -34,6 +34,9 @@ public class ProxyConfig implements Serializable {
     private final Map<String, Pattern> proxyBypassHosts_ = new HashMap<>();
     private String proxyAutoConfigUrl_;
     private String proxyAutoConfigContent_;
+    private long proxyAutoConfigCacheTtl_;
+    private transient ProxyAutoConfig proxyAutoConfig_;
+    private transient String compiledProxyAutoConfigContent_;
 
     /**
      * Creates a new instance.
@@ -178,6 +181,47 @@ public class ProxyConfig implements Serializable {
      * @param proxyAutoConfigContent the proxy auto-config content
      */
     protected void setProxyAutoConfigContent(final String proxyAutoConfigContent) {
-        proxyAutoConfigContent_ = proxyAutoConfigContent;
+        synchronized (this) {
+            proxyAutoConfigContent_ = proxyAutoConfigContent;
+            proxyAutoConfig_ = null;
+        }
+    }
+
+    /**
+     * Returns the time (in milliseconds) the proxy determined by the proxy auto-config
+     * is cached for an URL.
+     * @return the time to live of the cached results
+     */
+    public long getProxyAutoConfigCacheTtl() {
+        return proxyAutoConfigCacheTtl_;
+    }
+
+    /**
+     * Sets the time (in milliseconds) the proxy determined by the proxy auto-config
+     * is cached for an URL; 0 (the default) disables the caching.
+     * @param proxyAutoConfigCacheTtl the time to live of the cached results
+     */
+    public void setProxyAutoConfigCacheTtl(final long proxyAutoConfigCacheTtl) {
+        synchronized (this) {
+            proxyAutoConfigCacheTtl_ = proxyAutoConfigCacheTtl;
+            proxyAutoConfig_ = null;
+        }
+    }
+
+    /**
+     * Returns the compiled proxy auto-config content.
+     * @return the compiled proxy auto-config content or {@code null} if the content is not loaded so far
+     */
+    synchronized ProxyAutoConfig getProxyAutoConfig() {
+        // subclasses may provide the content
+        final String content = getProxyAutoConfigContent();
+        if (content == null) {
+            return null;
+        }
+        if (proxyAutoConfig_ == null || !content.equals(compiledProxyAutoConfigContent_)) {
+            proxyAutoConfig_ = ProxyAutoConfig.compile(content, proxyAutoConfigCacheTtl_);
+            compiledProxyAutoConfigContent_ = content;
+        }
+        return proxyAutoConfig_;
     }
 }
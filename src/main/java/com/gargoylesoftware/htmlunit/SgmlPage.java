@@ -19,6 +19,9 @@ import java.nio.charset.Charset;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.CDATASection;
 import org.w3c.dom.Comment;
@@ -34,6 +37,7 @@ import org.w3c.dom.traversal.NodeFilter;
 import com.gargoylesoftware.htmlunit.html.AbstractDomNodeList;
 import com.gargoylesoftware.htmlunit.html.DomAttr;
 import com.gargoylesoftware.htmlunit.html.DomCDataSection;
+import com.gargoylesoftware.htmlunit.html.DomChangeListener;
 import com.gargoylesoftware.htmlunit.html.DomComment;
 import com.gargoylesoftware.htmlunit.html.DomDocumentFragment;
 import com.gargoylesoftware.htmlunit.html.DomElement;
@@ -42,6 +46,7 @@ import com.gargoylesoftware.htmlunit.html.DomNodeIterator;
 import com.gargoylesoftware.htmlunit.html.DomNodeList;
 import com.gargoylesoftware.htmlunit.html.DomText;
 import com.gargoylesoftware.htmlunit.html.DomTreeWalker;
+import com.gargoylesoftware.htmlunit.html.xpath.XPathCache;
 import com.gargoylesoftware.htmlunit.util.UrlUtils;
 
 /**
@@ -56,6 +61,10 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
     private final WebResponse webResponse_;
     private WebWindow enclosingWindow_;
     private final WebClient webClient_;
+    // serialized, it is registered as listener of this page; the compiled expressions
+    // and the context are transient
+    private XPathCache xpathCache_;
+    private Set<String> eventListenerTypes_ = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates an instance of SgmlPage.
@@ -75,7 +84,7 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
      */
     @Override
     public void cleanUp() {
-        if (getWebClient().getCache().getCachedResponse(webResponse_.getWebRequest()) == null) {
+        if (!getWebClient().getCache().contains(webResponse_.getWebRequest())) {
             webResponse_.cleanUp();
         }
     }
@@ -212,6 +221,9 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
     protected SgmlPage clone() {
         try {
             final SgmlPage result = (SgmlPage) super.clone();
+            result.xpathCache_ = null;
+            result.eventListenerTypes_ = ConcurrentHashMap.newKeySet();
+            result.eventListenerTypes_.addAll(eventListenerTypes_);
             return result;
         }
         catch (final CloneNotSupportedException e) {
@@ -219,6 +231,67 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
         }
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the compiled XPath expressions and the XPath context of this page.
+     * @return the XPath cache
+     */
+    public synchronized XPathCache getXPathCache() {
+        if (xpathCache_ == null) {
+            xpathCache_ = new XPathCache(this);
+        }
+        return xpathCache_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Remembers that a listener, a handler or a handler attribute for the given event type was
+     * added to some node of this page. The types are never removed.
+     * @param type the event type (e.g. "click")
+     */
+    public void addEventListenerType(final String type) {
+        eventListenerTypes_.add(type.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Remembers all the event types of the given page, used if nodes are moved from the other page to this one.
+     * @param page the other page
+     */
+    public void addEventListenerTypes(final SgmlPage page) {
+        if (page != this) {
+            eventListenerTypes_.addAll(page.eventListenerTypes_);
+        }
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns {@code false} if there is for sure no listener or handler for the given event type
+     * in this page. In this case dispatching the event has no visible effect.
+     * @param type the event type (e.g. "click")
+     * @return whether there might be listeners for this type
+     */
+    public boolean mayHaveEventListeners(final String type) {
+        return eventListenerTypes_.contains(type.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Drops the DTM view of the document used for XPath evaluations; has to be called for changes of
+     * the DOM that are not reported to the {@link DomChangeListener}s (e.g. a changed attribute).
+     */
+    public void invalidateXPathContext() {
+        final XPathCache xpathCache = xpathCache_;
+        if (xpathCache != null) {
+            xpathCache.invalidate();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
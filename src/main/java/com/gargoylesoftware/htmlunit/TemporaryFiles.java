@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The temporary files used to store downloaded content.
+ * {@link File#deleteOnExit()} remembers every file until the JVM ends, even if the file
+ * was deleted long before. Here a file is forgotten as soon as it is deleted; the files still
+ * alive at shutdown are deleted by a single shutdown hook.
+ */
+final class TemporaryFiles {
+
+    private static final Set<File> FILES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TemporaryFiles::deleteAll, "HtmlUnit temporary files"));
+    }
+
+    private TemporaryFiles() {
+    }
+
+    /**
+     * Creates a new temporary file.
+     * @return the file
+     * @throws IOException if the file could not be created
+     */
+    static File create() throws IOException {
+        final File file = File.createTempFile("htmlunit", ".tmp");
+        FILES.add(file);
+        return file;
+    }
+
+    /**
+     * Deletes the given temporary file.
+     * @param file the file
+     */
+    static void delete(final File file) {
+        FileUtils.deleteQuietly(file);
+        FILES.remove(file);
+    }
+
+    /**
+     * Returns the number of temporary files not deleted so far.
+     * @return the number of files
+     */
+    static int size() {
+        return FILES.size();
+    }
+
+    private static void deleteAll() {
+        for (final File file : FILES) {
+            FileUtils.deleteQuietly(file);
+        }
+        FILES.clear();
+    }
+}
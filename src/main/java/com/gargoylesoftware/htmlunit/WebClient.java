@@ -87,6 +87,7 @@ import com.gargoylesoftware.htmlunit.html.parser.HTMLParser;
 import com.gargoylesoftware.htmlunit.html.parser.HTMLParserListener;
 import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitBrowserCompatCookieSpec;
 import com.gargoylesoftware.htmlunit.javascript.AbstractJavaScriptEngine;
+import com.gargoylesoftware.htmlunit.javascript.CompiledScriptCache;
 import com.gargoylesoftware.htmlunit.javascript.DefaultJavaScriptErrorListener;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptErrorListener;
@@ -198,6 +199,7 @@ public class WebClient implements Serializable, AutoCloseable {
     private CSSErrorHandler cssErrorHandler_ = new DefaultCssErrorHandler();
     private OnbeforeunloadHandler onbeforeunloadHandler_;
     private Cache cache_ = new Cache();
+    private transient CompiledScriptCache compiledScriptCache_;
 
     /** target "_blank". */
     private static final String TARGET_BLANK = "_blank";
@@ -461,7 +463,13 @@ public class WebClient implements Serializable, AutoCloseable {
         }
         else {
             try {
-                webResponse = loadWebResponse(webRequest);
+                if (webWindow instanceof FrameWindow) {
+                    // the document might be loaded already (see WebClientOptions#setParallelFrameLoadingEnabled)
+                    webResponse = ((FrameWindow) webWindow).getEnclosingPage().loadResourceWebResponse(webRequest);
+                }
+                else {
+                    webResponse = loadWebResponse(webRequest);
+                }
             }
             catch (final NoHttpResponseException e) {
                 webResponse = new WebResponse(RESPONSE_DATA_NO_HTTP_RESPONSE, webRequest, 0);
@@ -1349,7 +1357,7 @@ public class WebClient implements Serializable, AutoCloseable {
             cleanUrl = UrlUtils.getUrlWithNewRef(cleanUrl, null);
         }
 
-        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
+        final WebResponse fromCache = getCache().getCachedResponse(webRequest, getOptions().getMaxInMemory());
         if (fromCache != null) {
             return new WebResponseFromCache(fromCache, webRequest);
         }
@@ -1502,30 +1510,34 @@ public class WebClient implements Serializable, AutoCloseable {
             final ProxyConfig proxyConfig = getOptions().getProxyConfig();
             if (proxyConfig.getProxyAutoConfigUrl() != null) {
                 if (!UrlUtils.sameFile(new URL(proxyConfig.getProxyAutoConfigUrl()), url)) {
-                    String content = proxyConfig.getProxyAutoConfigContent();
-                    if (content == null) {
-                        content = getPage(proxyConfig.getProxyAutoConfigUrl())
+                    // read once, the content may be replaced by another thread
+                    ProxyAutoConfig proxyAutoConfig = proxyConfig.getProxyAutoConfig();
+                    if (proxyAutoConfig == null) {
+                        final String content = getPage(proxyConfig.getProxyAutoConfigUrl())
                             .getWebResponse().getContentAsString();
                         proxyConfig.setProxyAutoConfigContent(content);
+                        proxyAutoConfig = proxyConfig.getProxyAutoConfig();
                     }
-                    final String allValue = ProxyAutoConfig.evaluate(content, url);
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Proxy Auto-Config: value '" + allValue + "' for URL " + url);
-                    }
-                    String value = allValue.split(";")[0].trim();
-                    if (value.startsWith("PROXY")) {
-                        value = value.substring(6);
-                        final int colonIndex = value.indexOf(':');
-                        webRequest.setSocksProxy(false);
-                        webRequest.setProxyHost(value.substring(0, colonIndex));
-                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
-                    }
-                    else if (value.startsWith("SOCKS")) {
-                        value = value.substring(6);
-                        final int colonIndex = value.indexOf(':');
-                        webRequest.setSocksProxy(true);
-                        webRequest.setProxyHost(value.substring(0, colonIndex));
-                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
+                    if (proxyAutoConfig != null) {
+                        final String allValue = proxyAutoConfig.findProxyForURL(url);
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Proxy Auto-Config: value '" + allValue + "' for URL " + url);
+                        }
+                        String value = allValue.split(";")[0].trim();
+                        if (value.startsWith("PROXY")) {
+                            value = value.substring(6);
+                            final int colonIndex = value.indexOf(':');
+                            webRequest.setSocksProxy(false);
+                            webRequest.setProxyHost(value.substring(0, colonIndex));
+                            webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
+                        }
+                        else if (value.startsWith("SOCKS")) {
+                            value = value.substring(6);
+                            final int colonIndex = value.indexOf(':');
+                            webRequest.setSocksProxy(true);
+                            webRequest.setProxyHost(value.substring(0, colonIndex));
+                            webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
+                        }
                     }
                 }
             }
@@ -1541,10 +1553,22 @@ public class WebClient implements Serializable, AutoCloseable {
         addDefaultHeaders(webRequest);
 
         // Retrieve the response, either from the cache or from the server.
-        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
-        final WebResponse webResponse;
+        final Cache cache = getCache();
+        WebResponse fromCache = cache.getCachedResponse(webRequest, getOptions().getMaxInMemory());
+        WebResponse webResponse;
         if (fromCache == null) {
-            webResponse = getWebConnection().getResponse(webRequest);
+            final WebResponse staleResponse = getStaleResponseToRevalidate(webRequest);
+            if (staleResponse == null) {
+                webResponse = getWebConnection().getResponse(webRequest);
+            }
+            else {
+                webResponse = loadConditional(webRequest, staleResponse);
+                if (webResponse.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                    fromCache = cache.revalidated(webRequest, staleResponse, webResponse);
+                    webResponse.cleanUp();
+                    webResponse = new WebResponseFromCache(fromCache, webRequest);
+                }
+            }
         }
         else {
             webResponse = new WebResponseFromCache(fromCache, webRequest);
@@ -1635,11 +1659,53 @@ public class WebClient implements Serializable, AutoCloseable {
         }
 
         if (fromCache == null) {
-            getCache().cacheIfPossible(webRequest, webResponse, null);
+            cache.cacheIfPossible(webRequest, webResponse, null);
         }
         return webResponse;
     }
 
+    /**
+     * Returns the stale cached response for the given request if it can be revalidated
+     * with a conditional request.
+     * @param webRequest the request
+     * @return the stale response or {@code null}
+     */
+    private WebResponse getStaleResponseToRevalidate(final WebRequest webRequest) {
+        // conditional requests made by the page itself (e.g. xhr) have to see the 304
+        if (webRequest.isAdditionalHeader(HttpHeader.IF_NONE_MATCH)
+                || webRequest.isAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE)) {
+            return null;
+        }
+        return getCache().getStaleResponse(webRequest, getOptions().getMaxInMemory());
+    }
+
+    /**
+     * Performs the request as conditional request using the validators of the given stale response.
+     * @param webRequest the request
+     * @param staleResponse the cached response to revalidate
+     * @return the response of the server
+     * @throws IOException if an IO problem occurs
+     */
+    private WebResponse loadConditional(final WebRequest webRequest, final WebResponse staleResponse)
+            throws IOException {
+        final String etag = staleResponse.getResponseHeaderValue(HttpHeader.ETAG);
+        if (etag != null) {
+            webRequest.setAdditionalHeader(HttpHeader.IF_NONE_MATCH, etag);
+        }
+        final String lastModified = staleResponse.getResponseHeaderValue(HttpHeader.LAST_MODIFIED);
+        if (lastModified != null) {
+            webRequest.setAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE, lastModified);
+        }
+
+        try {
+            return getWebConnection().getResponse(webRequest);
+        }
+        finally {
+            webRequest.removeAdditionalHeader(HttpHeader.IF_NONE_MATCH);
+            webRequest.removeAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE);
+        }
+    }
+
     /**
      * Adds the headers that are sent with every request to the specified {@link WebRequest} instance.
      * @param wrs the <tt>WebRequestSettings</tt> instance to modify
@@ -1995,6 +2061,23 @@ public class WebClient implements Serializable, AutoCloseable {
         cache_ = cache;
     }
 
+    /**
+     * Gets the cache of compiled scripts currently being used.
+     * @return the cache of compiled scripts or {@code null} if compiled scripts are not cached
+     */
+    public CompiledScriptCache getCompiledScriptCache() {
+        return compiledScriptCache_;
+    }
+
+    /**
+     * Sets the cache of compiled scripts to use. The cache may be shared between
+     * many {@link WebClient}s. The default is {@code null} (no caching).
+     * @param compiledScriptCache the new cache or {@code null} to disable the caching of compiled scripts
+     */
+    public void setCompiledScriptCache(final CompiledScriptCache compiledScriptCache) {
+        compiledScriptCache_ = compiledScriptCache;
+    }
+
     /**
      * Keeps track of the current window. Inspired by WebTest's logic to track the current response.
      */
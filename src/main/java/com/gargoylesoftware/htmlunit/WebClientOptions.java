@@ -30,6 +30,9 @@ import java.security.KeyStore;
  */
 public class WebClientOptions implements Serializable {
 
+    /** The default of {@link #getMaxInMemory()}. */
+    static final int DEFAULT_MAX_IN_MEMORY = 500 * 1024;
+
     private boolean javaScriptEnabled_ = true;
     private boolean cssEnabled_ = true;
     private boolean printContentOnFailingStatusCode_ = true;
@@ -53,11 +56,15 @@ public class WebClientOptions implements Serializable {
 
     private boolean useInsecureSSL_; // default is secure SSL
     private String sslInsecureProtocol_;
-    private int maxInMemory_ = 500 * 1024;
+    private int maxInMemory_ = DEFAULT_MAX_IN_MEMORY;
     private int historySizeLimit_ = 50;
     private int historyPageCacheLimit_ = Integer.MAX_VALUE;
     private InetAddress localAddress_;
     private boolean downloadImages_;
+    private boolean preloadEnabled_;
+    private boolean parallelFrameLoadingEnabled_;
+    private int maxPreloadRequestsPerHost_ = 6;
+    private boolean decodeContentOnce_;
     private int screenWidth_ = 1920;
     private int screenHeight_ = 1080;
 
@@ -643,6 +650,91 @@ public class WebClientOptions implements Serializable {
         return downloadImages_;
     }
 
+    /**
+     * Enables/disables the preloading of resources. If enabled, the external scripts and stylesheets
+     * (and images if {@link #isDownloadImages()}) referenced by the source of a page are requested in
+     * parallel using the executor of the {@link WebClient} before the page is parsed. The scripts are
+     * still executed in document order. By default, this property is disabled.
+     *
+     * @param enabled {@code true} to enable the preloading
+     */
+    public void setPreloadEnabled(final boolean enabled) {
+        preloadEnabled_ = enabled;
+    }
+
+    /**
+     * Returns {@code true} if the preloading of resources is enabled.
+     *
+     * @return {@code true} if the preloading of resources is enabled
+     */
+    public boolean isPreloadEnabled() {
+        return preloadEnabled_;
+    }
+
+    /**
+     * Enables/disables the parallel loading of frames. If enabled, the documents of all frames and iframes
+     * of a page are requested in parallel using the executor of the {@link WebClient}. The pages are still
+     * initialized one after the other (including the execution of the scripts) by the thread loading
+     * the enclosing page. By default, this property is disabled.
+     *
+     * @param enabled {@code true} to enable the parallel loading of frames
+     */
+    public void setParallelFrameLoadingEnabled(final boolean enabled) {
+        parallelFrameLoadingEnabled_ = enabled;
+    }
+
+    /**
+     * Returns {@code true} if the parallel loading of frames is enabled.
+     *
+     * @return {@code true} if the parallel loading of frames is enabled
+     */
+    public boolean isParallelFrameLoadingEnabled() {
+        return parallelFrameLoadingEnabled_;
+    }
+
+    /**
+     * Sets the max number of parallel requests to one host done in the background by the preloading
+     * of resources and frames. The default is 6.
+     *
+     * @param maxRequests the max number of parallel requests per host (must be &gt; 0)
+     */
+    public void setMaxPreloadRequestsPerHost(final int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("Illegal value for maxRequests: " + maxRequests);
+        }
+        maxPreloadRequestsPerHost_ = maxRequests;
+    }
+
+    /**
+     * Returns the max number of parallel requests to one host done in the background.
+     *
+     * @return the max number of parallel requests per host
+     */
+    public int getMaxPreloadRequestsPerHost() {
+        return maxPreloadRequestsPerHost_;
+    }
+
+    /**
+     * Enables/disables keeping the decoded content of compressed responses. If enabled, the content
+     * of a response received with a {@code Content-Encoding} (gzip, br, deflate) is decompressed only once;
+     * the result is kept in memory or in a temporary file depending on {@link #getMaxInMemory()}
+     * and used for all later reads. By default, this property is disabled.
+     *
+     * @param enabled {@code true} to decode the content only once
+     */
+    public void setDecodeContentOnce(final boolean enabled) {
+        decodeContentOnce_ = enabled;
+    }
+
+    /**
+     * Returns {@code true} if the content of compressed responses is decoded only once.
+     *
+     * @return {@code true} if the content of compressed responses is decoded only once
+     */
+    public boolean isDecodeContentOnce() {
+        return decodeContentOnce_;
+    }
+
     /**
      * Sets the screen width.
      *
@@ -22,9 +22,12 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
@@ -54,10 +57,14 @@ public class WebResponse implements Serializable {
         ByteOrderMark.UTF_16LE,
         ByteOrderMark.UTF_16BE};
 
+    /** The max number of decoded strings (different charsets) remembered per response. */
+    private static final int MAX_CONTENT_AS_STRING = 2;
+
     private long loadTime_;
     private WebResponseData responseData_;
     private WebRequest request_;
     private boolean defaultCharsetUtf8_;
+    private transient Map<String, SoftReference<String>> contentAsString_;
 
     /**
      * Constructs with all data.
@@ -94,6 +101,14 @@ public class WebResponse implements Serializable {
         return request_;
     }
 
+    /**
+     * Returns the data of this response.
+     * @return the data
+     */
+    WebResponseData getResponseData() {
+        return responseData_;
+    }
+
     /**
      * Returns the response headers as a list of {@link NameValuePair}s.
      * @return the response headers as a list of {@link NameValuePair}s
@@ -219,37 +234,71 @@ public class WebResponse implements Serializable {
      * Returns the response content as a string, using the specified charset,
      * rather than the charset/encoding specified in the server response.
      * If there is a bom header the charset parameter will be overwritten by the bom.
+     * The decoded string is remembered (softly referenced) until {@link #cleanUp()} is called.
      * @param encoding the charset/encoding to use to convert the response content into a string
      * @param ignoreUtf8Bom if true utf8 bom header will be ignored
      * @return the response content as a string or null if the content retrieval was failing
      */
     public String getContentAsString(final Charset encoding, final boolean ignoreUtf8Bom) {
-        if (responseData_ != null) {
-            try (InputStream in = responseData_.getInputStreamWithBomIfApplicable(BOM_HEADERS)) {
-                if (in instanceof BOMInputStream) {
-                    try (BOMInputStream bomIn = (BOMInputStream) in) {
-                        // there seems to be a bug in BOMInputStream
-                        // we have to call this before hasBOM(ByteOrderMark)
-                        if (bomIn.hasBOM()) {
-                            if (!ignoreUtf8Bom && bomIn.hasBOM(ByteOrderMark.UTF_8)) {
-                                return IOUtils.toString(bomIn, UTF_8);
-                            }
-                            if (bomIn.hasBOM(ByteOrderMark.UTF_16BE)) {
-                                return IOUtils.toString(bomIn, UTF_16BE);
-                            }
-                            if (bomIn.hasBOM(ByteOrderMark.UTF_16LE)) {
-                                return IOUtils.toString(bomIn, UTF_16LE);
-                            }
-                        }
-                        return IOUtils.toString(bomIn, encoding);
+        if (responseData_ == null) {
+            return null;
+        }
+
+        final String key = String.valueOf(encoding) + (ignoreUtf8Bom ? "/ignoreUtf8Bom" : "");
+        synchronized (this) {
+            if (contentAsString_ != null) {
+                final SoftReference<String> reference = contentAsString_.get(key);
+                if (reference != null) {
+                    final String content = reference.get();
+                    if (content != null) {
+                        return content;
                     }
                 }
+            }
+        }
 
-                return IOUtils.toString(in, encoding);
+        final String content = readContentAsString(encoding, ignoreUtf8Bom);
+        if (content != null) {
+            synchronized (this) {
+                if (contentAsString_ == null) {
+                    contentAsString_ = new LinkedHashMap<String, SoftReference<String>>(4, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(final Map.Entry<String, SoftReference<String>> eldest) {
+                            return size() > MAX_CONTENT_AS_STRING;
+                        }
+                    };
+                }
+                contentAsString_.put(key, new SoftReference<>(content));
             }
-            catch (final IOException e) {
-                LOG.warn(e.getMessage(), e);
+        }
+        return content;
+    }
+
+    private String readContentAsString(final Charset encoding, final boolean ignoreUtf8Bom) {
+        try (InputStream in = responseData_.getInputStreamWithBomIfApplicable(BOM_HEADERS)) {
+            if (in instanceof BOMInputStream) {
+                try (BOMInputStream bomIn = (BOMInputStream) in) {
+                    // there seems to be a bug in BOMInputStream
+                    // we have to call this before hasBOM(ByteOrderMark)
+                    if (bomIn.hasBOM()) {
+                        if (!ignoreUtf8Bom && bomIn.hasBOM(ByteOrderMark.UTF_8)) {
+                            return IOUtils.toString(bomIn, UTF_8);
+                        }
+                        if (bomIn.hasBOM(ByteOrderMark.UTF_16BE)) {
+                            return IOUtils.toString(bomIn, UTF_16BE);
+                        }
+                        if (bomIn.hasBOM(ByteOrderMark.UTF_16LE)) {
+                            return IOUtils.toString(bomIn, UTF_16LE);
+                        }
+                    }
+                    return IOUtils.toString(bomIn, encoding);
+                }
             }
+
+            return IOUtils.toString(in, encoding);
+        }
+        catch (final IOException e) {
+            LOG.warn(e.getMessage(), e);
         }
         return null;
     }
@@ -299,6 +348,9 @@ public class WebResponse implements Serializable {
      * Clean up the response data.
      */
     public void cleanUp() {
+        synchronized (this) {
+            contentAsString_ = null;
+        }
         if (responseData_ != null) {
             responseData_.cleanUp();
         }
@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
@@ -28,6 +30,7 @@ import java.util.zip.InflaterInputStream;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.ProxyInputStream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -53,6 +56,11 @@ public class WebResponseData implements Serializable {
     private final List<NameValuePair> responseHeaders_;
     private final DownloadedContent downloadedContent_;
 
+    private int decodedContentMaxInMemory_ = -1;
+    private transient DownloadedContent decodedContent_;
+    private final AtomicLong decodedBytes_ = new AtomicLong();
+    private final AtomicInteger decodeCount_ = new AtomicInteger();
+
     /**
      * Constructs with a raw byte[] (mostly for testing).
      *
@@ -93,82 +101,150 @@ public class WebResponseData implements Serializable {
         downloadedContent_ = downloadedContent;
     }
 
+    /**
+     * Creates a copy of the given data using other response headers; the content is shared.
+     * @param data the data to copy
+     * @param responseHeaders the new headers
+     */
+    WebResponseData(final WebResponseData data, final List<NameValuePair> responseHeaders) {
+        this(data.downloadedContent_, data.statusCode_, data.statusMessage_, responseHeaders);
+        decodedContentMaxInMemory_ = data.decodedContentMaxInMemory_;
+    }
+
     private InputStream getStream(final DownloadedContent downloadedContent,
                 final List<NameValuePair> headers, final ByteOrderMark[] bomHeaders) throws IOException {
-        InputStream stream = downloadedContent_.getInputStream();
         if (downloadedContent.isEmpty()) {
-            return stream;
+            return downloadedContent_.getInputStream();
         }
 
+        final String decoding = getContentDecoding(headers);
+        if (decoding != null) {
+            if (decodedContentMaxInMemory_ >= 0) {
+                final DownloadedContent decodedContent = getDecodedContent(downloadedContent, decoding);
+                if (decodedContent != null) {
+                    return decodedContent.getInputStream();
+                }
+            }
+            return countDecodedBytes(decode(downloadedContent_.getInputStream(), decoding));
+        }
+
+        InputStream stream = downloadedContent_.getInputStream();
+        if (stream != null && bomHeaders != null) {
+            stream = new BOMInputStream(stream, bomHeaders);
+        }
+        return stream;
+    }
+
+    /**
+     * Returns the decoding to apply to the content: "gzip", "br", "deflate" or {@code null}.
+     */
+    private static String getContentDecoding(final List<NameValuePair> headers) {
         final String encoding = getHeader(headers, "content-encoding");
-        if (encoding != null) {
-            boolean isGzip = StringUtils.contains(encoding, "gzip") && !"no-gzip".equals(encoding);
-            if ("gzip-only-text/html".equals(encoding)) {
-                isGzip = MimeType.TEXT_HTML.equals(getHeader(headers, "content-type"));
+        if (encoding == null) {
+            return null;
+        }
+
+        boolean isGzip = StringUtils.contains(encoding, "gzip") && !"no-gzip".equals(encoding);
+        if ("gzip-only-text/html".equals(encoding)) {
+            isGzip = MimeType.TEXT_HTML.equals(getHeader(headers, "content-type"));
+        }
+        if (isGzip) {
+            return "gzip";
+        }
+        if ("br".equals(encoding)) {
+            return "br";
+        }
+        if (StringUtils.contains(encoding, "deflate")) {
+            return "deflate";
+        }
+        return null;
+    }
+
+    private static InputStream decode(final InputStream encodedStream, final String decoding) throws IOException {
+        InputStream stream = encodedStream;
+        if ("gzip".equals(decoding)) {
+            try {
+                stream = new GZIPInputStream(stream);
             }
-            if (isGzip) {
-                try {
-                    stream = new GZIPInputStream(stream);
-                }
-                catch (final IOException e) {
-                    LOG.error("Reading gzip encodec content failed.", e);
-                    stream.close();
-                    stream = IOUtils.toInputStream(
-                                "<html>\n"
-                                 + "<head><title>Problem loading page</title></head>\n"
-                                 + "<body>\n"
-                                 + "<h1>Content Encoding Error</h1>\n"
-                                 + "<p>The page you are trying to view cannot be shown because"
-                                 + " it uses an invalid or unsupported form of compression.</p>\n"
-                                 + "</body>\n"
-                                 + "</html>", ISO_8859_1);
-                }
-                return stream;
+            catch (final IOException e) {
+                LOG.error("Reading gzip encodec content failed.", e);
+                stream.close();
+                stream = IOUtils.toInputStream(
+                            "<html>\n"
+                             + "<head><title>Problem loading page</title></head>\n"
+                             + "<body>\n"
+                             + "<h1>Content Encoding Error</h1>\n"
+                             + "<p>The page you are trying to view cannot be shown because"
+                             + " it uses an invalid or unsupported form of compression.</p>\n"
+                             + "</body>\n"
+                             + "</html>", ISO_8859_1);
             }
+            return stream;
+        }
 
-            if ("br".equals(encoding)) {
-                try {
-                    stream = new BrotliInputStream(stream);
-                }
-                catch (final IOException e) {
-                    LOG.error("Reading Brotli encodec content failed.", e);
-                    stream.close();
-                    stream = IOUtils.toInputStream(
-                                "<html>\n"
-                                 + "<head><title>Problem loading page</title></head>\n"
-                                 + "<body>\n"
-                                 + "<h1>Content Encoding Error</h1>\n"
-                                 + "<p>The page you are trying to view cannot be shown because"
-                                 + " it uses an invalid or unsupported form of compression.</p>\n"
-                                 + "</body>\n"
-                                 + "</html>", ISO_8859_1);
-                }
-                return stream;
+        if ("br".equals(decoding)) {
+            try {
+                stream = new BrotliInputStream(stream);
+            }
+            catch (final IOException e) {
+                LOG.error("Reading Brotli encodec content failed.", e);
+                stream.close();
+                stream = IOUtils.toInputStream(
+                            "<html>\n"
+                             + "<head><title>Problem loading page</title></head>\n"
+                             + "<body>\n"
+                             + "<h1>Content Encoding Error</h1>\n"
+                             + "<p>The page you are trying to view cannot be shown because"
+                             + " it uses an invalid or unsupported form of compression.</p>\n"
+                             + "</body>\n"
+                             + "</html>", ISO_8859_1);
             }
+            return stream;
+        }
 
-            if (StringUtils.contains(encoding, "deflate")) {
-                boolean zlibHeader = false;
-                if (stream.markSupported()) { // should be always the case as the content is in a byte[] or in a file
-                    stream.mark(2);
-                    final byte[] buffer = new byte[2];
-                    final int byteCount = stream.read(buffer, 0, 2);
-                    zlibHeader = byteCount == 2 && (((buffer[0] & 0xff) << 8) | (buffer[1] & 0xff)) == 0x789c;
-                    stream.reset();
-                }
-                if (zlibHeader) {
-                    stream = new InflaterInputStream(stream);
-                }
-                else {
-                    stream = new InflaterInputStream(stream, new Inflater(true));
+        boolean zlibHeader = false;
+        if (stream.markSupported()) { // should be always the case as the content is in a byte[] or in a file
+            stream.mark(2);
+            final byte[] buffer = new byte[2];
+            final int byteCount = stream.read(buffer, 0, 2);
+            zlibHeader = byteCount == 2 && (((buffer[0] & 0xff) << 8) | (buffer[1] & 0xff)) == 0x789c;
+            stream.reset();
+        }
+        if (zlibHeader) {
+            return new InflaterInputStream(stream);
+        }
+        return new InflaterInputStream(stream, new Inflater(true));
+    }
+
+    private InputStream countDecodedBytes(final InputStream stream) {
+        decodeCount_.incrementAndGet();
+        return new ProxyInputStream(stream) {
+            @Override
+            protected void afterRead(final int n) {
+                if (n > 0) {
+                    decodedBytes_.addAndGet(n);
                 }
-                return stream;
             }
-        }
+        };
+    }
 
-        if (stream != null && bomHeaders != null) {
-            stream = new BOMInputStream(stream, bomHeaders);
+    /**
+     * Returns the decoded content, decoding it on the first call.
+     * @return the decoded content or {@code null} if decoding failed
+     */
+    private synchronized DownloadedContent getDecodedContent(final DownloadedContent downloadedContent,
+            final String decoding) {
+        if (decodedContent_ == null) {
+            try (InputStream stream = countDecodedBytes(decode(downloadedContent.getInputStream(), decoding))) {
+                decodedContent_ = HttpWebConnection.downloadContent(stream, decodedContentMaxInMemory_);
+            }
+            catch (final IOException e) {
+                // the caller has to decode the content itself
+                LOG.warn("Decoding of the content failed.", e);
+                return null;
+            }
         }
-        return stream;
+        return decodedContent_;
     }
 
     private static String getHeader(final List<NameValuePair> headers, final String name) {
@@ -245,10 +321,42 @@ public class WebResponseData implements Serializable {
         return downloadedContent_.length();
     }
 
+    /**
+     * Enables keeping the decoded (decompressed) content. If enabled, a compressed content is only
+     * decoded once; all later reads are served from the decoded content.
+     * @param maxInMemory the max size of the decoded content kept in memory; larger content
+     *        is stored in a temporary file
+     */
+    void setKeepDecodedContent(final int maxInMemory) {
+        decodedContentMaxInMemory_ = maxInMemory;
+    }
+
+    /**
+     * Returns the number of bytes produced by decoding (decompressing) the content so far.
+     * @return the number of decoded bytes
+     */
+    public long getDecodedBytes() {
+        return decodedBytes_.get();
+    }
+
+    /**
+     * Returns how often the content was decoded (decompressed) so far.
+     * @return the number of decode operations
+     */
+    public int getDecodeCount() {
+        return decodeCount_.get();
+    }
+
     /**
      * Clean up the downloaded content.
      */
     public void cleanUp() {
         downloadedContent_.cleanUp();
+        synchronized (this) {
+            if (decodedContent_ != null) {
+                decodedContent_.cleanUp();
+                decodedContent_ = null;
+            }
+        }
     }
 }
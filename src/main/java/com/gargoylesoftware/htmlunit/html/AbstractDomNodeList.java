@@ -15,7 +15,6 @@
 package com.gargoylesoftware.htmlunit.html;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,21 +39,17 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
     /** Element cache, used to avoid XPath expression evaluation as much as possible. */
     private List<E> cachedElements_;
 
+    /** The change counters of the root node the cache was computed for. */
+    private int domChangeCount_;
+    private int attributeChangeCount_;
+
     /**
      * Creates a new node list. The elements will be "calculated" using the specified XPath
      * expression applied on the specified node.
      * @param node the node to serve as root for the XPath expression
      */
     public AbstractDomNodeList(final DomNode node) {
-        if (node != null) {
-            node_ = node;
-            final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-            node_.addDomChangeListener(listener);
-            if (node_ instanceof HtmlElement) {
-                ((HtmlElement) node_).addHtmlAttributeChangeListener(listener);
-                cachedElements_ = null;
-            }
-        }
+        node_ = node;
     }
 
     /**
@@ -76,11 +71,18 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
      * @return the nodes in this node list
      */
     private List<E> getNodes() {
+        if (cachedElements_ != null && node_ != null
+                && (node_.getDomChangeCount() != domChangeCount_
+                    || node_.getAttributeChangeCount() != attributeChangeCount_)) {
+            cachedElements_ = null;
+        }
         if (cachedElements_ == null) {
             if (node_ == null) {
                 cachedElements_ = new ArrayList<>();
             }
             else {
+                domChangeCount_ = node_.getDomChangeCount();
+                attributeChangeCount_ = node_.getAttributeChangeCount();
                 cachedElements_ = provideElements();
             }
         }
@@ -118,69 +120,4 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
     public E get(final int index) {
         return getNodes().get(index);
     }
-
-    /**
-     * DOM change listener which clears the node cache when necessary.
-     */
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
-
-        private final transient WeakReference<AbstractDomNodeList<?>> nodeList_;
-
-        DomHtmlAttributeChangeListenerImpl(final AbstractDomNodeList<?> nodeList) {
-            super();
-
-            nodeList_ = new WeakReference<>(nodeList);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        private void clearCache() {
-            if (nodeList_ != null) {
-                final AbstractDomNodeList<?> nodes = nodeList_.get();
-                if (nodes != null) {
-                    nodes.cachedElements_ = null;
-                }
-            }
-        }
-    }
-
 }
@@ -190,9 +190,7 @@ public abstract class BaseFrameElement extends HtmlElement {
                 return;
             }
 
-            final WebRequest request = new WebRequest(url);
-            request.setCharset(getPage().getCharset());
-            request.setRefererlHeader(getPage().getUrl());
+            final WebRequest request = createWebRequest(url);
 
             if (isAlreadyLoadedByAncestor(url, request.getCharset())) {
                 notifyIncorrectness("Recursive src attribute of " + getTagName() + ": url=[" + source + "]. Ignored.");
@@ -209,6 +207,37 @@ public abstract class BaseFrameElement extends HtmlElement {
         }
     }
 
+    private WebRequest createWebRequest(final URL url) {
+        final WebRequest request = new WebRequest(url);
+        request.setCharset(getPage().getCharset());
+        request.setRefererlHeader(getPage().getUrl());
+        return request;
+    }
+
+    /**
+     * Returns the request {@link #loadInnerPage()} will use to load the content of this frame.
+     * @return the request or {@code null} if no request will be done
+     */
+    WebRequest getInnerPageRequest() {
+        final String source = getSrcAttribute();
+        if (source.isEmpty() || StringUtils.startsWithIgnoreCase(source, UrlUtils.ABOUT_SCHEME)
+                || getPage().getWebClient().getFrameContentHandler() != null) {
+            return null;
+        }
+
+        try {
+            final URL url = ((HtmlPage) getPage()).getFullyQualifiedUrl(source);
+            final WebRequest request = createWebRequest(url);
+            if (isAlreadyLoadedByAncestor(url, request.getCharset())) {
+                return null;
+            }
+            return request;
+        }
+        catch (final MalformedURLException e) {
+            return null;
+        }
+    }
+
     /**
      * Test if the provided URL is the one of one of the parents which would cause an infinite loop.
      * @param url the URL to test
@@ -54,6 +54,12 @@ public class DomAttr extends DomNamespaceNode implements Attr {
         }
 
         specified_ = specified;
+
+        // the handler is created together with the js object of the element
+        if (page != null && qualifiedName != null && qualifiedName.length() > 2
+                && qualifiedName.regionMatches(true, 0, "on", 0, 2)) {
+            page.addEventListenerType(qualifiedName.substring(2));
+        }
     }
 
     /**
@@ -410,6 +410,7 @@ public class DomElement extends DomNamespaceNode implements Element {
     @Override
     public void removeAttribute(final String attributeName) {
         attributes_.remove(attributeName);
+        invalidateXPathContext();
     }
 
     /**
@@ -511,6 +512,17 @@ public class DomElement extends DomNamespaceNode implements Element {
         if (namespaceURI != null) {
             namespaces_.put(namespaceURI, newAttr.getPrefix());
         }
+        invalidateXPathContext();
+    }
+
+    /**
+     * Invalidates the cached XPath context of the page after an attribute change.
+     */
+    void invalidateXPathContext() {
+        final SgmlPage page = getPage();
+        if (page != null) {
+            page.invalidateXPathContext();
+        }
     }
 
     /**
@@ -657,6 +669,7 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     @Override
     public Attr setAttributeNode(final Attr attribute) {
+        // invalidates the xpath context
         attributes_.setNamedItem(attribute);
         return null;
     }
@@ -1678,7 +1691,9 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Node removeNamedItem(final String name) throws DOMException {
-        return remove(name);
+        final DomAttr removed = remove(name);
+        invalidateXPathContext();
+        return removed;
     }
 
     /**
@@ -1689,7 +1704,9 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
         if (domNode_ == null) {
             return null;
         }
-        return remove(domNode_.getQualifiedName(namespaceURI, fixName(localName)));
+        final DomAttr removed = remove(domNode_.getQualifiedName(namespaceURI, fixName(localName)));
+        invalidateXPathContext();
+        return removed;
     }
 
     /**
@@ -1697,7 +1714,9 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public DomAttr setNamedItem(final Node node) {
-        return put(node.getLocalName(), (DomAttr) node);
+        final DomAttr old = put(node.getLocalName(), (DomAttr) node);
+        invalidateXPathContext();
+        return old;
     }
 
     /**
@@ -1705,7 +1724,15 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Node setNamedItemNS(final Node node) throws DOMException {
-        return put(node.getNodeName(), (DomAttr) node);
+        final DomAttr old = put(node.getNodeName(), (DomAttr) node);
+        invalidateXPathContext();
+        return old;
+    }
+
+    private void invalidateXPathContext() {
+        if (domNode_ != null) {
+            domNode_.invalidateXPathContext();
+        }
     }
 
     /**
@@ -16,6 +16,7 @@ package com.gargoylesoftware.htmlunit.html;
 
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.DOM_NORMALIZE_REMOVE_CHILDREN;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTORALL_NOT_IN_QUIRKS;
+import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.XPATH_SELECTION_NAMESPACES;
 
 import java.io.IOException;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -120,6 +122,21 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     /** The name of the "element" property. Used when watching property change events. */
     public static final String PROPERTY_ELEMENT = "element";
 
+    /** The max number of parsed selectors kept in {@link #SELECTOR_CACHE}. */
+    private static final int SELECTOR_CACHE_SIZE = 500;
+
+    /**
+     * Parsed and validated selectors keyed by browser version, document mode and selector text.
+     * The parsed selectors are never modified, therefore they can be shared by all pages.
+     */
+    private static final Map<String, SelectorList> SELECTOR_CACHE =
+            new LinkedHashMap<String, SelectorList>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, SelectorList> eldest) {
+                    return size() > SELECTOR_CACHE_SIZE;
+                }
+            };
+
     /** The owning page of this node. */
     private SgmlPage page_;
 
@@ -181,6 +198,12 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     private List<DomChangeListener> domListenersList_;
     private Map<String, Object> userData_;
 
+    /** The number of nodes added to or removed from this node or one of its descendants. */
+    private int domChangeCount_;
+
+    /** The number of attribute changes of this node or one of its descendants. */
+    private int attributeChangeCount_;
+
     /**
      * Creates a new instance.
      * @param page the page which contains this node
@@ -1140,6 +1163,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             return; // nothing to do
         }
 
+        if (page_ != null && newPage != null) {
+            newPage.addEventListenerTypes(page_);
+        }
         page_ = newPage;
         for (final DomNode node : getChildren()) {
             node.setPage(newPage);
@@ -1668,13 +1694,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @see #getByXPath(String)
      * @see #getCanonicalXPath()
      */
-    @SuppressWarnings("unchecked")
     public <X> X getFirstByXPath(final String xpathExpr, final PrefixResolver resolver) {
-        final List<?> results = getByXPath(xpathExpr, resolver);
-        if (results.isEmpty()) {
-            return null;
-        }
-        return (X) results.get(0);
+        return XPathHelper.getFirstByXPath(this, xpathExpr, resolver);
     }
 
     /**
@@ -1748,6 +1769,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeAdded(final DomChangeEvent event) {
+        domChangeCount_++;
         final List<DomChangeListener> listeners = safeGetDomListeners();
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
@@ -1824,6 +1846,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeDeleted(final DomChangeEvent event) {
+        domChangeCount_++;
         final List<DomChangeListener> listeners = safeGetDomListeners();
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
@@ -1873,11 +1896,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             final List<DomNode> elements = new ArrayList<>();
             if (selectorList != null) {
                 for (final DomElement child : getDomElementDescendants()) {
-                    for (final Selector selector : selectorList) {
-                        if (CSSStyleSheet.selects(browserVersion, selector, child, null, true)) {
-                            elements.add(child);
-                            break;
-                        }
+                    if (selectsAny(browserVersion, selectorList, child)) {
+                        elements.add(child);
                     }
                 }
             }
@@ -1897,6 +1917,29 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     protected SelectorList getSelectorList(final String selectors, final BrowserVersion browserVersion)
             throws IOException {
+        int documentMode = 9;
+        if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
+            final Object sobj = getPage().getScriptableObject();
+            if (sobj instanceof HTMLDocument) {
+                documentMode = ((HTMLDocument) sobj).getDocumentMode();
+            }
+        }
+
+        final String key = browserVersion.getNickname() + browserVersion.getBrowserVersionNumeric()
+                + '|' + documentMode + '|' + selectors;
+        final SelectorList cached;
+        synchronized (SELECTOR_CACHE) {
+            cached = SELECTOR_CACHE.get(key);
+        }
+        if (cached != null) {
+            // the validation of css3 pseudo classes depends on the state of this node
+            if (browserVersion.hasFeature(QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE)
+                    && !isAttachedToPage() && !hasChildNodes()) {
+                CSSStyleSheet.validateSelectors(cached, documentMode, this);
+            }
+            return cached;
+        }
+
         final CSSOMParser parser = new CSSOMParser(new CSS3Parser());
         final CheckErrorHandler errorHandler = new CheckErrorHandler();
         parser.setErrorHandler(errorHandler);
@@ -1908,19 +1951,32 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         }
 
         if (selectorList != null) {
-            int documentMode = 9;
-            if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
-                final Object sobj = getPage().getScriptableObject();
-                if (sobj instanceof HTMLDocument) {
-                    documentMode = ((HTMLDocument) sobj).getDocumentMode();
-                }
-            }
             CSSStyleSheet.validateSelectors(selectorList, documentMode, this);
 
+            synchronized (SELECTOR_CACHE) {
+                SELECTOR_CACHE.put(key, selectorList);
+            }
         }
         return selectorList;
     }
 
+    /**
+     * Returns true if one of the selectors selects the given element.
+     * @param browserVersion the {@link BrowserVersion}
+     * @param selectorList the selectors
+     * @param element the element to check
+     * @return true if the element is selected
+     */
+    private static boolean selectsAny(final BrowserVersion browserVersion, final SelectorList selectorList,
+            final DomElement element) {
+        for (final Selector selector : selectorList) {
+            if (CSSStyleSheet.selects(browserVersion, selector, element, null, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns the first element within the document that matches the specified group of selectors.
      * @param selectors one or more CSS selectors separated by commas
@@ -1929,11 +1985,23 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     @SuppressWarnings("unchecked")
     public <N extends DomNode> N querySelector(final String selectors) {
-        final DomNodeList<DomNode> list = querySelectorAll(selectors);
-        if (!list.isEmpty()) {
-            return (N) list.get(0);
+        try {
+            final BrowserVersion browserVersion = getPage().getWebClient().getBrowserVersion();
+            final SelectorList selectorList = getSelectorList(selectors, browserVersion);
+
+            if (selectorList != null) {
+                // document order, stop at the first match
+                for (final DomElement child : getDomElementDescendants()) {
+                    if (selectsAny(browserVersion, selectorList, child)) {
+                        return (N) child;
+                    }
+                }
+            }
+            return null;
+        }
+        catch (final IOException e) {
+            throw new CSSException("Error parsing CSS selectors from '" + selectors + "': " + e.getMessage());
         }
-        return null;
     }
 
     /**
@@ -1946,6 +2014,36 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         return attachedToPage_;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter of the nodes added to or removed from this node or one of its descendants.
+     * The counter changes with every {@link DomChangeEvent} fired for this node; caches of the
+     * subtree remember the value they were computed for instead of registering a {@link DomChangeListener}.
+     * @return the counter
+     */
+    public int getDomChangeCount() {
+        return domChangeCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter of the attribute changes of this node or one of its descendants.
+     * The counter changes with every {@link HtmlAttributeChangeEvent} fired for this node.
+     * @return the counter
+     */
+    public int getAttributeChangeCount() {
+        return attributeChangeCount_;
+    }
+
+    /**
+     * Increments the counter of the attribute changes, see {@link #getAttributeChangeCount()}.
+     */
+    protected void incrementAttributeChangeCount() {
+        attributeChangeCount_++;
+    }
+
     /**
      * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
      *
@@ -1956,7 +2054,11 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @see HtmlScript#processImportNode(com.gargoylesoftware.htmlunit.javascript.host.dom.Document)
      */
     public void processImportNode(final com.gargoylesoftware.htmlunit.javascript.host.dom.Document doc) {
-        page_ = (SgmlPage) doc.getDomNodeOrDie();
+        final SgmlPage page = (SgmlPage) doc.getDomNodeOrDie();
+        if (page_ != null) {
+            page.addEventListenerTypes(page_);
+        }
+        page_ = page;
     }
 
     /**
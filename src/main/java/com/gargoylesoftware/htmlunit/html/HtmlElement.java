@@ -227,6 +227,7 @@ public abstract class HtmlElement extends DomElement {
      */
     protected static void notifyAttributeChangeListeners(final HtmlAttributeChangeEvent event,
             final HtmlElement element, final String oldAttributeValue, final boolean notifyMutationObservers) {
+        element.incrementAttributeChangeCount();
         final Collection<HtmlAttributeChangeListener> listeners = element.attributeListeners_;
         if (ATTRIBUTE_NOT_DEFINED == oldAttributeValue) {
             synchronized (listeners) {
@@ -344,6 +345,7 @@ public abstract class HtmlElement extends DomElement {
      * @see #addHtmlAttributeChangeListener(HtmlAttributeChangeListener)
      */
     protected void fireHtmlAttributeAdded(final HtmlAttributeChangeEvent event) {
+        incrementAttributeChangeCount();
         final DomNode parentNode = getParentNode();
         if (parentNode instanceof HtmlElement) {
             ((HtmlElement) parentNode).fireHtmlAttributeAdded(event);
@@ -362,6 +364,7 @@ public abstract class HtmlElement extends DomElement {
      * @see #addHtmlAttributeChangeListener(HtmlAttributeChangeListener)
      */
     protected void fireHtmlAttributeReplaced(final HtmlAttributeChangeEvent event) {
+        incrementAttributeChangeCount();
         final DomNode parentNode = getParentNode();
         if (parentNode instanceof HtmlElement) {
             ((HtmlElement) parentNode).fireHtmlAttributeReplaced(event);
@@ -380,6 +383,7 @@ public abstract class HtmlElement extends DomElement {
      * @see #addHtmlAttributeChangeListener(HtmlAttributeChangeListener)
      */
     protected void fireHtmlAttributeRemoved(final HtmlAttributeChangeEvent event) {
+        incrementAttributeChangeCount();
         synchronized (attributeListeners_) {
             for (final HtmlAttributeChangeListener listener : attributeListeners_) {
                 listener.attributeRemoved(event);
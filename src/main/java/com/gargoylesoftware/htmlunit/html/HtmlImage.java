@@ -542,11 +542,8 @@ public class HtmlImage extends HtmlElement {
                 if (!(browser.hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY)
                         && StringUtils.isBlank(src))) {
                     final URL url = page.getFullyQualifiedUrl(src);
-                    final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
-                                                                    browser.getAcceptEncodingHeader());
-                    request.setCharset(page.getCharset());
-                    request.setRefererlHeader(page.getUrl());
-                    imageWebResponse_ = webClient.loadWebResponse(request);
+                    final WebRequest request = createWebRequest(page, url);
+                    imageWebResponse_ = page.loadResourceWebResponse(request);
                 }
             }
 
@@ -563,6 +560,21 @@ public class HtmlImage extends HtmlElement {
         }
     }
 
+    /**
+     * Creates the request to download an image of the given page.
+     * @param page the page
+     * @param url the url of the image
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
+        final BrowserVersion browser = page.getWebClient().getBrowserVersion();
+        final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
+                                                        browser.getAcceptEncodingHeader());
+        request.setCharset(page.getCharset());
+        request.setRefererlHeader(page.getUrl());
+        return request;
+    }
+
     private void readImageIfNeeded() throws IOException {
         downloadImageIfNeeded();
         if (imageData_ == null) {
@@ -197,7 +197,7 @@ public class HtmlLink extends HtmlElement {
 
         if (downloadIfNeeded) {
             try {
-                final WebResponse response = webclient.loadWebResponse(request);
+                final WebResponse response = ((HtmlPage) getPage()).loadResourceWebResponse(request);
                 final int statusCode = response.getStatusCode();
                 final boolean successful = statusCode >= HttpStatus.SC_OK
                                                 && statusCode < HttpStatus.SC_MULTIPLE_CHOICES;
@@ -216,7 +216,7 @@ public class HtmlLink extends HtmlElement {
         }
 
         // retrieve the response, from the cache if available
-        return webclient.getCache().getCachedResponse(request);
+        return webclient.getCache().getCachedResponse(request, webclient.getOptions().getMaxInMemory());
     }
 
     /**
@@ -227,7 +227,16 @@ public class HtmlLink extends HtmlElement {
     public WebRequest getWebRequest() throws MalformedURLException {
         final HtmlPage page = (HtmlPage) getPage();
         final URL url = page.getFullyQualifiedUrl(getHrefAttribute());
+        return createWebRequest(page, url);
+    }
 
+    /**
+     * Creates the request to retrieve a stylesheet of the given page.
+     * @param page the page
+     * @param url the url of the stylesheet
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
         final BrowserVersion browser = page.getWebClient().getBrowserVersion();
         final WebRequest request = new WebRequest(url, browser.getCssAcceptHeader(), browser.getAcceptEncodingHeader());
         // use the page encoding even if this is a GET requests
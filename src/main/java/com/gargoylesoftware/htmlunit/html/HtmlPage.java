@@ -167,6 +167,7 @@ public class HtmlPage extends SgmlPage {
     private int snippetParserCount_;
     private int inlineSnippetParserCount_;
     private Collection<HtmlAttributeChangeListener> attributeListeners_;
+    private Map<String, Integer> attributeChangeCounts_ = new HashMap<>();
     private List<PostponedAction> afterLoadActions_ = Collections.synchronizedList(new ArrayList<PostponedAction>());
     private boolean cleaning_;
     private HtmlBase base_;
@@ -175,6 +176,7 @@ public class HtmlPage extends SgmlPage {
     private ElementFromPointHandler elementFromPointHandler_;
     private DomElement elementWithFocus_;
     private List<Range> selectionRanges_ = new ArrayList<>(3);
+    private transient volatile ResourcePreloader resourcePreloader_;
 
     private static final List<String> TABBABLE_TAGS = Arrays.asList(HtmlAnchor.TAG_NAME, HtmlArea.TAG_NAME,
             HtmlButton.TAG_NAME, HtmlInput.TAG_NAME, HtmlObject.TAG_NAME, HtmlSelect.TAG_NAME, HtmlTextArea.TAG_NAME);
@@ -349,6 +351,10 @@ public class HtmlPage extends SgmlPage {
         super.cleanUp();
         executeEventHandlersIfNeeded(Event.TYPE_UNLOAD);
         deregisterFramesIfNeeded();
+        if (resourcePreloader_ != null) {
+            resourcePreloader_.cleanUp();
+            resourcePreloader_ = null;
+        }
         cleaning_ = false;
         if (autoCloseableList_ != null) {
             for (final AutoCloseable closeable : new ArrayList<>(autoCloseableList_)) {
@@ -1023,6 +1029,72 @@ public class HtmlPage extends SgmlPage {
         return JavaScriptLoadResult.SUCCESS;
     }
 
+    /**
+     * Creates the request used to load an external script.
+     * @param url the URL of the script
+     * @return the request
+     */
+    WebRequest createScriptWebRequest(final URL url) {
+        final WebRequest referringRequest = getWebResponse().getWebRequest();
+
+        final WebRequest request = new WebRequest(url);
+        // copy all headers from the referring request
+        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
+        // at least overwrite this headers
+        request.setAdditionalHeader(HttpHeader.ACCEPT, getWebClient().getBrowserVersion().getScriptAcceptHeader());
+        request.setRefererlHeader(referringRequest.getUrl());
+        return request;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Starts loading the external resources referenced by the given source in the background
+     * if enabled (see {@link com.gargoylesoftware.htmlunit.WebClientOptions#setPreloadEnabled(boolean)}).
+     * @param source the source of this page
+     */
+    public void preloadResources(final String source) {
+        if (!getWebClient().getOptions().isPreloadEnabled()) {
+            return;
+        }
+        getOrCreateResourcePreloader().scan(source);
+    }
+
+    private synchronized ResourcePreloader getOrCreateResourcePreloader() {
+        if (resourcePreloader_ == null) {
+            resourcePreloader_ = new ResourcePreloader(this);
+        }
+        return resourcePreloader_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Loads the response for a resource of this page. The response preloaded while parsing is used if available,
+     * otherwise this is the same as {@link WebClient#loadWebResponse(WebRequest)}.
+     * @param request the request
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    public WebResponse loadResourceWebResponse(final WebRequest request) throws IOException {
+        final ResourcePreloader preloader = resourcePreloader_;
+        if (preloader != null) {
+            final WebResponse response = preloader.getResponse(request);
+            if (response != null) {
+                return response;
+            }
+        }
+        return getWebClient().loadWebResponse(request);
+    }
+
+    /**
+     * Returns the preloader of this page.
+     * @return the preloader or {@code null} if nothing was preloaded
+     */
+    ResourcePreloader getResourcePreloader() {
+        return resourcePreloader_;
+    }
+
     /**
      * Loads JavaScript from the specified URL. This method may return {@code null} if
      * there is a problem loading the code from the specified URL.
@@ -1038,25 +1110,18 @@ public class HtmlPage extends SgmlPage {
     private Object loadJavaScriptFromUrl(final URL url, final Charset scriptCharset) throws IOException,
         FailingHttpStatusCodeException {
 
-        final WebRequest referringRequest = getWebResponse().getWebRequest();
-
         final WebClient client = getWebClient();
-        final WebRequest request = new WebRequest(url);
-        // copy all headers from the referring request
-        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
-        // at least overwrite this headers
-        request.setAdditionalHeader(HttpHeader.ACCEPT, client.getBrowserVersion().getScriptAcceptHeader());
-        request.setRefererlHeader(referringRequest.getUrl());
+        final WebRequest request = createScriptWebRequest(url);
 
         // our cache is a bit strange;
         // loadWebResponse check the cache for the web response
         // AND also fixes the request url for the following cache lookups
-        final WebResponse response = client.loadWebResponse(request);
+        final WebResponse response = loadResourceWebResponse(request);
 
         // now we can look into the cache with the fixed request for
         // a cached script
         final Cache cache = client.getCache();
-        final Object cachedScript = cache.getCachedObject(request);
+        final Object cachedScript = cache.getCachedObject(request, client.getOptions().getMaxInMemory());
         if (cachedScript instanceof Script) {
             return cachedScript;
         }
@@ -1913,17 +1978,49 @@ public class HtmlPage extends SgmlPage {
      *         {@link WebClient#setThrowExceptionOnFailingStatusCode(boolean)} is set to {@code true}
      */
     void loadFrames() throws FailingHttpStatusCodeException {
-        for (final FrameWindow w : getFrames()) {
-            final BaseFrameElement frame = w.getFrameElement();
-            // test if the frame should really be loaded:
-            // if a script has already changed its content, it should be skipped
-            // use == and not equals(...) to identify initial content (versus URL set to "about:blank")
-            if (frame.getEnclosedWindow() != null
-                    && UrlUtils.URL_ABOUT_BLANK == frame.getEnclosedPage().getUrl()
-                    && !frame.isContentLoaded()) {
-                frame.loadInnerPage();
+        final List<FrameWindow> frames = getFrames();
+        final List<WebRequest> preloaded = new ArrayList<>();
+        if (frames.size() > 1 && getWebClient().getOptions().isParallelFrameLoadingEnabled()) {
+            // only the download is done in parallel, the pages are initialized one after the other
+            for (final FrameWindow w : frames) {
+                final BaseFrameElement frame = w.getFrameElement();
+                if (isFrameToLoad(frame)) {
+                    final WebRequest request = frame.getInnerPageRequest();
+                    if (request != null) {
+                        getOrCreateResourcePreloader().preload(request);
+                        preloaded.add(request);
+                    }
+                }
             }
         }
+
+        try {
+            for (final FrameWindow w : frames) {
+                final BaseFrameElement frame = w.getFrameElement();
+                if (isFrameToLoad(frame)) {
+                    frame.loadInnerPage();
+                }
+            }
+        }
+        finally {
+            final ResourcePreloader preloader = resourcePreloader_;
+            if (preloader != null) {
+                for (final WebRequest request : preloaded) {
+                    preloader.discard(request);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests if the frame should really be loaded:
+     * if a script has already changed its content, it should be skipped.
+     */
+    private static boolean isFrameToLoad(final BaseFrameElement frame) {
+        // use == and not equals(...) to identify initial content (versus URL set to "about:blank")
+        return frame.getEnclosedWindow() != null
+                && UrlUtils.URL_ABOUT_BLANK == frame.getEnclosedPage().getUrl()
+                && !frame.isContentLoaded();
     }
 
     /**
@@ -1969,9 +2066,11 @@ public class HtmlPage extends SgmlPage {
     protected HtmlPage clone() {
         final HtmlPage result = (HtmlPage) super.clone();
         result.elementWithFocus_ = null;
+        result.resourcePreloader_ = null;
 
         result.idMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
         result.nameMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
+        result.attributeChangeCounts_ = new HashMap<>();
 
         return result;
     }
@@ -2042,6 +2141,7 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeAdded(final HtmlAttributeChangeEvent event) {
+        countAttributeChange(event);
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2055,6 +2155,7 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeReplaced(final HtmlAttributeChangeEvent event) {
+        countAttributeChange(event);
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2068,6 +2169,7 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeRemoved(final HtmlAttributeChangeEvent event) {
+        countAttributeChange(event);
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2076,6 +2178,29 @@ public class HtmlPage extends SgmlPage {
         }
     }
 
+    private void countAttributeChange(final HtmlAttributeChangeEvent event) {
+        incrementAttributeChangeCount();
+        synchronized (lock_) {
+            attributeChangeCounts_.merge(event.getName(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter of the changes of the attributes with the given name of all the elements of this page.
+     * This allows caches depending only on some attributes to ignore the other changes counted
+     * by {@link #getAttributeChangeCount()}.
+     * @param name the name of the attribute
+     * @return the counter
+     */
+    public int getAttributeChangeCount(final String name) {
+        synchronized (lock_) {
+            final Integer count = attributeChangeCounts_.get(name);
+            return count == null ? 0 : count;
+        }
+    }
+
     private List<HtmlAttributeChangeListener> safeGetAttributeListeners() {
         synchronized (lock_) {
             if (attributeListeners_ != null) {
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.HttpHeader;
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebClientOptions;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * A simple scanner looking ahead in the source of a page for the external scripts, stylesheets and
+ * images. The resources found are requested in parallel using the executor of the {@link WebClient};
+ * the elements pick up the responses when they are processed by the parser, therefore the usual
+ * execution order of the scripts is not changed.
+ *
+ * @see WebClientOptions#setPreloadEnabled(boolean)
+ */
+public final class ResourcePreloader {
+
+    private static final Log LOG = LogFactory.getLog(ResourcePreloader.class);
+
+    /** Elements having a text content that is not parsed. */
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(Arrays.asList(
+            HtmlScript.TAG_NAME, HtmlStyle.TAG_NAME, HtmlTextArea.TAG_NAME, HtmlTitle.TAG_NAME,
+            HtmlExample.TAG_NAME, HtmlInlineFrame.TAG_NAME, HtmlNoEmbed.TAG_NAME, HtmlNoFrames.TAG_NAME));
+
+    private final HtmlPage page_;
+    private final Map<String, Preload> responses_ = new HashMap<>();
+    private final Map<String, Integer> runningPerHost_ = new HashMap<>();
+    private final Map<String, Deque<FutureTask<WebResponse>>> queuedPerHost_ = new HashMap<>();
+    private boolean closed_;
+
+    /**
+     * Creates a new instance.
+     * @param page the page the resources are loaded for
+     */
+    public ResourcePreloader(final HtmlPage page) {
+        page_ = page;
+    }
+
+    /**
+     * Scans the given source for external resources and starts loading them.
+     * @param source the source of the page
+     */
+    public void scan(final String source) {
+        final WebClient client = page_.getWebClient();
+        final WebClientOptions options = client.getOptions();
+        final boolean javaScriptEnabled = client.isJavaScriptEnabled();
+
+        URL baseUrl = page_.getUrl();
+        boolean baseFound = false;
+
+        final int length = source.length();
+        int pos = source.indexOf('<');
+        while (pos != -1 && pos < length - 1) {
+            if (source.startsWith("<!--", pos)) {
+                final int end = source.indexOf("-->", pos + 4);
+                if (end == -1) {
+                    return;
+                }
+                pos = source.indexOf('<', end + 3);
+                continue;
+            }
+
+            int i = pos + 1;
+            if (!Character.isLetter(source.charAt(i))) {
+                pos = source.indexOf('<', i);
+                continue;
+            }
+            while (i < length && isNameChar(source.charAt(i))) {
+                i++;
+            }
+            final String tagName = source.substring(pos + 1, i).toLowerCase(Locale.ROOT);
+
+            // attributes
+            final Map<String, String> attributes = new HashMap<>();
+            while (i < length) {
+                char ch = source.charAt(i);
+                if (ch == '>') {
+                    break;
+                }
+                if (Character.isWhitespace(ch) || ch == '/') {
+                    i++;
+                    continue;
+                }
+
+                final int nameStart = i;
+                while (i < length && !Character.isWhitespace(source.charAt(i))
+                        && "=>/".indexOf(source.charAt(i)) == -1) {
+                    i++;
+                }
+                final String name = source.substring(nameStart, i).toLowerCase(Locale.ROOT);
+                while (i < length && Character.isWhitespace(source.charAt(i))) {
+                    i++;
+                }
+                String value = "";
+                if (i < length && source.charAt(i) == '=') {
+                    i++;
+                    while (i < length && Character.isWhitespace(source.charAt(i))) {
+                        i++;
+                    }
+                    if (i < length) {
+                        ch = source.charAt(i);
+                        if (ch == '"' || ch == '\'') {
+                            final int end = source.indexOf(ch, i + 1);
+                            if (end == -1) {
+                                return;
+                            }
+                            value = source.substring(i + 1, end);
+                            i = end + 1;
+                        }
+                        else {
+                            final int valueStart = i;
+                            while (i < length && !Character.isWhitespace(source.charAt(i))
+                                    && source.charAt(i) != '>') {
+                                i++;
+                            }
+                            value = source.substring(valueStart, i);
+                        }
+                    }
+                }
+                if (!attributes.containsKey(name)) {
+                    attributes.put(name, decode(value));
+                }
+            }
+
+            try {
+                switch (tagName) {
+                    case HtmlBase.TAG_NAME:
+                        final String href = attributes.get("href");
+                        if (!baseFound && href != null) {
+                            baseFound = true;
+                            baseUrl = WebClient.expandUrl(baseUrl, href);
+                        }
+                        break;
+
+                    case HtmlScript.TAG_NAME:
+                        final String src = attributes.get("src");
+                        if (javaScriptEnabled && StringUtils.isNotBlank(src)
+                                && isJavaScript(attributes.get("type"))) {
+                            preload(page_.createScriptWebRequest(WebClient.expandUrl(baseUrl, src)));
+                        }
+                        break;
+
+                    case HtmlLink.TAG_NAME:
+                        final String linkHref = attributes.get("href");
+                        if (options.isCssEnabled() && StringUtils.isNotBlank(linkHref)
+                                && "stylesheet".equalsIgnoreCase(StringUtils.trim(attributes.get("rel")))) {
+                            preload(HtmlLink.createWebRequest(page_, WebClient.expandUrl(baseUrl, linkHref)));
+                        }
+                        break;
+
+                    case HtmlImage.TAG_NAME:
+                        final String imgSrc = attributes.get("src");
+                        if (options.isDownloadImages() && StringUtils.isNotBlank(imgSrc)) {
+                            preload(HtmlImage.createWebRequest(page_, WebClient.expandUrl(baseUrl, imgSrc)));
+                        }
+                        break;
+
+                    case HtmlPlainText.TAG_NAME:
+                        return;
+
+                    default:
+                }
+            }
+            catch (final MalformedURLException e) {
+                // ignore, the element reports this later
+            }
+
+            if (RAW_TEXT_ELEMENTS.contains(tagName)
+                    || (javaScriptEnabled && HtmlNoScript.TAG_NAME.equals(tagName))) {
+                i = findEndTag(source, tagName, i);
+                if (i == -1) {
+                    return;
+                }
+            }
+            pos = source.indexOf('<', i);
+        }
+    }
+
+    private static boolean isNameChar(final char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '-' || ch == ':' || ch == '_';
+    }
+
+    private static boolean isJavaScript(final String type) {
+        return StringUtils.isBlank(type) || MimeType.isJavascriptMimeType(type.trim());
+    }
+
+    /**
+     * Returns the position of the start of the end tag or -1.
+     */
+    private static int findEndTag(final String source, final String tagName, final int from) {
+        int pos = source.indexOf("</", from);
+        while (pos != -1) {
+            if (source.regionMatches(true, pos + 2, tagName, 0, tagName.length())) {
+                return pos;
+            }
+            pos = source.indexOf("</", pos + 2);
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the character references used most often in urls.
+     */
+    private static String decode(final String value) {
+        if (value.indexOf('&') == -1) {
+            return value;
+        }
+        return value.replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&apos;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&amp;", "&");
+    }
+
+    /**
+     * Starts loading the given request in the background; the number of parallel requests
+     * per host is limited (see {@link WebClientOptions#setMaxPreloadRequestsPerHost(int)}).
+     * A copy of the request is loaded, the given one is not changed. Only GET requests are preloaded.
+     * @param request the request
+     */
+    synchronized void preload(final WebRequest request) {
+        if (request.getHttpMethod() != HttpMethod.GET) {
+            return;
+        }
+        final String key = key(request);
+        if (closed_ || responses_.containsKey(key)) {
+            return;
+        }
+        final String protocol = request.getUrl().getProtocol();
+        if (!"http".equals(protocol) && !"https".equals(protocol)) {
+            return;
+        }
+
+        final String host = request.getUrl().getHost();
+        final Preload preload = new Preload(copy(request), host);
+        responses_.put(key, preload);
+
+        final int running = runningPerHost_.getOrDefault(host, 0);
+        if (running < page_.getWebClient().getOptions().getMaxPreloadRequestsPerHost()) {
+            if (execute(preload.task_)) {
+                runningPerHost_.put(host, running + 1);
+            }
+        }
+        else {
+            queuedPerHost_.computeIfAbsent(host, h -> new ArrayDeque<>()).add(preload.task_);
+        }
+    }
+
+    /**
+     * Loading the request modifies it (e.g. the default headers are added).
+     */
+    private static WebRequest copy(final WebRequest request) {
+        final WebRequest copy = new WebRequest(request.getUrl(), request.getHttpMethod());
+        copy.setAdditionalHeaders(new HashMap<>(request.getAdditionalHeaders()));
+        copy.setCharset(request.getCharset());
+        copy.setCredentials(request.getCredentials());
+        copy.setProxyHost(request.getProxyHost());
+        copy.setProxyPort(request.getProxyPort());
+        copy.setSocksProxy(request.isSocksProxy());
+        copy.setTimeout(request.getTimeout());
+        for (final WebRequest.HttpHint hint : WebRequest.HttpHint.values()) {
+            if (request.hasHint(hint)) {
+                copy.addHint(hint);
+            }
+        }
+        return copy;
+    }
+
+    private boolean execute(final FutureTask<WebResponse> task) {
+        try {
+            page_.getWebClient().getExecutor().execute(task);
+            return true;
+        }
+        catch (final RejectedExecutionException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Preloading rejected", e);
+            }
+            // the waiting callers will load the resource themselves
+            task.cancel(false);
+            return false;
+        }
+    }
+
+    /**
+     * Starts the next queued request of the host, if any.
+     */
+    private synchronized void finished(final String host) {
+        final Deque<FutureTask<WebResponse>> queue = queuedPerHost_.get(host);
+        if (queue != null && !closed_) {
+            for (FutureTask<WebResponse> next = queue.poll(); next != null; next = queue.poll()) {
+                // cancelled tasks are not executed and would not start their successor
+                if (!next.isDone() && execute(next)) {
+                    return;
+                }
+            }
+        }
+        runningPerHost_.put(host, runningPerHost_.getOrDefault(host, 1) - 1);
+    }
+
+    /**
+     * Returns the preloaded response for the given request, waiting if the download is still in progress.
+     * Every response is only returned once.
+     * The url of the request is updated like {@link WebClient#loadWebResponse(WebRequest)} does.
+     * @param request the request
+     * @return the response or {@code null} if the resource was not preloaded or the download failed
+     */
+    WebResponse getResponse(final WebRequest request) {
+        final FutureTask<WebResponse> task;
+        synchronized (this) {
+            if (closed_) {
+                return null;
+            }
+            final Preload preload = responses_.remove(key(request));
+            if (preload == null) {
+                return null;
+            }
+            task = preload.task_;
+        }
+
+        try {
+            final WebResponse response = task.get();
+            request.setUrl(response.getWebRequest().getUrl());
+            return response;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (final CancellationException e) {
+            // the caller will load the resource
+        }
+        catch (final ExecutionException e) {
+            // the caller will try again and report the problem
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Preloading of " + request.getUrl() + " failed", e.getCause());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discards the preloaded response for the given request if it was not taken so far.
+     * @param request the request
+     */
+    void discard(final WebRequest request) {
+        final Preload preload;
+        synchronized (this) {
+            preload = responses_.remove(key(request));
+        }
+        if (preload != null) {
+            release(preload);
+        }
+    }
+
+    /**
+     * Returns the number of preloaded responses not taken so far.
+     * @return the number of responses
+     */
+    public synchronized int getPendingCount() {
+        return responses_.size();
+    }
+
+    /**
+     * Cancels the pending downloads and releases the responses not used.
+     */
+    public void cleanUp() {
+        final List<Preload> preloads;
+        synchronized (this) {
+            closed_ = true;
+            preloads = new ArrayList<>(responses_.values());
+            responses_.clear();
+        }
+        for (final Preload preload : preloads) {
+            release(preload);
+        }
+    }
+
+    private void release(final Preload preload) {
+        final boolean loaded;
+        synchronized (this) {
+            preload.discarded_ = true;
+            loaded = preload.loaded_;
+        }
+        if (!loaded) {
+            // either not started or the running task releases the response itself
+            preload.task_.cancel(false);
+            return;
+        }
+
+        try {
+            preload.task_.get().cleanUp();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (final CancellationException | ExecutionException e) {
+            // ignore
+        }
+    }
+
+    private static String key(final WebRequest request) {
+        // the method is part of the key, a POST to the url of a preloaded GET is not answered from here
+        return request.getHttpMethod().name() + ' ' + request.getAdditionalHeaders().get(HttpHeader.ACCEPT)
+                + ' ' + request.getUrl().toExternalForm();
+    }
+
+    /**
+     * The background download of one resource.
+     */
+    private final class Preload implements Callable<WebResponse> {
+        private final WebRequest request_;
+        private final String host_;
+        private final FutureTask<WebResponse> task_ = new FutureTask<>(this);
+
+        // guarded by the preloader
+        private boolean discarded_;
+        private boolean loaded_;
+
+        Preload(final WebRequest request, final String host) {
+            request_ = request;
+            host_ = host;
+        }
+
+        @Override
+        public WebResponse call() throws Exception {
+            try {
+                final WebResponse response = page_.getWebClient().loadWebResponse(request_);
+                synchronized (ResourcePreloader.this) {
+                    if (closed_ || discarded_) {
+                        response.cleanUp();
+                    }
+                    else {
+                        loaded_ = true;
+                    }
+                }
+                return response;
+            }
+            finally {
+                finished(host_);
+            }
+        }
+    }
+}
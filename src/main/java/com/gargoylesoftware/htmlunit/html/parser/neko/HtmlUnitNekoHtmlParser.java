@@ -196,6 +196,10 @@ public final class HtmlUnitNekoHtmlParser implements HTMLParser {
             throw new ObjectInstantiationException("Error setting HTML parser feature", e);
         }
 
+        if (page.getWebClient().getOptions().isPreloadEnabled()) {
+            page.preloadResources(webResponse.getContentAsString(charset));
+        }
+
         try (InputStream content = webResponse.getContentAsStream()) {
             String encoding = null;
             if (charset != null) {
@@ -0,0 +1,801 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html.xpath;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+import com.gargoylesoftware.htmlunit.SgmlPage;
+import com.gargoylesoftware.htmlunit.html.DomAttr;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.html.DomText;
+import com.gargoylesoftware.htmlunit.html.Html;
+import com.gargoylesoftware.htmlunit.html.XHtmlPage;
+
+/**
+ * Evaluates the common subset of XPath 1.0 location paths directly on the DOM of
+ * html pages, without building the DTM view of the document required by Xalan.
+ *
+ * <p>Supported are absolute and relative paths using the child ({@code /}) and
+ * descendant ({@code //}) axes, name tests and {@code *}, a final {@code text()} or
+ * {@code @name} step and predicates made of positions, {@code last()}, {@code and},
+ * {@code or}, {@code not()}, existence and (in)equality tests of {@code @name},
+ * {@code text()} and {@code .} and the functions {@code contains()} and {@code starts-with()}.
+ * For every other expression {@link #parse(String)} returns {@code null} and the caller
+ * has to use Xalan; the same is true for {@link #evaluate(DomNode, boolean)} if the
+ * evaluation reaches an element outside of the html namespace.</p>
+ */
+final class NativeXPathEvaluator {
+
+    /** The max number of parsed expressions kept. */
+    private static final int MAX_EXPRESSIONS = 200;
+
+    /** Marker for expressions not supported by this evaluator. */
+    private static final NativeXPathEvaluator UNSUPPORTED = new NativeXPathEvaluator(false, new Step[0]);
+
+    private static final Map<String, NativeXPathEvaluator> EXPRESSIONS_ =
+            new LinkedHashMap<String, NativeXPathEvaluator>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, NativeXPathEvaluator> eldest) {
+                    return size() > MAX_EXPRESSIONS;
+                }
+            };
+
+    private final boolean absolute_;
+    private final Step[] steps_;
+
+    private NativeXPathEvaluator(final boolean absolute, final Step[] steps) {
+        absolute_ = absolute;
+        steps_ = steps;
+    }
+
+    /**
+     * Returns whether the native evaluation is possible for the given context node.
+     * Only html pages are supported because of the case insensitive name handling
+     * and the stripping of the default namespace.
+     * @param contextNode the context node
+     * @return true if the native evaluator can be used
+     */
+    static boolean isSupported(final DomNode contextNode) {
+        final SgmlPage page = contextNode.getPage();
+        return page != null && page.isHtmlPage() && !(page instanceof XHtmlPage)
+                && (contextNode instanceof DomElement || contextNode == page);
+    }
+
+    /**
+     * Returns the evaluator for the given expression.
+     * @param expression the (not preprocessed) expression
+     * @return the evaluator or {@code null} if the expression is not supported
+     */
+    static NativeXPathEvaluator parse(final String expression) {
+        NativeXPathEvaluator evaluator;
+        synchronized (EXPRESSIONS_) {
+            evaluator = EXPRESSIONS_.get(expression);
+        }
+        if (evaluator == null) {
+            final String preprocessed = XPathAdapter.preProcessXPath(expression, false);
+            evaluator = new Parser(preprocessed).parse();
+            if (evaluator == null) {
+                evaluator = UNSUPPORTED;
+            }
+            synchronized (EXPRESSIONS_) {
+                EXPRESSIONS_.put(expression, evaluator);
+            }
+        }
+        if (evaluator == UNSUPPORTED) {
+            return null;
+        }
+        return evaluator;
+    }
+
+    /**
+     * Evaluates the expression.
+     * @param contextNode the context node
+     * @param firstOnly whether to stop at the first match
+     * @param <T> the type of the result
+     * @return the matching nodes in document order or {@code null} if an element outside
+     *         of the html namespace (like inline svg) was found; the caller has to use Xalan
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> evaluate(final DomNode contextNode, final boolean firstOnly) {
+        DomNode start = contextNode;
+        if (absolute_) {
+            while (start.getParentNode() != null) {
+                start = start.getParentNode();
+            }
+        }
+
+        if (isForeignElement(start)) {
+            return null;
+        }
+
+        final List<T> result = new ArrayList<>();
+        final Step last = steps_[steps_.length - 1];
+        DomNode node = start.getFirstChild();
+        while (node != null) {
+            if (isForeignElement(node)) {
+                // the name tests of Xalan are namespace aware
+                return null;
+            }
+            if (last.kind_ == Step.ATTRIBUTE) {
+                if (node instanceof DomElement && matches(node, steps_.length - 2, start)) {
+                    final DomAttr attr = last.getAttribute((DomElement) node);
+                    if (attr != null) {
+                        result.add((T) attr);
+                        if (firstOnly) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            else if (matches(node, steps_.length - 1, start)) {
+                result.add((T) node);
+                if (firstOnly) {
+                    return result;
+                }
+            }
+            node = next(node, start);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the next node of the subtree of root in document order.
+     */
+    private static DomNode next(final DomNode node, final DomNode root) {
+        final DomNode child = node.getFirstChild();
+        if (child != null) {
+            return child;
+        }
+        DomNode current = node;
+        while (current != null && current != root) {
+            final DomNode sibling = current.getNextSibling();
+            if (sibling != null) {
+                return sibling;
+            }
+            current = current.getParentNode();
+        }
+        return null;
+    }
+
+    /**
+     * Whether the node is selected by the location path up to (including) the given step.
+     */
+    private boolean matches(final DomNode node, final int stepIndex, final DomNode start) {
+        final Step step = steps_[stepIndex];
+        if (!step.test(node)) {
+            return false;
+        }
+
+        DomNode parent = node.getParentNode();
+        if (!step.descendant_) {
+            if (stepIndex == 0) {
+                return parent == start;
+            }
+            return parent != null && parent != start && matches(parent, stepIndex - 1, start);
+        }
+
+        if (stepIndex == 0) {
+            // we are only iterating over the descendants of start
+            return true;
+        }
+        while (parent != null && parent != start) {
+            if (matches(parent, stepIndex - 1, start)) {
+                return true;
+            }
+            parent = parent.getParentNode();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the string value of the node.
+     */
+    private static String stringValue(final DomNode node) {
+        final StringBuilder builder = new StringBuilder();
+        DomNode current = node.getFirstChild();
+        while (current != null) {
+            if (current instanceof DomText) {
+                builder.append(((DomText) current).getData());
+            }
+            current = next(current, node);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the value of the text node together with all adjacent text nodes following it;
+     * Xalan treats them as one.
+     */
+    private static String textValue(final DomText text) {
+        DomNode sibling = text.getNextSibling();
+        if (!(sibling instanceof DomText)) {
+            return text.getData();
+        }
+
+        final StringBuilder builder = new StringBuilder(text.getData());
+        while (sibling instanceof DomText) {
+            builder.append(((DomText) sibling).getData());
+            sibling = sibling.getNextSibling();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Whether the node is the first one of a sequence of adjacent text nodes.
+     */
+    private static boolean isFirstText(final DomNode node) {
+        return node instanceof DomText && !(node.getPreviousSibling() instanceof DomText);
+    }
+
+    private static boolean isForeignElement(final DomNode node) {
+        return node instanceof DomElement && !isDefaultNamespace(((DomElement) node).getNamespaceURI());
+    }
+
+    private static boolean isDefaultNamespace(final String namespaceURI) {
+        return namespaceURI == null || Html.XHTML_NAMESPACE.equals(namespaceURI);
+    }
+
+    /**
+     * One location step.
+     */
+    private static final class Step {
+        static final int ELEMENT = 0;
+        static final int TEXT = 1;
+        static final int ATTRIBUTE = 2;
+
+        private final boolean descendant_;
+        private final int kind_;
+        /** The name to match or {@code null} for any element. */
+        private final String name_;
+        private final List<StepPredicate> predicates_ = new ArrayList<>();
+
+        Step(final boolean descendant, final int kind, final String name) {
+            descendant_ = descendant;
+            kind_ = kind;
+            name_ = name;
+        }
+
+        boolean test(final DomNode node) {
+            if (kind_ == TEXT) {
+                return isFirstText(node);
+            }
+            if (!(node instanceof DomElement)) {
+                return false;
+            }
+            if (name_ != null) {
+                final DomElement element = (DomElement) node;
+                if (!name_.equalsIgnoreCase(element.getLocalName()) || !isDefaultNamespace(element.getNamespaceURI())) {
+                    return false;
+                }
+            }
+            return testPredicates(node, predicates_.size());
+        }
+
+        /**
+         * Whether the element satisfies the first count predicates.
+         */
+        boolean testPredicates(final DomNode node, final int count) {
+            for (int i = 0; i < count; i++) {
+                if (!predicates_.get(i).test(this, i, node)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether the sibling passes the name test and the predicates before the given one;
+         * these are the nodes counted for the position.
+         */
+        boolean isCounted(final DomNode sibling, final int predicateIndex) {
+            if (!(sibling instanceof DomElement)) {
+                return false;
+            }
+            if (name_ != null) {
+                final DomElement element = (DomElement) sibling;
+                if (!name_.equalsIgnoreCase(element.getLocalName()) || !isDefaultNamespace(element.getNamespaceURI())) {
+                    return false;
+                }
+            }
+            return testPredicates(sibling, predicateIndex);
+        }
+
+        DomAttr getAttribute(final DomElement element) {
+            return findAttribute(element, name_);
+        }
+    }
+
+    /**
+     * Returns the attribute having the given (lower case) local name and no namespace.
+     */
+    private static DomAttr findAttribute(final DomElement element, final String name) {
+        for (final DomAttr attr : element.getAttributesMap().values()) {
+            final String qualifiedName = attr.getQualifiedName();
+            if (name.equals(attr.getLowercaseName()) && isDefaultNamespace(attr.getNamespaceURI())
+                    && !"xmlns".equals(qualifiedName) && !qualifiedName.startsWith("xmlns:")) {
+                return attr;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A predicate of a step.
+     */
+    private interface StepPredicate {
+        /**
+         * @param step the step
+         * @param index the index of this predicate
+         * @param node the node to test
+         * @return the result
+         */
+        boolean test(Step step, int index, DomNode node);
+    }
+
+    /**
+     * Predicate {@code [n]}.
+     */
+    private static final class PositionPredicate implements StepPredicate {
+        private final int position_;
+
+        PositionPredicate(final int position) {
+            position_ = position;
+        }
+
+        @Override
+        public boolean test(final Step step, final int index, final DomNode node) {
+            int count = 1;
+            for (DomNode sibling = node.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+                if (step.isCounted(sibling, index)) {
+                    count++;
+                    if (count > position_) {
+                        return false;
+                    }
+                }
+            }
+            return count == position_;
+        }
+    }
+
+    /**
+     * Predicate {@code [last()]}.
+     */
+    private static final class LastPredicate implements StepPredicate {
+        @Override
+        public boolean test(final Step step, final int index, final DomNode node) {
+            for (DomNode sibling = node.getNextSibling(); sibling != null; sibling = sibling.getNextSibling()) {
+                if (step.isCounted(sibling, index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A predicate made of a boolean expression that does not depend on the position.
+     */
+    private static final class BooleanPredicate implements StepPredicate {
+        private final Condition condition_;
+
+        BooleanPredicate(final Condition condition) {
+            condition_ = condition;
+        }
+
+        @Override
+        public boolean test(final Step step, final int index, final DomNode node) {
+            return condition_.test((DomElement) node);
+        }
+    }
+
+    /**
+     * A boolean expression.
+     */
+    private interface Condition {
+        /**
+         * @param element the context element
+         * @return the result
+         */
+        boolean test(DomElement element);
+    }
+
+    /**
+     * The argument of a comparison or function: {@code @name}, {@code text()} or {@code .}.
+     */
+    private static final class Argument {
+        static final int ATTRIBUTE = 0;
+        static final int TEXT = 1;
+        static final int SELF = 2;
+
+        private final int kind_;
+        private final String name_;
+
+        Argument(final int kind, final String name) {
+            kind_ = kind;
+            name_ = name;
+        }
+
+        /**
+         * Whether any node of the node-set has a string value satisfying the test; this
+         * is the XPath semantic of comparing a node-set with a string.
+         */
+        boolean any(final DomElement element, final Predicate<String> test) {
+            switch (kind_) {
+                case ATTRIBUTE:
+                    final DomAttr attr = findAttribute(element, name_);
+                    return attr != null && test.test(attr.getValue());
+
+                case TEXT:
+                    for (DomNode child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        if (isFirstText(child) && test.test(textValue((DomText) child))) {
+                            return true;
+                        }
+                    }
+                    return false;
+
+                default:
+                    return test.test(stringValue(element));
+            }
+        }
+
+        /**
+         * The string value of the node-set; the value of the first node or the empty string.
+         */
+        String string(final DomElement element) {
+            switch (kind_) {
+                case ATTRIBUTE:
+                    final DomAttr attr = findAttribute(element, name_);
+                    return attr == null ? "" : attr.getValue();
+
+                case TEXT:
+                    for (DomNode child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        if (child instanceof DomText) {
+                            return textValue((DomText) child);
+                        }
+                    }
+                    return "";
+
+                default:
+                    return stringValue(element);
+            }
+        }
+    }
+
+    /**
+     * A simple recursive descent parser; returns {@code null} for everything not supported.
+     */
+    private static final class Parser {
+        private final String expression_;
+        private int pos_;
+
+        Parser(final String expression) {
+            expression_ = expression;
+        }
+
+        NativeXPathEvaluator parse() {
+            skipWhitespace();
+            boolean absolute = false;
+            boolean descendant = false;
+            if (consume("//")) {
+                absolute = true;
+                descendant = true;
+            }
+            else if (consume("/")) {
+                absolute = true;
+            }
+            else if (consume(".//")) {
+                descendant = true;
+            }
+            else if (consume("./")) {
+                descendant = false;
+            }
+
+            final List<Step> steps = new ArrayList<>();
+            while (true) {
+                final Step step = parseStep(descendant);
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+
+                skipWhitespace();
+                if (pos_ == expression_.length()) {
+                    break;
+                }
+                if (step.kind_ != Step.ELEMENT) {
+                    // text() and attributes have to be the last step
+                    return null;
+                }
+                if (consume("//")) {
+                    descendant = true;
+                }
+                else if (consume("/")) {
+                    descendant = false;
+                }
+                else {
+                    return null;
+                }
+            }
+
+            final Step last = steps.get(steps.size() - 1);
+            if (last.kind_ == Step.ATTRIBUTE && (last.descendant_ || steps.size() < 2)) {
+                return null;
+            }
+            return new NativeXPathEvaluator(absolute, steps.toArray(new Step[steps.size()]));
+        }
+
+        private Step parseStep(final boolean descendant) {
+            skipWhitespace();
+            if (consume("text()")) {
+                return new Step(descendant, Step.TEXT, null);
+            }
+            if (consume("@")) {
+                final String name = parseName();
+                if (name == null || "xmlns".equals(name)) {
+                    return null;
+                }
+                return new Step(descendant, Step.ATTRIBUTE, name);
+            }
+
+            final Step step;
+            if (consume("*")) {
+                step = new Step(descendant, Step.ELEMENT, null);
+            }
+            else {
+                final String name = parseName();
+                if (name == null || isNext("(") || isNext(":")) {
+                    // functions, node type tests and axes
+                    return null;
+                }
+                step = new Step(descendant, Step.ELEMENT, name);
+            }
+
+            skipWhitespace();
+            while (consume("[")) {
+                final StepPredicate predicate = parsePredicate();
+                if (predicate == null || !consume("]")) {
+                    return null;
+                }
+                step.predicates_.add(predicate);
+                skipWhitespace();
+            }
+            return step;
+        }
+
+        private StepPredicate parsePredicate() {
+            skipWhitespace();
+            if (pos_ < expression_.length() && Character.isDigit(expression_.charAt(pos_))) {
+                final int start = pos_;
+                while (pos_ < expression_.length() && Character.isDigit(expression_.charAt(pos_))) {
+                    pos_++;
+                }
+                if (pos_ - start > 9) {
+                    return null;
+                }
+                final int position = Integer.parseInt(expression_.substring(start, pos_));
+                skipWhitespace();
+                return new PositionPredicate(position);
+            }
+            if (consume("last()")) {
+                skipWhitespace();
+                return new LastPredicate();
+            }
+
+            final Condition condition = parseOr();
+            if (condition == null) {
+                return null;
+            }
+            return new BooleanPredicate(condition);
+        }
+
+        private Condition parseOr() {
+            Condition left = parseAnd();
+            while (left != null && consumeKeyword("or")) {
+                final Condition first = left;
+                final Condition second = parseAnd();
+                if (second == null) {
+                    return null;
+                }
+                left = e -> first.test(e) || second.test(e);
+            }
+            return left;
+        }
+
+        private Condition parseAnd() {
+            Condition left = parseUnary();
+            while (left != null && consumeKeyword("and")) {
+                final Condition first = left;
+                final Condition second = parseUnary();
+                if (second == null) {
+                    return null;
+                }
+                left = e -> first.test(e) && second.test(e);
+            }
+            return left;
+        }
+
+        private Condition parseUnary() {
+            skipWhitespace();
+            final Condition condition;
+            if (consume("not(")) {
+                final Condition inner = parseOr();
+                if (inner == null || !consume(")")) {
+                    return null;
+                }
+                condition = e -> !inner.test(e);
+            }
+            else if (consume("(")) {
+                condition = parseOr();
+                if (condition == null || !consume(")")) {
+                    return null;
+                }
+            }
+            else if (consume("contains(")) {
+                condition = parseFunction((s, literal) -> s.contains(literal));
+            }
+            else if (consume("starts-with(")) {
+                condition = parseFunction((s, literal) -> s.startsWith(literal));
+            }
+            else {
+                condition = parseComparison();
+            }
+            skipWhitespace();
+            return condition;
+        }
+
+        private Condition parseFunction(final BiPredicate<String, String> function) {
+            final Argument argument = parseArgument();
+            if (argument == null || !consume(",")) {
+                return null;
+            }
+            final String literal = parseLiteral();
+            if (literal == null || !consume(")")) {
+                return null;
+            }
+            return e -> function.test(argument.string(e), literal);
+        }
+
+        private Condition parseComparison() {
+            final Argument argument = parseArgument();
+            if (argument == null) {
+                return null;
+            }
+            final boolean notEquals;
+            if (consume("!=")) {
+                notEquals = true;
+            }
+            else if (consume("=")) {
+                notEquals = false;
+            }
+            else {
+                if (argument.kind_ == Argument.SELF) {
+                    return null;
+                }
+                // existence of the node-set
+                return e -> argument.any(e, s -> true);
+            }
+
+            final String literal = parseLiteral();
+            if (literal == null) {
+                return null;
+            }
+            if (notEquals) {
+                return e -> argument.any(e, s -> !literal.equals(s));
+            }
+            return e -> argument.any(e, literal::equals);
+        }
+
+        private Argument parseArgument() {
+            skipWhitespace();
+            final Argument argument;
+            if (consume("@")) {
+                final String name = parseName();
+                if (name == null || "xmlns".equals(name) || isNext(":")) {
+                    return null;
+                }
+                argument = new Argument(Argument.ATTRIBUTE, name);
+            }
+            else if (consume("text()")) {
+                argument = new Argument(Argument.TEXT, null);
+            }
+            else if (consume(".") && !isNext(".") && !isNext("/")) {
+                argument = new Argument(Argument.SELF, null);
+            }
+            else {
+                return null;
+            }
+            skipWhitespace();
+            return argument;
+        }
+
+        private String parseLiteral() {
+            skipWhitespace();
+            if (pos_ >= expression_.length()) {
+                return null;
+            }
+            final char quote = expression_.charAt(pos_);
+            if (quote != '\'' && quote != '"') {
+                return null;
+            }
+            final int end = expression_.indexOf(quote, pos_ + 1);
+            if (end == -1) {
+                return null;
+            }
+            final String literal = expression_.substring(pos_ + 1, end);
+            pos_ = end + 1;
+            skipWhitespace();
+            return literal;
+        }
+
+        private String parseName() {
+            final int start = pos_;
+            if (pos_ < expression_.length()) {
+                final char first = expression_.charAt(pos_);
+                if (!Character.isLetter(first) && first != '_') {
+                    return null;
+                }
+                pos_++;
+            }
+            while (pos_ < expression_.length()) {
+                final char ch = expression_.charAt(pos_);
+                if (!Character.isLetterOrDigit(ch) && ch != '_' && ch != '-' && ch != '.') {
+                    break;
+                }
+                pos_++;
+            }
+            if (pos_ == start) {
+                return null;
+            }
+            return expression_.substring(start, pos_);
+        }
+
+        private boolean consumeKeyword(final String keyword) {
+            skipWhitespace();
+            final int end = pos_ + keyword.length();
+            if (expression_.startsWith(keyword, pos_)
+                    && (end == expression_.length() || !Character.isLetterOrDigit(expression_.charAt(end)))) {
+                pos_ = end;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consume(final String token) {
+            skipWhitespace();
+            if (expression_.startsWith(token, pos_)) {
+                pos_ += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isNext(final String token) {
+            skipWhitespace();
+            return expression_.startsWith(token, pos_);
+        }
+
+        private void skipWhitespace() {
+            while (pos_ < expression_.length() && Character.isWhitespace(expression_.charAt(pos_))) {
+                pos_++;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html.xpath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.xpath.XPathContext;
+
+import com.gargoylesoftware.htmlunit.SgmlPage;
+import com.gargoylesoftware.htmlunit.html.CharacterDataChangeEvent;
+import com.gargoylesoftware.htmlunit.html.CharacterDataChangeListener;
+import com.gargoylesoftware.htmlunit.html.DomChangeEvent;
+import com.gargoylesoftware.htmlunit.html.DomChangeListener;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * The XPath state of one page: the compiled expressions and the {@link XPathContext} holding the
+ * DTM view of the document. Building the DTM is expensive, therefore the context is reused for all
+ * evaluations until the DOM is changed.
+ */
+public final class XPathCache implements DomChangeListener, CharacterDataChangeListener {
+
+    /** The max number of compiled expressions kept per page. */
+    private static final int MAX_EXPRESSIONS = 100;
+
+    private transient Map<String, XPathAdapter> expressions_;
+    private transient XPathContext xpathContext_;
+
+    /**
+     * Creates a new instance listening for changes of the given page.
+     * @param page the page
+     */
+    public XPathCache(final SgmlPage page) {
+        page.addDomChangeListener(this);
+        page.addCharacterDataChangeListener(this);
+    }
+
+    /**
+     * Returns the compiled expression.
+     * @param expression the (not preprocessed) expression string
+     * @return the compiled expression or {@code null}
+     */
+    synchronized XPathAdapter getExpression(final String expression) {
+        if (expressions_ == null) {
+            return null;
+        }
+        return expressions_.get(expression);
+    }
+
+    /**
+     * Caches the compiled expression. Expressions using namespace prefixes are not cached
+     * because the prefixes are resolved at compile time using the context node.
+     * @param expression the (not preprocessed) expression string
+     * @param xpath the compiled expression
+     */
+    synchronized void putExpression(final String expression, final XPathAdapter xpath) {
+        if (expression.replace("::", "").indexOf(':') != -1) {
+            return;
+        }
+        if (expressions_ == null) {
+            expressions_ = new LinkedHashMap<String, XPathAdapter>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, XPathAdapter> eldest) {
+                    return size() > MAX_EXPRESSIONS;
+                }
+            };
+        }
+        expressions_.put(expression, xpath);
+    }
+
+    /**
+     * Returns the context to evaluate an expression for the given node. The context of the page
+     * is only shared for nodes attached to the page, changes of detached nodes are not reported.
+     * The caller has to hold the lock of this cache while using the context.
+     * @param contextNode the context node
+     * @return the context
+     */
+    synchronized XPathContext getXPathContext(final DomNode contextNode) {
+        if (!contextNode.isAttachedToPage()) {
+            return new XPathContext();
+        }
+        if (xpathContext_ == null) {
+            xpathContext_ = new XPathContext();
+        }
+        return xpathContext_;
+    }
+
+    /**
+     * Drops the DTM view of the document; the compiled expressions remain valid.
+     */
+    public synchronized void invalidate() {
+        xpathContext_ = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void nodeAdded(final DomChangeEvent event) {
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void nodeDeleted(final DomChangeEvent event) {
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void characterDataChanged(final CharacterDataChangeEvent event) {
+        invalidate();
+    }
+}
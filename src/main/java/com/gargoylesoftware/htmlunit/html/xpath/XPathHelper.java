@@ -30,6 +30,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 
 /**
@@ -58,36 +59,26 @@ public final class XPathHelper {
      * @param resolver the prefix resolver to use for resolving namespace prefixes, or null
      * @return the list of objects found
      */
-    @SuppressWarnings("unchecked")
     public static <T> List<T> getByXPath(final DomNode node, final String xpathExpr,
             final PrefixResolver resolver) {
         if (xpathExpr == null) {
             throw new IllegalArgumentException("Null is not a valid XPath expression");
         }
 
+        if (resolver == null && NativeXPathEvaluator.isSupported(node)) {
+            final NativeXPathEvaluator evaluator = NativeXPathEvaluator.parse(xpathExpr);
+            if (evaluator != null) {
+                final List<T> results = evaluator.evaluate(node, false);
+                if (results != null) {
+                    return results;
+                }
+            }
+        }
+
         PROCESS_XPATH_.set(Boolean.TRUE);
         final List<T> list = new ArrayList<>();
         try {
-            final XObject result = evaluateXPath(node, xpathExpr, resolver);
-
-            if (result instanceof XNodeSet) {
-                final NodeList nodelist = ((XNodeSet) result).nodelist();
-                for (int i = 0; i < nodelist.getLength(); i++) {
-                    list.add((T) nodelist.item(i));
-                }
-            }
-            else if (result instanceof XNumber) {
-                list.add((T) Double.valueOf(result.num()));
-            }
-            else if (result instanceof XBoolean) {
-                list.add((T) Boolean.valueOf(result.bool()));
-            }
-            else if (result instanceof XString) {
-                list.add((T) result.str());
-            }
-            else {
-                throw new RuntimeException("Unproccessed " + result.getClass().getName());
-            }
+            evaluateXPath(node, xpathExpr, resolver, list);
         }
         catch (final Exception e) {
             throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + node, e);
@@ -98,6 +89,44 @@ public final class XPathHelper {
         return list;
     }
 
+    /**
+     * Evaluates an XPath expression from the specified node, returning the first matching element,
+     * or {@code null} if no node matches the specified XPath expression.
+     * The evaluation stops at the first match if the expression is supported by the native evaluator.
+     *
+     * @param <X> the expression type
+     * @param node the node to start searching from
+     * @param xpathExpr the XPath expression
+     * @param resolver the prefix resolver to use for resolving namespace prefixes, or null
+     * @return the first element matching the specified XPath expression
+     */
+    @SuppressWarnings("unchecked")
+    public static <X> X getFirstByXPath(final DomNode node, final String xpathExpr,
+            final PrefixResolver resolver) {
+        if (xpathExpr == null) {
+            throw new IllegalArgumentException("Null is not a valid XPath expression");
+        }
+
+        if (resolver == null && NativeXPathEvaluator.isSupported(node)) {
+            final NativeXPathEvaluator evaluator = NativeXPathEvaluator.parse(xpathExpr);
+            if (evaluator != null) {
+                final List<X> results = evaluator.evaluate(node, true);
+                if (results != null) {
+                    if (results.isEmpty()) {
+                        return null;
+                    }
+                    return results.get(0);
+                }
+            }
+        }
+
+        final List<?> results = getByXPath(node, xpathExpr, resolver);
+        if (results.isEmpty()) {
+            return null;
+        }
+        return (X) results.get(0);
+    }
+
     /**
      * Returns whether the thread is currently evaluating XPath expression or no.
      * @return whether the thread is currently evaluating XPath expression or no
@@ -107,34 +136,70 @@ public final class XPathHelper {
     }
 
     /**
-     * Evaluates an XPath expression to an XObject.
+     * Evaluates an XPath expression and adds the result to the given list.
      * @param contextNode the node to start searching from
      * @param str a valid XPath string
      * @param a prefix resolver to use for resolving namespace prefixes, or null
-     * @return an XObject, which can be used to obtain a string, number, nodelist, etc (should never be {@code null})
+     * @param list the list to add the nodes, the string, the number or the boolean to
      * @throws TransformerException if a syntax or other error occurs
      */
-    private static XObject evaluateXPath(final DomNode contextNode,
-            final String str, final PrefixResolver prefixResolver) throws TransformerException {
-        final XPathContext xpathSupport = new XPathContext();
-        final Node xpathExpressionContext;
-        if (contextNode.getNodeType() == Node.DOCUMENT_NODE) {
-            xpathExpressionContext = ((Document) contextNode).getDocumentElement();
-        }
-        else {
-            xpathExpressionContext = contextNode;
-        }
+    private static <T> void evaluateXPath(final DomNode contextNode,
+            final String str, final PrefixResolver prefixResolver, final List<T> list) throws TransformerException {
+        final SgmlPage page = contextNode.getPage();
+        final XPathCache cache = page.getXPathCache();
+
+        // the context is shared by all evaluations on this page
+        synchronized (cache) {
+            XPathAdapter xpath = cache.getExpression(str);
+            if (xpath == null) {
+                final Node xpathExpressionContext;
+                if (contextNode.getNodeType() == Node.DOCUMENT_NODE) {
+                    xpathExpressionContext = ((Document) contextNode).getDocumentElement();
+                }
+                else {
+                    xpathExpressionContext = contextNode;
+                }
 
-        PrefixResolver resolver = prefixResolver;
-        if (resolver == null) {
-            resolver = new HtmlUnitPrefixResolver(xpathExpressionContext);
-        }
+                PrefixResolver resolver = prefixResolver;
+                if (resolver == null) {
+                    resolver = new HtmlUnitPrefixResolver(xpathExpressionContext);
+                }
+
+                final boolean caseSensitive = page.hasCaseSensitiveTagNames();
 
-        final boolean caseSensitive = contextNode.getPage().hasCaseSensitiveTagNames();
+                xpath = new XPathAdapter(str, null, resolver, null, caseSensitive);
+                cache.putExpression(str, xpath);
+            }
+
+            final XPathContext xpathSupport = cache.getXPathContext(contextNode);
+            final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
+            final XObject result = xpath.execute(xpathSupport, ctxtNode, prefixResolver);
 
-        final XPathAdapter xpath = new XPathAdapter(str, null, resolver, null, caseSensitive);
-        final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
-        return xpath.execute(xpathSupport, ctxtNode, prefixResolver);
+            // the node set is backed by the shared context, copy it before releasing the lock
+            addResult(result, list);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void addResult(final XObject result, final List<T> list) throws TransformerException {
+        if (result instanceof XNodeSet) {
+            final NodeList nodelist = ((XNodeSet) result).nodelist();
+            for (int i = 0; i < nodelist.getLength(); i++) {
+                list.add((T) nodelist.item(i));
+            }
+        }
+        else if (result instanceof XNumber) {
+            list.add((T) Double.valueOf(result.num()));
+        }
+        else if (result instanceof XBoolean) {
+            list.add((T) Boolean.valueOf(result.bool()));
+        }
+        else if (result instanceof XString) {
+            list.add((T) result.str());
+        }
+        else {
+            throw new RuntimeException("Unproccessed " + result.getClass().getName());
+        }
     }
 
 }
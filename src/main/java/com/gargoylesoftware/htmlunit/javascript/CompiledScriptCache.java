@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebClient;
+
+import net.sourceforge.htmlunit.corejs.javascript.Script;
+
+/**
+ * <p>A cache of compiled scripts, keyed by the hash of the source code together with the
+ * source name, the start line, the browser version and whether the script was compiled to bytecode.</p>
+ *
+ * <p>In contrast to {@link com.gargoylesoftware.htmlunit.Cache} this cache does not depend on the
+ * HTTP caching headers of the response; the same script source is only compiled once even if it
+ * is inline or served without caching headers. The cache is opt-in
+ * (see {@link WebClient#setCompiledScriptCache(CompiledScriptCache)}) and may be shared
+ * between many {@link WebClient} instances.</p>
+ *
+ * <p>The least recently used entries are evicted if the cache grows beyond the max size.</p>
+ */
+public class CompiledScriptCache {
+
+    private final int maxSize_;
+
+    private final Map<String, Script> entries_;
+
+    private final AtomicLong hits_ = new AtomicLong();
+    private final AtomicLong misses_ = new AtomicLong();
+    private final AtomicLong evictions_ = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     * @param maxSize the maximum number of compiled scripts to keep (must be &gt; 0)
+     */
+    public CompiledScriptCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Illegal value for maxSize: " + maxSize);
+        }
+        maxSize_ = maxSize;
+        entries_ = new LinkedHashMap<String, Script>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Script> eldest) {
+                if (size() > maxSize_) {
+                    evictions_.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached compiled script for the given source or {@code null}.
+     * @param sourceCode the JavaScript source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param browserVersion the browser version the script was compiled for
+     * @return the cached script or {@code null}
+     */
+    public Script get(final String sourceCode, final String sourceName, final int startLine,
+            final BrowserVersion browserVersion) {
+        return get(sourceCode, sourceName, startLine, browserVersion, false);
+    }
+
+    /**
+     * Returns the cached compiled script for the given source or {@code null}.
+     * @param sourceCode the JavaScript source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param browserVersion the browser version the script was compiled for
+     * @param bytecode whether the script was compiled to java bytecode instead of being interpreted
+     * @return the cached script or {@code null}
+     */
+    public Script get(final String sourceCode, final String sourceName, final int startLine,
+            final BrowserVersion browserVersion, final boolean bytecode) {
+        final String key = key(sourceCode, sourceName, startLine, browserVersion, bytecode);
+        final Script script;
+        synchronized (entries_) {
+            script = entries_.get(key);
+        }
+        if (script == null) {
+            misses_.incrementAndGet();
+        }
+        else {
+            hits_.incrementAndGet();
+        }
+        return script;
+    }
+
+    /**
+     * Caches the compiled script for the given source.
+     * @param sourceCode the JavaScript source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param browserVersion the browser version the script was compiled for
+     * @param script the compiled script
+     */
+    public void put(final String sourceCode, final String sourceName, final int startLine,
+            final BrowserVersion browserVersion, final Script script) {
+        put(sourceCode, sourceName, startLine, browserVersion, false, script);
+    }
+
+    /**
+     * Caches the compiled script for the given source.
+     * @param sourceCode the JavaScript source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param browserVersion the browser version the script was compiled for
+     * @param bytecode whether the script was compiled to java bytecode instead of being interpreted
+     * @param script the compiled script
+     */
+    public void put(final String sourceCode, final String sourceName, final int startLine,
+            final BrowserVersion browserVersion, final boolean bytecode, final Script script) {
+        final String key = key(sourceCode, sourceName, startLine, browserVersion, bytecode);
+        synchronized (entries_) {
+            entries_.put(key, script);
+        }
+    }
+
+    private static String key(final String sourceCode, final String sourceName, final int startLine,
+            final BrowserVersion browserVersion, final boolean bytecode) {
+        return new StringBuilder(128)
+                .append(DigestUtils.sha256Hex(sourceCode))
+                .append('|')
+                .append(sourceCode.length())
+                .append('|')
+                .append(browserVersion.getNickname())
+                .append(browserVersion.getBrowserVersionNumeric())
+                .append('|')
+                .append(bytecode ? 'b' : 'i')
+                .append('|')
+                .append(startLine)
+                .append('|')
+                .append(sourceName)
+                .toString();
+    }
+
+    /**
+     * Removes all entries; the statistics are not reset.
+     */
+    public void clear() {
+        synchronized (entries_) {
+            entries_.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached scripts.
+     * @return the number of cached scripts
+     */
+    public int getSize() {
+        synchronized (entries_) {
+            return entries_.size();
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached scripts.
+     * @return the maximum number of cached scripts
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Returns the number of lookups that found a compiled script.
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits_.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a compiled script.
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses_.get();
+    }
+
+    /**
+     * Returns the number of scripts removed because the cache was full.
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions_.get();
+    }
+}
@@ -22,6 +22,9 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_PROPERTY_D
 
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.ScriptException;
@@ -59,12 +62,16 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
     private static final int INSTRUCTION_COUNT_THRESHOLD = 10_000;
 
+    /** Marks the compiled scripts running too long; shared by all factories, created on first use. */
+    private static ScheduledThreadPoolExecutor Watchdog_;
+
     private final WebClient webClient_;
     private final BrowserVersion browserVersion_;
     private long timeout_;
     private Debugger debugger_;
     private final WrapFactory wrapFactory_ = new HtmlUnitWrapFactory();
     private boolean deminifyFunctionCode_;
+    private boolean compileToBytecode_;
 
     /**
      * Creates a new instance of HtmlUnitContextFactory.
@@ -135,11 +142,43 @@ public class HtmlUnitContextFactory extends ContextFactory {
         return deminifyFunctionCode_;
     }
 
+    /**
+     * Configures if the scripts should be compiled to java bytecode (Rhino optimization level 9) instead of
+     * being interpreted. Compiled scripts run faster but compiling takes longer; the compiled scripts are
+     * reused if a {@link CompiledScriptCache} is set. This mode is not used as long as a debugger is set.
+     * @param compileToBytecode the new value
+     */
+    public void setCompileToBytecode(final boolean compileToBytecode) {
+        compileToBytecode_ = compileToBytecode;
+    }
+
+    /**
+     * Indicates if the scripts are compiled to java bytecode instead of being interpreted.
+     * @return the compilation status (default value is <tt>false</tt>)
+     */
+    public boolean isCompileToBytecode() {
+        return compileToBytecode_;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getWatchdog() {
+        if (Watchdog_ == null) {
+            Watchdog_ = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread thread = new Thread(r, "HtmlUnit JavaScript watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Watchdog_.setRemoveOnCancelPolicy(true);
+        }
+        return Watchdog_;
+    }
+
     /**
      * Custom context to store execution time and handle timeouts.
      */
     private class TimeoutContext extends Context {
         private long startTime_;
+        private ScheduledFuture<?> watchdogTask_;
+        private volatile boolean timedOut_;
 
         protected TimeoutContext(final ContextFactory factory) {
             super(factory);
@@ -147,10 +186,30 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
         public void startClock() {
             startTime_ = System.currentTimeMillis();
+
+            // compiled scripts reach the observer very often; a watchdog
+            // marks the timeout instead of reading the clock every time
+            stopWatchdog();
+            if (timeout_ > 0 && getOptimizationLevel() != -1) {
+                watchdogTask_ = getWatchdog().schedule(() -> {
+                    timedOut_ = true;
+                }, timeout_, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public void stopWatchdog() {
+            if (watchdogTask_ != null) {
+                watchdogTask_.cancel(false);
+                watchdogTask_ = null;
+            }
+            timedOut_ = false;
         }
 
         public void terminateScriptIfNecessary() {
             if (timeout_ > 0) {
+                if (watchdogTask_ != null && !timedOut_) {
+                    return;
+                }
                 final long currentTime = System.currentTimeMillis();
                 if (currentTime - startTime_ > timeout_) {
                     // Terminate script by throwing an Error instance to ensure that the
@@ -291,8 +350,15 @@ public class HtmlUnitContextFactory extends ContextFactory {
             }
         });
 
-        // Use pure interpreter mode to get observeInstructionCount() callbacks.
-        cx.setOptimizationLevel(-1);
+        if (compileToBytecode_ && debugger_ == null) {
+            // The generated classes call observeInstructionCount() at the loop back edges
+            // and function calls as long as an instruction observer threshold is set.
+            cx.setOptimizationLevel(9);
+        }
+        else {
+            // Use pure interpreter mode to get observeInstructionCount() callbacks.
+            cx.setOptimizationLevel(-1);
+        }
 
         // Set threshold on how often we want to receive the callbacks
         cx.setInstructionObserverThreshold(INSTRUCTION_COUNT_THRESHOLD);
@@ -307,7 +373,9 @@ public class HtmlUnitContextFactory extends ContextFactory {
         // register custom RegExp processing
         ScriptRuntime.setRegExpProxy(cx, new HtmlUnitRegExpProxy(ScriptRuntime.getRegExpProxy(cx), browserVersion_));
 
-        cx.setMaximumInterpreterStackDepth(10_000);
+        if (cx.getOptimizationLevel() == -1) {
+            cx.setMaximumInterpreterStackDepth(10_000);
+        }
 
         return cx;
     }
@@ -336,7 +404,12 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
         final TimeoutContext tcx = (TimeoutContext) cx;
         tcx.startClock();
-        return super.doTopCall(callable, cx, scope, thisObj, args);
+        try {
+            return super.doTopCall(callable, cx, scope, thisObj, args);
+        }
+        finally {
+            tcx.stopWatchdog();
+        }
     }
 
     /**
@@ -18,7 +18,6 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_ARRAY_FROM
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_ERROR_CAPTURE_STACK_TRACE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_ERROR_STACK_TRACE_LIMIT;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_FORM_DATA_ITERATOR_SIMPLE_NAME;
-import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_IMAGE_PROTOTYPE_SAME_AS_HTML_IMAGE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_INTL_NAMED_OBJECT;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_OBJECT_GET_OWN_PROPERTY_SYMBOLS;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_REFLECT;
@@ -38,12 +37,10 @@ import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -274,163 +271,17 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             }
         }
 
-        final Map<Class<? extends Scriptable>, Scriptable> prototypes = new HashMap<>();
-        final Map<String, Scriptable> prototypesPerJSName = new HashMap<>();
-
-        final String windowClassName = Window.class.getName();
-        for (final ClassConfiguration config : jsConfig_.getAll()) {
-            final boolean isWindow = windowClassName.equals(config.getHostClass().getName());
-            if (isWindow) {
-                configureConstantsPropertiesAndFunctions(config, window);
-
-                final HtmlUnitScriptable prototype = configureClass(config, window, browserVersion);
-                prototypesPerJSName.put(config.getClassName(), prototype);
-            }
-            else {
-                final HtmlUnitScriptable prototype = configureClass(config, window, browserVersion);
-                if (config.isJsObject()) {
-                    // Place object with prototype property in Window scope
-                    final HtmlUnitScriptable obj = config.getHostClass().newInstance();
-                    prototype.defineProperty("__proto__", prototype, ScriptableObject.DONTENUM);
-                    obj.defineProperty("prototype", prototype, ScriptableObject.DONTENUM); // but not setPrototype!
-                    obj.setParentScope(window);
-                    obj.setClassName(config.getClassName());
-                    ScriptableObject.defineProperty(window, obj.getClassName(), obj, ScriptableObject.DONTENUM);
-                    // this obj won't have prototype, constants need to be configured on it again
-                    configureConstants(config, obj);
-                }
-                prototypes.put(config.getHostClass(), prototype);
-                prototypesPerJSName.put(config.getClassName(), prototype);
-            }
-        }
-
-        for (final ClassConfiguration config : jsConfig_.getAll()) {
-            final Executable jsConstructor = config.getJsConstructor();
-            final String jsClassName = config.getClassName();
-            Scriptable prototype = prototypesPerJSName.get(jsClassName);
-            final String hostClassSimpleName = config.getHostClassSimpleName();
-
-            if ("Image".equals(hostClassSimpleName)
-                    && browserVersion.hasFeature(JS_IMAGE_PROTOTYPE_SAME_AS_HTML_IMAGE)) {
-                prototype = prototypesPerJSName.get("HTMLImageElement");
-            }
-            if ("Option".equals(hostClassSimpleName)) {
-                prototype = prototypesPerJSName.get("HTMLOptionElement");
-            }
-
-            switch (hostClassSimpleName) {
-                case "WebKitMutationObserver":
-                    prototype = prototypesPerJSName.get("MutationObserver");
-                    break;
-
-                case "webkitURL":
-                    prototype = prototypesPerJSName.get("URL");
-                    break;
-
-                default:
-            }
-            if (prototype != null && config.isJsObject()) {
-                if (jsConstructor == null) {
-                    final ScriptableObject constructor;
-                    if ("Window".equals(jsClassName)) {
-                        constructor = (ScriptableObject) ScriptableObject.getProperty(window, "constructor");
-                    }
-                    else {
-                        constructor = config.getHostClass().newInstance();
-                        ((SimpleScriptable) constructor).setClassName(config.getClassName());
-                    }
-                    defineConstructor(window, prototype, constructor);
-                    configureConstantsStaticPropertiesAndStaticFunctions(config, constructor);
-                }
-                else {
-                    final BaseFunction function;
-                    if ("Window".equals(jsClassName)) {
-                        function = (BaseFunction) ScriptableObject.getProperty(window, "constructor");
-                    }
-                    else {
-                        function = new RecursiveFunctionObject(jsClassName, jsConstructor, window);
-                    }
-
-                    if ("WebKitMutationObserver".equals(hostClassSimpleName)
-                            || "webkitURL".equals(hostClassSimpleName)
-                            || "Image".equals(hostClassSimpleName)
-                            || "Option".equals(hostClassSimpleName)) {
-                        final Object prototypeProperty = ScriptableObject.getProperty(window, prototype.getClassName());
-
-                        if (function instanceof FunctionObject) {
-                            try {
-                                ((FunctionObject) function).addAsConstructor(window, prototype);
-                            }
-                            catch (final Exception e) {
-                                // TODO see issue #1897
-                                if (LOG.isWarnEnabled()) {
-                                    final String newline = System.lineSeparator();
-                                    LOG.warn("Error during JavaScriptEngine.init(WebWindow, Context)" + newline
-                                            + e.getMessage() + newline
-                                            + "prototype: " + prototype.getClassName());
-                                }
-                            }
-                        }
-
-                        ScriptableObject.defineProperty(window, hostClassSimpleName, function,
-                                ScriptableObject.DONTENUM);
-
-                        // the prototype class name is set as a side effect of functionObject.addAsConstructor
-                        // so we restore its value
-                        if (!hostClassSimpleName.equals(prototype.getClassName())) {
-                            if (prototypeProperty == UniqueTag.NOT_FOUND) {
-                                ScriptableObject.deleteProperty(window, prototype.getClassName());
-                            }
-                            else {
-                                ScriptableObject.defineProperty(window, prototype.getClassName(),
-                                        prototypeProperty, ScriptableObject.DONTENUM);
-                            }
-                        }
-                    }
-                    else {
-                        if (function instanceof FunctionObject) {
-                            try {
-                                ((FunctionObject) function).addAsConstructor(window, prototype);
-                            }
-                            catch (final Exception e) {
-                                // TODO see issue #1897
-                                if (LOG.isWarnEnabled()) {
-                                    final String newline = System.lineSeparator();
-                                    LOG.warn("Error during JavaScriptEngine.init(WebWindow, Context)" + newline
-                                            + e.getMessage() + newline
-                                            + "prototype: " + prototype.getClassName());
-                                }
-                            }
-                        }
-                    }
-
-                    configureConstantsStaticPropertiesAndStaticFunctions(config, function);
-                }
-            }
-        }
-        window.setPrototype(prototypesPerJSName.get(Window.class.getSimpleName()));
-
-        // once all prototypes have been build, it's possible to configure the chains
-        final Scriptable objectPrototype = ScriptableObject.getObjectPrototype(window);
-        for (final Map.Entry<String, Scriptable> entry : prototypesPerJSName.entrySet()) {
-            final String name = entry.getKey();
-            final ClassConfiguration config = jsConfig_.getClassConfiguration(name);
-            final Scriptable prototype = entry.getValue();
-            if (!StringUtils.isEmpty(config.getExtendedClassName())) {
-                final Scriptable parentPrototype = prototypesPerJSName.get(config.getExtendedClassName());
-                prototype.setPrototype(parentPrototype);
-            }
-            else {
-                prototype.setPrototype(objectPrototype);
-            }
-        }
+        final WindowHostClasses hostClasses = new WindowHostClasses(window,
+                WindowTemplate.getInstance(jsConfig_, browserVersion));
+        window.setHostClasses(hostClasses);
+        window.setPrototype(hostClasses.getPrototype(Window.class.getSimpleName()));
 
         // IE ActiveXObject simulation
         // see http://msdn.microsoft.com/en-us/library/ie/dn423948%28v=vs.85%29.aspx
         // DEV Note: this is at the moment the only usage of HiddenFunctionObject
         //           if we need more in the future, we have to enhance our JSX annotations
         if (browserVersion.hasFeature(JS_WINDOW_ACTIVEXOBJECT_HIDDEN)) {
-            final Scriptable prototype = prototypesPerJSName.get("ActiveXObject");
+            final Scriptable prototype = hostClasses.getPrototype("ActiveXObject");
             if (null != prototype) {
                 final Method jsConstructor = ActiveXObject.class.getDeclaredMethod("jsConstructor",
                         Context.class, Object[].class, Function.class, boolean.class);
@@ -452,7 +303,6 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
 
         configureRhino(webClient, browserVersion, window);
 
-        window.setPrototypes(prototypes, prototypesPerJSName);
         window.initialize(webWindow, page);
     }
 
@@ -593,7 +443,141 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             final BrowserVersion browserVersion)
         throws InstantiationException, IllegalAccessException {
 
-        final HtmlUnitScriptable prototype = config.getHostClass().newInstance();
+        final HtmlUnitScriptable prototype = config.newInstance();
+        prototype.setParentScope(window);
+        prototype.setClassName(config.getClassName());
+
+        configureConstantsPropertiesAndFunctions(config, prototype);
+
+        return prototype;
+    }
+
+    /**
+     * Creates the prototype of the given host class; for JavaScript objects also the object
+     * placed in the window scope.
+     * @param window the window
+     * @param hostClass the host class
+     * @return the prototype
+     */
+    static HtmlUnitScriptable createPrototype(final Window window, final WindowTemplate.HostClass hostClass) {
+        final ClassConfiguration config = hostClass.getConfig();
+        if (hostClass.isWindow()) {
+            configureConstantsPropertiesAndFunctions(config, window);
+
+            return configureClass(hostClass, window);
+        }
+
+        final HtmlUnitScriptable prototype = configureClass(hostClass, window);
+        if (config.isJsObject()) {
+            // Place object with prototype property in Window scope
+            final HtmlUnitScriptable obj = hostClass.newInstance();
+            prototype.defineProperty("__proto__", prototype, ScriptableObject.DONTENUM);
+            obj.defineProperty("prototype", prototype, ScriptableObject.DONTENUM); // but not setPrototype!
+            obj.setParentScope(window);
+            obj.setClassName(config.getClassName());
+            ScriptableObject.defineProperty(window, obj.getClassName(), obj, ScriptableObject.DONTENUM);
+            // this obj won't have prototype, constants need to be configured on it again
+            configureConstants(config, obj);
+        }
+        return prototype;
+    }
+
+    /**
+     * Defines the JavaScript constructor of the given host class.
+     * @param window the window
+     * @param hostClass the host class
+     * @param prototype the prototype used by the constructor
+     */
+    static void configureConstructor(final Window window, final WindowTemplate.HostClass hostClass,
+            final Scriptable prototype) {
+        final ClassConfiguration config = hostClass.getConfig();
+        if (!config.isJsObject()) {
+            return;
+        }
+
+        final Executable jsConstructor = config.getJsConstructor();
+        final String jsClassName = config.getClassName();
+        final String hostClassSimpleName = config.getHostClassSimpleName();
+
+        if (jsConstructor == null) {
+            final ScriptableObject constructor;
+            if ("Window".equals(jsClassName)) {
+                constructor = (ScriptableObject) ScriptableObject.getProperty(window, "constructor");
+            }
+            else {
+                constructor = hostClass.newInstance();
+                ((SimpleScriptable) constructor).setClassName(config.getClassName());
+            }
+            defineConstructor(window, prototype, constructor);
+            configureConstantsStaticPropertiesAndStaticFunctions(config, constructor);
+        }
+        else {
+            final BaseFunction function;
+            if ("Window".equals(jsClassName)) {
+                function = (BaseFunction) ScriptableObject.getProperty(window, "constructor");
+            }
+            else {
+                function = new RecursiveFunctionObject(jsClassName, jsConstructor, window);
+            }
+
+            if (hostClass.isAlias()) {
+                final Object prototypeProperty = ScriptableObject.getProperty(window, prototype.getClassName());
+
+                if (function instanceof FunctionObject) {
+                    try {
+                        ((FunctionObject) function).addAsConstructor(window, prototype);
+                    }
+                    catch (final Exception e) {
+                        // TODO see issue #1897
+                        if (LOG.isWarnEnabled()) {
+                            final String newline = System.lineSeparator();
+                            LOG.warn("Error during JavaScriptEngine.init(WebWindow, Context)" + newline
+                                    + e.getMessage() + newline
+                                    + "prototype: " + prototype.getClassName());
+                        }
+                    }
+                }
+
+                ScriptableObject.defineProperty(window, hostClassSimpleName, function,
+                        ScriptableObject.DONTENUM);
+
+                // the prototype class name is set as a side effect of functionObject.addAsConstructor
+                // so we restore its value
+                if (!hostClassSimpleName.equals(prototype.getClassName())) {
+                    if (prototypeProperty == UniqueTag.NOT_FOUND) {
+                        ScriptableObject.deleteProperty(window, prototype.getClassName());
+                    }
+                    else {
+                        ScriptableObject.defineProperty(window, prototype.getClassName(),
+                                prototypeProperty, ScriptableObject.DONTENUM);
+                    }
+                }
+            }
+            else {
+                if (function instanceof FunctionObject) {
+                    try {
+                        ((FunctionObject) function).addAsConstructor(window, prototype);
+                    }
+                    catch (final Exception e) {
+                        // TODO see issue #1897
+                        if (LOG.isWarnEnabled()) {
+                            final String newline = System.lineSeparator();
+                            LOG.warn("Error during JavaScriptEngine.init(WebWindow, Context)" + newline
+                                    + e.getMessage() + newline
+                                    + "prototype: " + prototype.getClassName());
+                        }
+                    }
+                }
+            }
+
+            configureConstantsStaticPropertiesAndStaticFunctions(config, function);
+        }
+    }
+
+    private static HtmlUnitScriptable configureClass(final WindowTemplate.HostClass hostClass,
+            final Scriptable window) {
+        final ClassConfiguration config = hostClass.getConfig();
+        final HtmlUnitScriptable prototype = hostClass.newInstance();
         prototype.setParentScope(window);
         prototype.setClassName(config.getClassName());
 
@@ -765,6 +749,22 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             LOG.trace("Javascript compile " + sourceName + newline + sourceCode + newline);
         }
 
+        // the preprocessor and the debugger may work per page; compiled scripts are not shared in this case
+        final WebClient webClient = getWebClient();
+        CompiledScriptCache scriptCache = null;
+        if (webClient != null && webClient.getScriptPreProcessor() == null
+                && getContextFactory().getDebugger() == null) {
+            scriptCache = webClient.getCompiledScriptCache();
+        }
+        final boolean bytecode = getContextFactory().isCompileToBytecode();
+        if (scriptCache != null) {
+            final Script cached = scriptCache.get(sourceCode, sourceName, startLine,
+                    webClient.getBrowserVersion(), bytecode);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         final ContextAction<Object> action = new HtmlUnitContextAction(scope, owningPage) {
             @Override
             public Object doRun(final Context cx) {
@@ -777,7 +777,11 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             }
         };
 
-        return (Script) getContextFactory().callSecured(action, owningPage);
+        final Script script = (Script) getContextFactory().callSecured(action, owningPage);
+        if (scriptCache != null && script != null) {
+            scriptCache.put(sourceCode, sourceName, startLine, webClient.getBrowserVersion(), bytecode, script);
+        }
+        return script;
     }
 
     /**
@@ -1122,6 +1126,15 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         return jsConfig_.getDomJavaScriptMappingFor(c);
     }
 
+    /**
+     * Gets the configuration of the JavaScript object for the node class.
+     * @param c the node class {@link DomNode} or some subclass.
+     * @return {@code null} if none found
+     */
+    public ClassConfiguration getJavaScriptClassConfiguration(final Class<?> c) {
+        return jsConfig_.getDomJavaScriptConfigurationFor(c);
+    }
+
     /**
      * Gets the associated configuration.
      * @return the configuration
@@ -29,6 +29,7 @@ import com.gargoylesoftware.htmlunit.WebWindow;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlImage;
+import com.gargoylesoftware.htmlunit.javascript.configuration.ClassConfiguration;
 import com.gargoylesoftware.htmlunit.javascript.host.Window;
 import com.gargoylesoftware.htmlunit.javascript.host.html.HTMLElement;
 import com.gargoylesoftware.htmlunit.javascript.host.html.HTMLUnknownElement;
@@ -195,39 +196,39 @@ public class SimpleScriptable extends HtmlUnitScriptable implements Cloneable {
         // Get the JS class name for the specified DOM node.
         // Walk up the inheritance chain if necessary.
         Class<? extends SimpleScriptable> javaScriptClass = null;
+        SimpleScriptable scriptable = null;
         if (domNode instanceof HtmlImage && "image".equals(((HtmlImage) domNode).getOriginalQualifiedName())
                 && ((HtmlImage) domNode).wasCreatedByJavascript()) {
             if (domNode.hasFeature(HTMLIMAGE_HTMLELEMENT)) {
                 javaScriptClass = HTMLElement.class;
+                scriptable = new HTMLElement();
             }
             else if (domNode.hasFeature(HTMLIMAGE_HTMLUNKNOWNELEMENT)) {
                 javaScriptClass = HTMLUnknownElement.class;
+                scriptable = new HTMLUnknownElement();
             }
         }
         if (javaScriptClass == null) {
             final JavaScriptEngine javaScriptEngine =
                     (JavaScriptEngine) getWindow().getWebWindow().getWebClient().getJavaScriptEngine();
-            for (Class<?> c = domNode.getClass(); javaScriptClass == null && c != null; c = c.getSuperclass()) {
-                javaScriptClass = (Class<? extends SimpleScriptable>) javaScriptEngine.getJavaScriptClass(c);
+            ClassConfiguration config = null;
+            for (Class<?> c = domNode.getClass(); config == null && c != null; c = c.getSuperclass()) {
+                config = javaScriptEngine.getJavaScriptClassConfiguration(c);
+            }
+            if (config != null) {
+                // the constructor is linked once per class, see ClassConfiguration#newInstance()
+                javaScriptClass = (Class<? extends SimpleScriptable>) config.getHostClass();
+                scriptable = (SimpleScriptable) config.newInstance();
             }
         }
 
-        final SimpleScriptable scriptable;
-        if (javaScriptClass == null) {
+        if (scriptable == null) {
             // We don't have a specific subclass for this element so create something generic.
             scriptable = new HTMLElement();
             if (LOG.isDebugEnabled()) {
                 LOG.debug("No JavaScript class found for element <" + domNode.getNodeName() + ">. Using HTMLElement");
             }
         }
-        else {
-            try {
-                scriptable = javaScriptClass.newInstance();
-            }
-            catch (final Exception e) {
-                throw Context.throwAsScriptRuntimeEx(e);
-            }
-        }
         initParentScope(domNode, scriptable);
 
         scriptable.setPrototype(getPrototype(javaScriptClass));
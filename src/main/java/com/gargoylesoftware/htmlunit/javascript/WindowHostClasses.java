@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gargoylesoftware.htmlunit.javascript.host.Window;
+
+import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * The prototypes and the global constructors of the host classes of a window.
+ * Most pages use only a few of the host classes, therefore a host class is set up on first use:
+ * when its global constructor is looked up, changed or deleted, when its prototype is needed
+ * for a host object or when all the properties of the window are requested.
+ * A host class is always set up together with its parent classes and with the classes
+ * sharing its prototype, the result is the same as if all were set up with the window.
+ */
+public final class WindowHostClasses implements Serializable {
+
+    private final Window window_;
+    private final Map<Class<? extends Scriptable>, Scriptable> prototypes_ = new HashMap<>();
+    private final Map<String, Scriptable> prototypesPerJSName_ = new HashMap<>();
+
+    // only needed as long as there are host classes not set up, see Window#writeReplace()
+    private transient WindowTemplate template_;
+    private transient Scriptable[] prototypesPerIndex_;
+    private transient boolean[] initialized_;
+    private transient int pending_;
+
+    /**
+     * Creates a new instance.
+     * @param window the window
+     * @param template the template for the browser version of the window
+     */
+    WindowHostClasses(final Window window, final WindowTemplate template) {
+        window_ = window;
+        template_ = template;
+
+        final int size = template.getHostClasses().length;
+        prototypesPerIndex_ = new Scriptable[size];
+        initialized_ = new boolean[size];
+        pending_ = size;
+    }
+
+    /**
+     * Returns the prototype of the given host class, the host class is set up if needed.
+     * @param hostClass the host class
+     * @return the prototype or {@code null} if the host class is not configured
+     */
+    public synchronized Scriptable getPrototype(final Class<? extends Scriptable> hostClass) {
+        final Scriptable prototype = prototypes_.get(hostClass);
+        if (prototype != null || pending_ == 0) {
+            return prototype;
+        }
+        final int index = template_.getIndexOfHostClass(hostClass);
+        if (index == WindowTemplate.NONE) {
+            return null;
+        }
+        initialize(index);
+        return prototypesPerIndex_[index];
+    }
+
+    /**
+     * Returns the prototype of the given JavaScript class, the host class is set up if needed.
+     * @param className the JavaScript class name
+     * @return the prototype or {@code null} if the class is not configured
+     */
+    public synchronized Scriptable getPrototype(final String className) {
+        final Scriptable prototype = prototypesPerJSName_.get(className);
+        if (prototype != null || pending_ == 0) {
+            return prototype;
+        }
+        final int index = template_.getIndexOfClassName(className);
+        if (index == WindowTemplate.NONE) {
+            return null;
+        }
+        initialize(index);
+        return prototypesPerIndex_[index];
+    }
+
+    /**
+     * Sets up the host class defining the global constructor of the given name, if not done so far.
+     * Has to be called before a property of the window is accessed.
+     * @param name the name of the property of the window
+     */
+    public synchronized void initializeGlobal(final String name) {
+        if (pending_ != 0) {
+            final int index = template_.getIndexOfGlobal(name);
+            if (index != WindowTemplate.NONE) {
+                initialize(index);
+            }
+        }
+    }
+
+    /**
+     * Sets up all the host classes not set up so far.
+     */
+    public synchronized void initializeAll() {
+        for (int i = 0; pending_ != 0 && i < initialized_.length; i++) {
+            initialize(i);
+        }
+    }
+
+    /**
+     * @return the number of host classes not set up so far
+     */
+    synchronized int getPendingCount() {
+        return pending_;
+    }
+
+    private void initialize(final int index) {
+        if (initialized_[index]) {
+            return;
+        }
+
+        final WindowTemplate.HostClass[] hostClasses = template_.getHostClasses();
+        final int[] group = hostClasses[index].getGroup();
+        // mark first, the setup itself defines the globals
+        for (final int member : group) {
+            initialized_[member] = true;
+        }
+        pending_ -= group.length;
+
+        for (final int member : group) {
+            final int parentIndex = hostClasses[member].getParentIndex();
+            if (parentIndex >= 0) {
+                initialize(parentIndex);
+            }
+        }
+
+        for (final int member : group) {
+            final WindowTemplate.HostClass hostClass = hostClasses[member];
+            final Scriptable prototype = JavaScriptEngine.createPrototype(window_, hostClass);
+            prototypesPerIndex_[member] = prototype;
+            prototypesPerJSName_.put(hostClass.getConfig().getClassName(), prototype);
+            if (!hostClass.isWindow()) {
+                prototypes_.put(hostClass.getConfig().getHostClass(), prototype);
+            }
+        }
+
+        for (final int member : group) {
+            final Scriptable prototype = prototypesPerIndex_[member];
+            final int parentIndex = hostClasses[member].getParentIndex();
+            if (parentIndex == WindowTemplate.OBJECT_PROTOTYPE) {
+                prototype.setPrototype(ScriptableObject.getObjectPrototype(window_));
+            }
+            else if (parentIndex == WindowTemplate.NONE) {
+                prototype.setPrototype(null);
+            }
+            else {
+                prototype.setPrototype(prototypesPerIndex_[parentIndex]);
+            }
+        }
+
+        for (final int member : group) {
+            final int prototypeIndex = hostClasses[member].getConstructorPrototypeIndex();
+            if (prototypeIndex != WindowTemplate.NONE) {
+                JavaScriptEngine.configureConstructor(window_, hostClasses[member],
+                        prototypesPerIndex_[prototypeIndex]);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_IMAGE_PROTOTYPE_SAME_AS_HTML_IMAGE;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.javascript.configuration.ClassConfiguration;
+import com.gargoylesoftware.htmlunit.javascript.configuration.JavaScriptConfiguration;
+import com.gargoylesoftware.htmlunit.javascript.host.Window;
+
+/**
+ * The part of the setup of the host objects of a window that does not depend on the window.
+ * <p>The prototypes itself can't be shared; they belong to the scope of the window and scripts are
+ * free to modify them. But the constructors of the host classes, the prototype each JavaScript
+ * constructor uses and the parent of each prototype are the same for all windows of a
+ * {@link BrowserVersion}. They are resolved once, a new window only has to create its prototypes
+ * and to wire them by index.</p>
+ * <p>The template also knows the global names and the host classes by which the prototypes are
+ * requested; {@link WindowHostClasses} uses this to create them on first use.</p>
+ */
+final class WindowTemplate {
+
+    /** The index of a missing prototype. */
+    static final int NONE = -1;
+
+    /** The parent index of the prototypes extending the {@code Object} prototype. */
+    static final int OBJECT_PROTOTYPE = -2;
+
+    private static final Map<JavaScriptConfiguration, WindowTemplate> TEMPLATES = new WeakHashMap<>();
+
+    private final HostClass[] hostClasses_;
+    private final Map<String, Integer> classNameIndexes_ = new HashMap<>();
+    private final Map<String, Integer> globalIndexes_ = new HashMap<>();
+    private final Map<Class<?>, Integer> hostClassIndexes_ = new HashMap<>();
+
+    private WindowTemplate(final JavaScriptConfiguration jsConfig, final BrowserVersion browserVersion) {
+        final List<ClassConfiguration> configs = new ArrayList<>();
+        for (final ClassConfiguration config : jsConfig.getAll()) {
+            configs.add(config);
+        }
+
+        for (int i = 0; i < configs.size(); i++) {
+            classNameIndexes_.put(configs.get(i).getClassName(), i);
+        }
+
+        final String windowClassName = Window.class.getName();
+        final int size = configs.size();
+        final boolean[] windows = new boolean[size];
+        final int[] prototypeIndexes = new int[size];
+        final boolean[] aliases = new boolean[size];
+        final int[] parentIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            final ClassConfiguration config = configs.get(i);
+            final String hostClassSimpleName = config.getHostClassSimpleName();
+
+            String prototypeName = config.getClassName();
+            boolean alias = false;
+            if ("Image".equals(hostClassSimpleName)) {
+                if (browserVersion.hasFeature(JS_IMAGE_PROTOTYPE_SAME_AS_HTML_IMAGE)) {
+                    prototypeName = "HTMLImageElement";
+                }
+                alias = true;
+            }
+            else if ("Option".equals(hostClassSimpleName)) {
+                prototypeName = "HTMLOptionElement";
+                alias = true;
+            }
+            else if ("WebKitMutationObserver".equals(hostClassSimpleName)) {
+                prototypeName = "MutationObserver";
+                alias = true;
+            }
+            else if ("webkitURL".equals(hostClassSimpleName)) {
+                prototypeName = "URL";
+                alias = true;
+            }
+
+            final int parentIndex;
+            final String extendedClassName = config.getExtendedClassName();
+            if (StringUtils.isEmpty(extendedClassName)) {
+                parentIndex = OBJECT_PROTOTYPE;
+            }
+            else {
+                parentIndex = indexOf(classNameIndexes_, extendedClassName);
+            }
+
+            windows[i] = windowClassName.equals(config.getHostClass().getName());
+            prototypeIndexes[i] = indexOf(classNameIndexes_, prototypeName);
+            aliases[i] = alias;
+            parentIndexes[i] = parentIndex;
+
+            if (!windows[i]) {
+                hostClassIndexes_.put(config.getHostClass(), i);
+            }
+            if (config.isJsObject()) {
+                globalIndexes_.putIfAbsent(config.getClassName(), i);
+                if (alias) {
+                    globalIndexes_.putIfAbsent(hostClassSimpleName, i);
+                }
+            }
+        }
+
+        // the constructors sharing a prototype have to be defined together and in the same order
+        final Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            groups.computeIfAbsent(groupOf(prototypeIndexes, i), k -> new ArrayList<>()).add(i);
+        }
+
+        hostClasses_ = new HostClass[size];
+        for (int i = 0; i < size; i++) {
+            final List<Integer> members = groups.get(groupOf(prototypeIndexes, i));
+            final int[] group = new int[members.size()];
+            for (int j = 0; j < group.length; j++) {
+                group[j] = members.get(j);
+            }
+            hostClasses_[i] = new HostClass(configs.get(i), i, windows[i], prototypeIndexes[i], aliases[i],
+                    parentIndexes[i], group);
+        }
+    }
+
+    private static int groupOf(final int[] prototypeIndexes, final int index) {
+        final int prototypeIndex = prototypeIndexes[index];
+        return prototypeIndex == NONE ? index : prototypeIndex;
+    }
+
+    private static int indexOf(final Map<String, Integer> indexes, final String className) {
+        final Integer index = indexes.get(className);
+        return index == null ? NONE : index;
+    }
+
+    /**
+     * Returns the template for the given configuration.
+     * @param jsConfig the configuration of the browser version
+     * @param browserVersion the browser version
+     * @return the template
+     */
+    static synchronized WindowTemplate getInstance(final JavaScriptConfiguration jsConfig,
+            final BrowserVersion browserVersion) {
+        WindowTemplate template = TEMPLATES.get(jsConfig);
+        if (template == null) {
+            template = new WindowTemplate(jsConfig, browserVersion);
+            TEMPLATES.put(jsConfig, template);
+        }
+        return template;
+    }
+
+    /**
+     * @return the host classes, each one at its index
+     */
+    HostClass[] getHostClasses() {
+        return hostClasses_;
+    }
+
+    /**
+     * @param className the JavaScript class name
+     * @return the index of the host class or {@link #NONE}
+     */
+    int getIndexOfClassName(final String className) {
+        return indexOf(classNameIndexes_, className);
+    }
+
+    /**
+     * @param name the name of a property of the window
+     * @return the index of the host class defining the global of this name or {@link #NONE}
+     */
+    int getIndexOfGlobal(final String name) {
+        return indexOf(globalIndexes_, name);
+    }
+
+    /**
+     * @param hostClass the host class
+     * @return the index of the host class or {@link #NONE}; the {@link Window} itself has no index
+     */
+    int getIndexOfHostClass(final Class<?> hostClass) {
+        final Integer index = hostClassIndexes_.get(hostClass);
+        return index == null ? NONE : index;
+    }
+
+    /**
+     * The resolved setup of one host class.
+     */
+    static final class HostClass {
+        private final ClassConfiguration config_;
+        private final int index_;
+        private final boolean window_;
+        private final int constructorPrototypeIndex_;
+        private final boolean alias_;
+        private final int parentIndex_;
+        private final int[] group_;
+
+        HostClass(final ClassConfiguration config, final int index, final boolean window,
+                final int constructorPrototypeIndex, final boolean alias, final int parentIndex,
+                final int[] group) {
+            config_ = config;
+            index_ = index;
+            window_ = window;
+            constructorPrototypeIndex_ = constructorPrototypeIndex;
+            alias_ = alias;
+            parentIndex_ = parentIndex;
+            group_ = group;
+        }
+
+        /**
+         * @return the configuration
+         */
+        ClassConfiguration getConfig() {
+            return config_;
+        }
+
+        /**
+         * Creates a new instance of the host class.
+         * @return the new instance
+         */
+        HtmlUnitScriptable newInstance() {
+            return config_.newInstance();
+        }
+
+        /**
+         * @return the index of this host class
+         */
+        int getIndex() {
+            return index_;
+        }
+
+        /**
+         * @return whether this is the {@link Window} host class
+         */
+        boolean isWindow() {
+            return window_;
+        }
+
+        /**
+         * @return the index of the prototype used by the JavaScript constructor or {@link WindowTemplate#NONE}
+         */
+        int getConstructorPrototypeIndex() {
+            return constructorPrototypeIndex_;
+        }
+
+        /**
+         * Returns whether the JavaScript constructor is an alias using the prototype of another
+         * host class, like {@code Image} or {@code Option}.
+         * @return whether the constructor is an alias
+         */
+        boolean isAlias() {
+            return alias_;
+        }
+
+        /**
+         * @return the index of the parent prototype, {@link WindowTemplate#OBJECT_PROTOTYPE}
+         *         or {@link WindowTemplate#NONE}
+         */
+        int getParentIndex() {
+            return parentIndex_;
+        }
+
+        /**
+         * Returns the indexes of the host classes the constructors of which use the same prototype,
+         * in the order they have to be defined; this includes this host class.
+         * @return the indexes
+         */
+        int[] getGroup() {
+            return group_;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import com.gargoylesoftware.htmlunit.WebWindow;
 
 /**
  * An event loop to execute all the JavaScript jobs.
+ * If there is nothing to do the loop polls, see {@link #waitForJobs(long)}.
  *
  * @author Amit Manjhi
  * @author Kostadin Chikov
@@ -44,6 +45,10 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     /** Logging support. */
     private static final Log LOG = LogFactory.getLog(DefaultJavaScriptExecutor.class);
 
+    // this has to be a multiple of 10ms
+    // otherwise the VM has to fight with the OS to get such small periods
+    private static final long SLEEP_INTERVAL = 10;
+
     /** Creates an EventLoop for the webClient.
      *
      * @param webClient the provided webClient
@@ -57,7 +62,7 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     /**
      * Starts the eventLoopThread_.
      */
-    protected void startThreadIfNeeded() {
+    protected synchronized void startThreadIfNeeded() {
         if (eventLoopThread_ == null) {
             eventLoopThread_ = new Thread(this, getThreadName());
             eventLoopThread_.setDaemon(true);
@@ -128,16 +133,14 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     @Override
     public void run() {
         final boolean trace = LOG.isTraceEnabled();
-        // this has to be a multiple of 10ms
-        // otherwise the VM has to fight with the OS to get such small periods
-        final long sleepInterval = 10;
         while (!shutdown_.get() && !Thread.currentThread().isInterrupted() && webClient_.get() != null) {
+            long waitTime = Long.MAX_VALUE;
             final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
 
             if (jobManager != null) {
                 final JavaScriptJob earliestJob = jobManager.getEarliestJob();
                 if (earliestJob != null) {
-                    final long waitTime = earliestJob.getTargetExecutionTime() - System.currentTimeMillis();
+                    waitTime = earliestJob.getTargetExecutionTime() - System.currentTimeMillis();
 
                     // do we have to execute the earliest job
                     if (waitTime < 1) {
@@ -161,9 +164,9 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
                 break;
             }
 
-            // nothing to do, let's sleep a bit
+            // nothing to do, let's wait a bit
             try {
-                Thread.sleep(sleepInterval);
+                waitForJobs(waitTime);
             }
             catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -171,6 +174,17 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
         }
     }
 
+    /**
+     * Called by the event loop if there is no job to execute right now.
+     * This implementation sleeps a short time, the loop has a look for jobs again afterwards.
+     * @param waitTime the time (in milliseconds) until the earliest job is due
+     *        or {@link Long#MAX_VALUE} if there is no job
+     * @throws InterruptedException if the thread is interrupted
+     */
+    protected void waitForJobs(final long waitTime) throws InterruptedException {
+        Thread.sleep(SLEEP_INTERVAL);
+    }
+
     /**
      * Register a window with the eventLoop.
      * @param newWindow the new web window
@@ -179,18 +193,36 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     public void addWindow(final WebWindow newWindow) {
         final JavaScriptJobManager jobManager = newWindow.getJobManager();
         if (jobManager != null) {
-            updateJobMangerList(jobManager);
+            if (updateJobMangerList(jobManager)) {
+                jobManagerAdded(jobManager);
+            }
             startThreadIfNeeded();
         }
     }
 
-    private void updateJobMangerList(final JavaScriptJobManager newJobManager) {
+    /**
+     * Called when a job manager is registered with this executor; does nothing by default.
+     * @param jobManager the job manager
+     */
+    protected void jobManagerAdded(final JavaScriptJobManager jobManager) {
+        // nothing
+    }
+
+    /**
+     * Called for every registered job manager when this executor is shut down; does nothing by default.
+     * @param jobManager the job manager
+     */
+    protected void jobManagerRemoved(final JavaScriptJobManager jobManager) {
+        // nothing
+    }
+
+    private boolean updateJobMangerList(final JavaScriptJobManager newJobManager) {
         final List<WeakReference<JavaScriptJobManager>> managers = new LinkedList<>();
         synchronized (jobManagerList_) {
             for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList_) {
                 final JavaScriptJobManager manager = weakReference.get();
                 if (newJobManager == manager) {
-                    return;
+                    return false;
                 }
                 if (null != weakReference.get()) {
                     managers.add(weakReference);
@@ -202,6 +234,7 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
             jobManagerList_.clear();
             jobManagerList_.addAll(managers);
         }
+        return true;
     }
 
     /** Notes that this thread has been shutdown. */
@@ -212,6 +245,12 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
 
         webClient_.clear();
         synchronized (jobManagerList_) {
+            for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList_) {
+                final JavaScriptJobManager jobManager = weakReference.get();
+                if (jobManager != null) {
+                    jobManagerRemoved(jobManager);
+                }
+            }
             jobManagerList_.clear();
         }
     }
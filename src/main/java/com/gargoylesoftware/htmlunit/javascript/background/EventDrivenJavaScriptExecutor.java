@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+
+/**
+ * An event loop to execute all the JavaScript jobs that does not poll.
+ * <p>
+ * In contrast to {@link DefaultJavaScriptExecutor} this executor sleeps until the
+ * target execution time of the earliest job and is woken up by the
+ * {@link JavaScriptJobManager}s as soon as a job is added or removed.
+ * Job managers not created by the {@link BackgroundJavaScriptFactory} are not able
+ * to wake up the executor; as long as one of them is registered the executor
+ * falls back to polling.
+ * <p>
+ * To use this executor, install a {@link BackgroundJavaScriptFactory} that overrides
+ * {@link BackgroundJavaScriptFactory#createJavaScriptExecutor(WebClient)}.
+ */
+public class EventDrivenJavaScriptExecutor extends DefaultJavaScriptExecutor {
+
+    /** The max time to wait if there is nothing to do, to detect a garbage collected WebClient. */
+    private static final long MAX_IDLE_WAIT = 1_000;
+
+    /** The wait time used if we have a job manager that is not able to notify us. */
+    private static final long POLLING_WAIT = 10;
+
+    private final transient Object wakeUpLock_ = new Object();
+    private transient boolean queueChanged_;
+    private transient boolean polling_;
+
+    private final transient Runnable wakeUpCallback_ = this::wakeUp;
+
+    /** Creates an EventLoop for the webClient.
+     *
+     * @param webClient the provided webClient
+     */
+    public EventDrivenJavaScriptExecutor(final WebClient webClient) {
+        super(webClient);
+    }
+
+    /**
+     * Wakes up the event loop because one of the queues has changed.
+     */
+    protected void wakeUp() {
+        synchronized (wakeUpLock_) {
+            queueChanged_ = true;
+            wakeUpLock_.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the earliest job is due or one of the queues has changed.
+     * {@inheritDoc}
+     */
+    @Override
+    protected void waitForJobs(final long waitTime) throws InterruptedException {
+        synchronized (wakeUpLock_) {
+            long wait = Math.min(waitTime, MAX_IDLE_WAIT);
+            if (polling_) {
+                wait = Math.min(wait, POLLING_WAIT);
+            }
+            if (!queueChanged_) {
+                wakeUpLock_.wait(wait);
+            }
+            // every change from now on has to wake us up again
+            queueChanged_ = false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void jobManagerAdded(final JavaScriptJobManager jobManager) {
+        if (jobManager instanceof JavaScriptJobManagerImpl) {
+            ((JavaScriptJobManagerImpl) jobManager).setQueueChangedCallback(wakeUpCallback_);
+        }
+        else {
+            synchronized (wakeUpLock_) {
+                polling_ = true;
+            }
+        }
+        wakeUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void jobManagerRemoved(final JavaScriptJobManager jobManager) {
+        if (jobManager instanceof JavaScriptJobManagerImpl) {
+            ((JavaScriptJobManagerImpl) jobManager).setQueueChangedCallback(null);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+
+/**
+ * A process wide pool of threads executing the JavaScript jobs of many {@link WebClient}s.
+ * <p>
+ * Every {@link WebClient} using the {@link DefaultJavaScriptExecutor} owns a separate event
+ * loop thread. This pool instead multiplexes the job managers of all clients over a bounded
+ * number of threads. Like with the default executor the jobs of one client (and therefore
+ * of every window of this client) are executed one at a time and in the order defined by
+ * the job managers; the jobs of different clients may run in parallel.
+ * <p>
+ * To use the pool, install a {@link BackgroundJavaScriptFactory} whose
+ * {@link BackgroundJavaScriptFactory#createJavaScriptExecutor(WebClient)} returns
+ * {@link #createJavaScriptExecutor(WebClient)}.
+ * <p>
+ * Because the threads are shared, a {@link JavaScriptExecutor#shutdown()} does not stop
+ * a currently running job; the job is allowed to finish.
+ */
+public class JavaScriptExecutorPool {
+
+    /** The max number of jobs of one client that are executed before the thread is yielded to others. */
+    private static final int MAX_JOBS_PER_SLICE = 32;
+
+    /** Logging support. */
+    private static final Log LOG = LogFactory.getLog(JavaScriptExecutorPool.class);
+
+    private final ScheduledThreadPoolExecutor pool_;
+    private final AtomicInteger activeClients_ = new AtomicInteger();
+    private final AtomicLong executedJobs_ = new AtomicLong();
+
+    /**
+     * Creates a new pool using the given number of threads.
+     * @param threads the number of threads
+     */
+    public JavaScriptExecutorPool(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The pool needs at least one thread (" + threads + ").");
+        }
+
+        final AtomicInteger threadNo = new AtomicInteger(1);
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "JS executor pool thread " + threadNo.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        pool_ = new ScheduledThreadPoolExecutor(threads, threadFactory);
+        pool_.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Creates a new {@link JavaScriptExecutor} for the given client that is backed by this pool.
+     * @param webClient the WebClient of the executor
+     * @return the executor
+     */
+    public JavaScriptExecutor createJavaScriptExecutor(final WebClient webClient) {
+        return new PooledJavaScriptExecutor(webClient);
+    }
+
+    /**
+     * Returns the number of threads currently used by this pool.
+     * @return the number of threads
+     */
+    public int getThreadCount() {
+        return pool_.getPoolSize();
+    }
+
+    /**
+     * Returns the number of clients served by this pool that are not shut down and have at least
+     * one window that is not closed.
+     * @return the number of clients
+     */
+    public int getActiveClientCount() {
+        return activeClients_.get();
+    }
+
+    /**
+     * Returns the number of jobs executed by this pool so far.
+     * @return the number of jobs
+     */
+    public long getExecutedJobCount() {
+        return executedJobs_.get();
+    }
+
+    /**
+     * Shuts down the pool. Running jobs are interrupted, all clients are no longer served.
+     */
+    public void shutdown() {
+        pool_.shutdownNow();
+    }
+
+    /**
+     * The executor of one client. All state is guarded by the instance lock.
+     */
+    private final class PooledJavaScriptExecutor implements JavaScriptExecutor {
+
+        private final WeakReference<WebClient> webClient_;
+        private final List<WeakReference<JavaScriptJobManager>> jobManagerList_ = new LinkedList<>();
+        private final Runnable wakeUpCallback_ = this::reschedule;
+
+        private ScheduledFuture<?> pending_;
+        private long pendingTargetTime_;
+        private boolean running_;
+        private boolean shutdown_;
+        // counted in activeClients_
+        private boolean active_;
+
+        PooledJavaScriptExecutor(final WebClient webClient) {
+            webClient_ = new WeakReference<>(webClient);
+        }
+
+        /**
+         * Register a window with the eventLoop.
+         * @param newWindow the new web window
+         */
+        @Override
+        public void addWindow(final WebWindow newWindow) {
+            final JavaScriptJobManager jobManager = newWindow.getJobManager();
+            if (jobManager == null) {
+                return;
+            }
+            if (!(jobManager instanceof JavaScriptJobManagerImpl)) {
+                throw new IllegalArgumentException("The JavaScriptExecutorPool supports only job managers "
+                        + "created by the default BackgroundJavaScriptFactory.");
+            }
+
+            synchronized (this) {
+                if (shutdown_) {
+                    return;
+                }
+                for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList_) {
+                    if (weakReference.get() == jobManager) {
+                        return;
+                    }
+                }
+                jobManagerList_.add(new WeakReference<>(jobManager));
+                setActive(true);
+            }
+            ((JavaScriptJobManagerImpl) jobManager).setQueueChangedCallback(wakeUpCallback_);
+            reschedule();
+        }
+
+        /**
+         * Schedules the execution of the earliest job; invoked every time one of the queues changed.
+         */
+        private synchronized void reschedule() {
+            if (shutdown_ || running_) {
+                // a running slice always reschedules when done
+                return;
+            }
+            if (webClient_.get() == null) {
+                shutdown();
+                return;
+            }
+
+            final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
+            if (jobManagerList_.isEmpty()) {
+                // all windows are closed
+                setActive(false);
+            }
+            final JavaScriptJob earliestJob = jobManager == null ? null : jobManager.getEarliestJob();
+            if (earliestJob == null) {
+                cancelPending();
+                return;
+            }
+
+            final long targetTime = earliestJob.getTargetExecutionTime();
+            if (pending_ != null && !pending_.isDone() && pendingTargetTime_ <= targetTime) {
+                // already scheduled early enough
+                return;
+            }
+            cancelPending();
+            final long delay = Math.max(0, targetTime - System.currentTimeMillis());
+            pendingTargetTime_ = targetTime;
+            try {
+                pending_ = pool_.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+            catch (final RejectedExecutionException e) {
+                LOG.warn("JavaScriptExecutorPool already shut down; job not scheduled", e);
+            }
+        }
+
+        private void setActive(final boolean active) {
+            if (active_ != active) {
+                active_ = active;
+                if (active) {
+                    activeClients_.incrementAndGet();
+                }
+                else {
+                    activeClients_.decrementAndGet();
+                }
+            }
+        }
+
+        private void cancelPending() {
+            if (pending_ != null) {
+                pending_.cancel(false);
+                pending_ = null;
+            }
+        }
+
+        private JavaScriptJobManager getJobManagerWithEarliestJob() {
+            JavaScriptJobManager javaScriptJobManager = null;
+            JavaScriptJob earliestJob = null;
+
+            final Iterator<WeakReference<JavaScriptJobManager>> iter = jobManagerList_.iterator();
+            while (iter.hasNext()) {
+                final JavaScriptJobManager jobManager = iter.next().get();
+                if (jobManager == null || ((JavaScriptJobManagerImpl) jobManager).isShutdown()) {
+                    iter.remove();
+                }
+                else {
+                    final JavaScriptJob newJob = jobManager.getEarliestJob();
+                    if (newJob != null && (earliestJob == null || earliestJob.compareTo(newJob) > 0)) {
+                        earliestJob = newJob;
+                        javaScriptJobManager = jobManager;
+                    }
+                }
+            }
+            return javaScriptJobManager;
+        }
+
+        /**
+         * Runs a slice of due jobs on one of the pool threads.
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (shutdown_ || running_) {
+                    return;
+                }
+                running_ = true;
+                pending_ = null;
+            }
+
+            try {
+                int executed = 0;
+                while (executed < MAX_JOBS_PER_SLICE && !Thread.currentThread().isInterrupted()) {
+                    final JavaScriptJobManager jobManager;
+                    final JavaScriptJob earliestJob;
+                    synchronized (this) {
+                        if (shutdown_) {
+                            break;
+                        }
+                        jobManager = getJobManagerWithEarliestJob();
+                        earliestJob = jobManager == null ? null : jobManager.getEarliestJob();
+                    }
+                    if (earliestJob == null
+                            || earliestJob.getTargetExecutionTime() > System.currentTimeMillis()) {
+                        break;
+                    }
+
+                    jobManager.runSingleJob(earliestJob);
+                    executedJobs_.incrementAndGet();
+                    executed++;
+                }
+            }
+            catch (final RuntimeException e) {
+                LOG.error("Job execution failed with unexpected RuntimeException: " + e.getMessage(), e);
+            }
+            finally {
+                synchronized (this) {
+                    running_ = false;
+                }
+                reschedule();
+            }
+        }
+
+        /** Notes that this executor has been shutdown. */
+        @Override
+        public void shutdown() {
+            synchronized (this) {
+                if (shutdown_) {
+                    return;
+                }
+                shutdown_ = true;
+                cancelPending();
+
+                for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList_) {
+                    final JavaScriptJobManager jobManager = weakReference.get();
+                    if (jobManager instanceof JavaScriptJobManagerImpl) {
+                        ((JavaScriptJobManagerImpl) jobManager).setQueueChangedCallback(null);
+                    }
+                }
+                jobManagerList_.clear();
+                webClient_.clear();
+                setActive(false);
+            }
+        }
+    }
+}
@@ -17,8 +17,10 @@ package com.gargoylesoftware.htmlunit.javascript.background;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.PriorityQueue;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
@@ -49,15 +51,37 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
     private final transient WeakReference<WebWindow> window_;
 
     /**
-     * Queue of jobs that are scheduled to run. This is a priority queue, sorted
+     * Orders the jobs like {@link JavaScriptJob#compareTo(Object)}; jobs with the same
+     * priority are ordered by id to make the order total.
+     */
+    private static final Comparator<JavaScriptJob> JOB_ORDER = (job1, job2) -> {
+        final int result = job1.compareTo(job2);
+        if (result != 0) {
+            return result;
+        }
+        return job1.getId().compareTo(job2.getId());
+    };
+
+    /**
+     * Queue of jobs that are scheduled to run. This is a sorted set, sorted
      * by closest target execution time.
      */
-    private transient PriorityQueue<JavaScriptJob> scheduledJobsQ_ = new PriorityQueue<>();
+    private transient TreeSet<JavaScriptJob> scheduledJobsQ_ = new TreeSet<>(JOB_ORDER);
 
-    private transient ArrayList<Integer> cancelledJobs_ = new ArrayList<>();
+    /** Index of all the jobs in {@link #scheduledJobsQ_} by id. */
+    private transient Map<Integer, JavaScriptJob> scheduledJobsById_ = new HashMap<>();
 
     private transient JavaScriptJob currentlyRunningJob_;
 
+    /** Whether the currently running job was removed; periodic jobs are not rescheduled in this case. */
+    private transient boolean currentlyRunningJobCancelled_;
+
+    /** Invoked whenever the queue changed; used to wake up waiting executors (may be {@code null}). */
+    private transient volatile Runnable queueChangedCallback_;
+
+    /** Set once the window of this manager was closed. */
+    private transient volatile boolean shutdown_;
+
     /** A counter used to generate the IDs assigned to {@link JavaScriptJob}s. */
     private static final AtomicInteger NEXT_JOB_ID_ = new AtomicInteger(1);
 
@@ -120,7 +144,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         job.setId(Integer.valueOf(id));
 
         synchronized (this) {
-            scheduledJobsQ_.add(job);
+            schedule(job);
 
             if (LOG.isDebugEnabled()) {
                 LOG.debug("job added to queue");
@@ -132,50 +156,81 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
             notify();
         }
+        fireQueueChanged();
 
         return id;
     }
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void removeJob(final int id) {
-        for (final JavaScriptJob job : scheduledJobsQ_) {
-            final int jobId = job.getId().intValue();
-            if (jobId == id) {
-                scheduledJobsQ_.remove(job);
-                break;
-            }
+    public void removeJob(final int id) {
+        synchronized (this) {
+            cancel(id);
+            notify();
         }
-        cancelledJobs_.add(Integer.valueOf(id));
-        notify();
+        fireQueueChanged();
     }
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void stopJob(final int id) {
-        for (final JavaScriptJob job : scheduledJobsQ_) {
-            final int jobId = job.getId().intValue();
-            if (jobId == id) {
-                scheduledJobsQ_.remove(job);
-                // TODO: should we try to interrupt the job if it is running?
-                break;
-            }
+    public void stopJob(final int id) {
+        synchronized (this) {
+            // TODO: should we try to interrupt the job if it is running?
+            cancel(id);
+            notify();
         }
-        cancelledJobs_.add(Integer.valueOf(id));
-        notify();
+        fireQueueChanged();
     }
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void removeAllJobs() {
-        if (currentlyRunningJob_ != null) {
-            cancelledJobs_.add(currentlyRunningJob_.getId());
+    public void removeAllJobs() {
+        synchronized (this) {
+            if (currentlyRunningJob_ != null) {
+                currentlyRunningJobCancelled_ = true;
+            }
+            scheduledJobsQ_.clear();
+            scheduledJobsById_.clear();
+            notify();
         }
-        for (final JavaScriptJob job : scheduledJobsQ_) {
-            cancelledJobs_.add(job.getId());
+        fireQueueChanged();
+    }
+
+    /**
+     * Adds the job to the queue and the index; the caller has to hold the lock.
+     * @param job the job to schedule
+     */
+    private void schedule(final JavaScriptJob job) {
+        scheduledJobsQ_.add(job);
+        scheduledJobsById_.put(job.getId(), job);
+    }
+
+    /**
+     * Removes the job from the queue and the index; the caller has to hold the lock.
+     * @param job the job to remove
+     * @return true if the job was scheduled
+     */
+    private boolean unschedule(final JavaScriptJob job) {
+        if (scheduledJobsById_.remove(job.getId()) == null) {
+            return false;
+        }
+        scheduledJobsQ_.remove(job);
+        return true;
+    }
+
+    /**
+     * Removes the job with the given id from the queue or marks the currently
+     * running job as cancelled; the caller has to hold the lock.
+     * @param id the id of the job
+     */
+    private void cancel(final int id) {
+        final JavaScriptJob job = scheduledJobsById_.get(Integer.valueOf(id));
+        if (job != null) {
+            unschedule(job);
+        }
+        if (currentlyRunningJob_ != null && currentlyRunningJob_.getId().intValue() == id) {
+            currentlyRunningJobCancelled_ = true;
         }
-        scheduledJobsQ_.clear();
-        notify();
     }
 
     /** {@inheritDoc} */
@@ -267,9 +322,39 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void shutdown() {
-        scheduledJobsQ_.clear();
-        notify();
+    public void shutdown() {
+        shutdown_ = true;
+        synchronized (this) {
+            scheduledJobsQ_.clear();
+            scheduledJobsById_.clear();
+            notify();
+        }
+        fireQueueChanged();
+    }
+
+    /**
+     * Sets the callback to be invoked every time the queue of this manager changes.
+     * This allows executors to sleep until the next job is due instead of polling.
+     * The callback is always invoked without holding the lock of this manager.
+     * @param callback the callback or {@code null}
+     */
+    void setQueueChangedCallback(final Runnable callback) {
+        queueChangedCallback_ = callback;
+    }
+
+    /**
+     * Returns whether this manager was shut down because its window was closed.
+     * @return {@code true} if shut down
+     */
+    boolean isShutdown() {
+        return shutdown_;
+    }
+
+    private void fireQueueChanged() {
+        final Runnable callback = queueChangedCallback_;
+        if (callback != null) {
+            callback.run();
+        }
     }
 
     /**
@@ -357,8 +442,11 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
      * {@inheritDoc}
      */
     @Override
-    public JavaScriptJob getEarliestJob() {
-        return scheduledJobsQ_.peek();
+    public synchronized JavaScriptJob getEarliestJob() {
+        if (scheduledJobsQ_.isEmpty()) {
+            return null;
+        }
+        return scheduledJobsQ_.first();
     }
 
     /**
@@ -367,7 +455,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
     @Override
     public synchronized JavaScriptJob getEarliestJob(final JavaScriptJobFilter filter) {
         if (filter == null) {
-            return scheduledJobsQ_.peek();
+            return getEarliestJob();
         }
 
         for (final JavaScriptJob job : scheduledJobsQ_) {
@@ -393,9 +481,12 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         if (job.getTargetExecutionTime() > currentTime) {
             return false;
         }
+        final boolean cancelled;
         synchronized (this) {
-            if (scheduledJobsQ_.remove(job)) {
+            cancelled = !unschedule(job);
+            if (!cancelled) {
                 currentlyRunningJob_ = job;
+                currentlyRunningJobCancelled_ = false;
             }
             // no need to notify if processing is started
         }
@@ -412,14 +503,15 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
             // queue
             synchronized (this) {
-                if (!cancelledJobs_.contains(job.getId())) {
+                if (!cancelled && !(job == currentlyRunningJob_ && currentlyRunningJobCancelled_)) {
                     if (debug) {
                         LOG.debug("Reschedulling job " + job);
                     }
-                    scheduledJobsQ_.add(job);
+                    schedule(job);
                     notify();
                 }
             }
+            fireQueueChanged();
         }
         if (debug) {
             final String periodicJob = isPeriodicJob ? "interval " : "";
@@ -456,8 +548,9 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         in.defaultReadObject();
 
         // we do not store the jobs (at the moment)
-        scheduledJobsQ_ = new PriorityQueue<>();
-        cancelledJobs_ = new ArrayList<>();
+        scheduledJobsQ_ = new TreeSet<>(JOB_ORDER);
+        scheduledJobsById_ = new HashMap<>();
         currentlyRunningJob_ = null;
+        currentlyRunningJobCancelled_ = false;
     }
 }
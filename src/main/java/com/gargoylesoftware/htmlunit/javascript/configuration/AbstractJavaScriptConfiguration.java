@@ -54,7 +54,7 @@ public abstract class AbstractJavaScriptConfiguration {
 
     private static final Map<String, String> CLASS_NAME_MAP_ = new ConcurrentHashMap<>();
 
-    private Map<Class<?>, Class<? extends HtmlUnitScriptable>> domJavaScriptMap_;
+    private Map<Class<?>, ClassConfiguration> domJavaScriptMap_;
 
     private final Map<String, ClassConfiguration> configuration_;
 
@@ -372,9 +372,21 @@ public abstract class AbstractJavaScriptConfiguration {
      * @return the mappings
      */
     public Class<? extends HtmlUnitScriptable> getDomJavaScriptMappingFor(final Class<?> clazz) {
+        final ClassConfiguration classConfig = getDomJavaScriptConfigurationFor(clazz);
+        if (classConfig == null) {
+            return null;
+        }
+        return classConfig.getHostClass();
+    }
+
+    /**
+     * Returns the configuration of the JavaScript class used for the given DOM class.
+     * @param clazz the DOM class
+     * @return the configuration or {@code null} if the DOM class is not mapped
+     */
+    public ClassConfiguration getDomJavaScriptConfigurationFor(final Class<?> clazz) {
         if (domJavaScriptMap_ == null) {
-            final Map<Class<?>, Class<? extends HtmlUnitScriptable>> map =
-                    new ConcurrentHashMap<>(configuration_.size());
+            final Map<Class<?>, ClassConfiguration> map = new ConcurrentHashMap<>(configuration_.size());
 
             final boolean debug = LOG.isDebugEnabled();
             for (final String hostClassName : configuration_.keySet()) {
@@ -384,7 +396,7 @@ public abstract class AbstractJavaScriptConfiguration {
                     if (debug) {
                         LOG.debug("Mapping " + domClass.getName() + " to " + hostClassName);
                     }
-                    map.put(domClass, classConfig.getHostClass());
+                    map.put(domClass, classConfig);
                 }
             }
 
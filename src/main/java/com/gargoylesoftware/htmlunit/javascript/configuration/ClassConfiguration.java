@@ -14,12 +14,18 @@
  */
 package com.gargoylesoftware.htmlunit.javascript.configuration;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.gargoylesoftware.htmlunit.javascript.HtmlUnitScriptable;
 
@@ -53,6 +59,7 @@ public final class ClassConfiguration {
     private final Class<?>[] domClasses_;
     private final boolean jsObject_;
     private final String className_;
+    private volatile Supplier<? extends HtmlUnitScriptable> factory_;
 
     /**
      * Constructor.
@@ -240,6 +247,61 @@ public final class ClassConfiguration {
         return hostClass_;
     }
 
+    /**
+     * Creates a new instance of the host class using its default constructor.
+     * The constructor is linked only once, on first use; this is much cheaper than
+     * {@link Class#newInstance()} for every host object.
+     * @return the new instance
+     */
+    public HtmlUnitScriptable newInstance() {
+        final Supplier<? extends HtmlUnitScriptable> factory = factory_;
+        if (factory != null) {
+            return factory.get();
+        }
+
+        Supplier<? extends HtmlUnitScriptable> newFactory = createFactory(hostClass_);
+        HtmlUnitScriptable instance;
+        try {
+            instance = newFactory.get();
+        }
+        catch (final LinkageError e) {
+            // the generated factory can't access the host class, e.g. because of the class loader
+            newFactory = createReflectiveFactory(hostClass_);
+            instance = newFactory.get();
+        }
+        factory_ = newFactory;
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<? extends HtmlUnitScriptable> createFactory(
+            final Class<? extends HtmlUnitScriptable> hostClass) {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle constructor = lookup.findConstructor(hostClass, MethodType.methodType(void.class));
+            final CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                    constructor, MethodType.methodType(hostClass));
+            return (Supplier<? extends HtmlUnitScriptable>) site.getTarget().invoke();
+        }
+        catch (final Throwable t) {
+            // e.g. the constructor is not public
+            return createReflectiveFactory(hostClass);
+        }
+    }
+
+    private static Supplier<? extends HtmlUnitScriptable> createReflectiveFactory(
+            final Class<? extends HtmlUnitScriptable> hostClass) {
+        return () -> {
+            try {
+                return hostClass.getDeclaredConstructor().newInstance();
+            }
+            catch (final ReflectiveOperationException e) {
+                throw Context.throwAsScriptRuntimeEx(e);
+            }
+        };
+    }
+
     /**
      * @return the hostClassSimpleName
      */
@@ -21,6 +21,7 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_WINDOW_FRA
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_WINDOW_FRAME_BY_ID_RETURNS_WINDOW;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_WINDOW_SELECTION_NULL_IF_INVISIBLE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_WINDOW_TOP_WRITABLE;
+import static com.gargoylesoftware.htmlunit.html.DomElement.ATTRIBUTE_NOT_DEFINED;
 import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBrowser.CHROME;
 import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBrowser.EDGE;
 import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBrowser.FF;
@@ -35,7 +36,6 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -90,6 +90,7 @@ import com.gargoylesoftware.htmlunit.html.HtmlTextArea;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.PostponedAction;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.WindowHostClasses;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxClass;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstant;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstructor;
@@ -100,6 +101,7 @@ import com.gargoylesoftware.htmlunit.javascript.host.crypto.Crypto;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSS2Properties;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSSStyleSheet;
 import com.gargoylesoftware.htmlunit.javascript.host.css.MediaQueryList;
+import com.gargoylesoftware.htmlunit.javascript.host.css.SelectorDependencies;
 import com.gargoylesoftware.htmlunit.javascript.host.css.StyleMedia;
 import com.gargoylesoftware.htmlunit.javascript.host.css.StyleSheetList;
 import com.gargoylesoftware.htmlunit.javascript.host.dom.Document;
@@ -184,8 +186,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
     private Selection selection_;
     private Event currentEvent_;
     private String status_ = "";
-    private Map<Class<? extends Scriptable>, Scriptable> prototypes_ = new HashMap<>();
-    private Map<String, Scriptable> prototypesPerJSName_ = new HashMap<>();
+    private WindowHostClasses hostClasses_;
     private Object controllers_;
     private Object opener_;
     private Object top_ = NOT_FOUND; // top can be set from JS to any value!
@@ -211,15 +212,17 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * Cache computed styles when possible, because their calculation is very expensive.
      * We use a weak hash map because we don't want this cache to be the only reason
      * nodes are kept around in the JVM, if all other references to them are gone.
+     * The styles are stored per dom node, this way the styles of a changed subtree can
+     * be removed without creating the js objects of all the nodes.
      */
     private static final class CSSPropertiesCache implements Serializable {
-        private transient WeakHashMap<Element, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
+        private transient WeakHashMap<DomNode, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
 
         CSSPropertiesCache() {
         }
 
         public synchronized CSS2Properties get(final Element element, final String normalizedPseudo) {
-            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element.getDomNodeOrDie());
             if (elementMap != null) {
                 return elementMap.get(normalizedPseudo);
             }
@@ -227,54 +230,82 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         }
 
         public synchronized void put(final Element element, final String normalizedPseudo, final CSS2Properties style) {
-            Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+            final DomNode node = element.getDomNodeOrDie();
+            Map<String, CSS2Properties> elementMap = computedStyles_.get(node);
             if (elementMap == null) {
                 elementMap = new WeakHashMap<>();
-                computedStyles_.put(element, elementMap);
+                computedStyles_.put(node, elementMap);
             }
             elementMap.put(normalizedPseudo, style);
         }
 
-        public synchronized void nodeChanged(final DomNode changed, final boolean clearParents) {
-            final Iterator<Map.Entry<Element, Map<String, CSS2Properties>>> i = computedStyles_.entrySet().iterator();
-            while (i.hasNext()) {
-                final Map.Entry<Element, Map<String, CSS2Properties>> entry = i.next();
-                final DomNode node = entry.getKey().getDomNodeOrDie();
-                if (changed == node
-                    || changed.getParentNode() == node.getParentNode()
-                    || changed.isAncestorOf(node)
-                    || clearParents && node.isAncestorOf(changed)) {
-                    i.remove();
+        public synchronized boolean isEmpty() {
+            return computedStyles_.isEmpty();
+        }
+
+        /**
+         * Removes the styles of the changed node, of its siblings and of all descendants.
+         * @param changed the changed node
+         * @param parent the parent of the changed node (the former parent if the node was removed)
+         * @param clearParents whether to remove also the styles of the ancestors
+         */
+        public synchronized void nodeChanged(final DomNode changed, final DomNode parent, final boolean clearParents) {
+            if (computedStyles_.isEmpty()) {
+                return;
+            }
+
+            removeSubtree(changed);
+            if (parent != null) {
+                for (DomNode sibling = parent.getFirstChild(); sibling != null; sibling = sibling.getNextSibling()) {
+                    computedStyles_.remove(sibling);
+                }
+
+                if (clearParents) {
+                    for (DomNode ancestor = parent; ancestor != null; ancestor = ancestor.getParentNode()) {
+                        computedStyles_.remove(ancestor);
+                    }
                 }
             }
+        }
+
+        /**
+         * Removes the styles of the changed element and of all descendants; used if the matching of
+         * selectors may have changed for this element only.
+         * @param changed the changed node
+         * @param followingSiblings whether to remove also the following siblings (with descendants)
+         * @param clearParents whether to remove also the styles of the ancestors
+         */
+        public synchronized void elementChanged(final DomNode changed, final boolean followingSiblings,
+                final boolean clearParents) {
+            if (computedStyles_.isEmpty()) {
+                return;
+            }
 
-            // maybe this is a better solution but i have to think a bit more about this
-            //
-            //            if (computedStyles_.isEmpty()) {
-            //                return;
-            //            }
-            //
-            //            // remove all siblings
-            //            DomNode parent = changed.getParentNode();
-            //            if (parent != null) {
-            //                for (DomNode sibling : parent.getChildNodes()) {
-            //                    computedStyles_.remove(sibling.getScriptableObject());
-            //                }
-            //
-            //                if (clearParents) {
-            //                    // remove all parents
-            //                    while (parent != null) {
-            //                        computedStyles_.remove(parent.getScriptableObject());
-            //                        parent = parent.getParentNode();
-            //                    }
-            //                }
-            //            }
-            //
-            //            // remove changed itself and all descendants
-            //            computedStyles_.remove(changed.getScriptableObject());
-            //            for (DomNode descendant : changed.getDescendants()) {
-            //                computedStyles_.remove(descendant.getScriptableObject());
-            //            }
+            removeSubtree(changed);
+            if (followingSiblings) {
+                for (DomNode sibling = changed.getNextSibling(); sibling != null; sibling = sibling.getNextSibling()) {
+                    removeSubtree(sibling);
+                }
+            }
+            if (clearParents) {
+                for (DomNode ancestor = changed.getParentNode(); ancestor != null;
+                        ancestor = ancestor.getParentNode()) {
+                    computedStyles_.remove(ancestor);
+                }
+            }
+        }
+
+        private void removeSubtree(final DomNode root) {
+            computedStyles_.remove(root);
+            if (root.getFirstChild() == null) {
+                return;
+            }
+            for (final DomNode descendant : root.getDescendants()) {
+                if (computedStyles_.isEmpty()) {
+                    return;
+                }
+                computedStyles_.remove(descendant);
+            }
         }
 
         public synchronized void clear() {
@@ -282,7 +313,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         }
 
         public synchronized Map<String, CSS2Properties> remove(final Element element) {
-            return computedStyles_.remove(element);
+            return computedStyles_.remove(element.getDomNodeOrDie());
         }
 
         private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -324,6 +355,18 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         animationFrames_ = new ArrayList<>();
     }
 
+    /**
+     * Sets up all the host classes before this window is serialized; the setup can't be done
+     * after deserialization.
+     * @return this window
+     */
+    private Object writeReplace() {
+        if (hostClasses_ != null) {
+            hostClasses_.initializeAll();
+        }
+        return this;
+    }
+
     /**
      * Returns the prototype object corresponding to the specified HtmlUnit class inside the window scope.
      * @param jsClass the class whose prototype is to be returned
@@ -331,7 +374,10 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      */
     @Override
     public Scriptable getPrototype(final Class<? extends SimpleScriptable> jsClass) {
-        return prototypes_.get(jsClass);
+        if (hostClasses_ == null) {
+            return null;
+        }
+        return hostClasses_.getPrototype(jsClass);
     }
 
     /**
@@ -340,18 +386,108 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * @return the prototype object corresponding to the specified class inside the specified scope
      */
     public Scriptable getPrototype(final String className) {
-        return prototypesPerJSName_.get(className);
+        if (hostClasses_ == null) {
+            return null;
+        }
+        return hostClasses_.getPrototype(className);
+    }
+
+    /**
+     * Sets the host classes providing the prototypes and the global constructors.
+     * @param hostClasses the host classes
+     */
+    public void setHostClasses(final WindowHostClasses hostClasses) {
+        hostClasses_ = hostClasses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start) {
+        if (hostClasses_ != null) {
+            hostClasses_.initializeGlobal(name);
+        }
+        return super.get(name, start);
     }
 
     /**
-     * Sets the prototypes for HtmlUnit host classes.
-     * @param map a Map of ({@link Class}, {@link Scriptable})
-     * @param prototypesPerJSName map of {@link String} and {@link Scriptable}
+     * {@inheritDoc}
      */
-    public void setPrototypes(final Map<Class<? extends Scriptable>, Scriptable> map,
-            final Map<String, Scriptable> prototypesPerJSName) {
-        prototypes_ = map;
-        prototypesPerJSName_ = prototypesPerJSName;
+    @Override
+    public boolean has(final String name, final Scriptable start) {
+        if (hostClasses_ != null) {
+            hostClasses_.initializeGlobal(name);
+        }
+        return super.has(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value) {
+        if (hostClasses_ != null) {
+            hostClasses_.initializeGlobal(name);
+        }
+        super.put(name, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name) {
+        if (hostClasses_ != null) {
+            hostClasses_.initializeGlobal(name);
+        }
+        super.delete(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void defineOwnProperty(final Context cx, final Object id, final ScriptableObject desc) {
+        if (hostClasses_ != null && id instanceof String) {
+            hostClasses_.initializeGlobal((String) id);
+        }
+        super.defineOwnProperty(cx, id, desc);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ScriptableObject getOwnPropertyDescriptor(final Context cx, final Object id) {
+        if (hostClasses_ != null && id instanceof String) {
+            hostClasses_.initializeGlobal((String) id);
+        }
+        return super.getOwnPropertyDescriptor(cx, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getAllIds() {
+        // the global constructors are not enumerable, getIds() does not need them
+        if (hostClasses_ != null) {
+            hostClasses_.initializeAll();
+        }
+        return super.getAllIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Used by {@code Object.getOwnPropertyNames()} and {@code Reflect.ownKeys()}.
+     */
+    @Override
+    public Object[] getIds(final boolean getNonEnumerable, final boolean getSymbols) {
+        if (getNonEnumerable && hostClasses_ != null) {
+            hostClasses_.initializeAll();
+        }
+        return super.getIds(getNonEnumerable, getSymbols);
     }
 
     /**
@@ -1593,11 +1729,8 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
             }
 
             @Override
-            protected EffectOnCache getEffectOnCache(final HtmlAttributeChangeEvent event) {
-                if ("name".equals(event.getName())) {
-                    return EffectOnCache.RESET;
-                }
-                return EffectOnCache.NONE;
+            protected String[] getAttributeDependencies() {
+                return new String[] {"name"};
             }
         };
     }
@@ -2021,7 +2154,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void nodeAdded(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2029,7 +2162,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void nodeDeleted(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2037,7 +2170,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            attributeChanged(event, null, event.getValue());
         }
 
         /**
@@ -2045,7 +2178,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            attributeChanged(event, event.getValue(), null);
         }
 
         /**
@@ -2053,10 +2186,81 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            final String newValue = element.getAttribute(event.getName());
+            attributeChanged(event, event.getValue(), ATTRIBUTE_NOT_DEFINED == newValue ? null : newValue);
+        }
+
+        private void attributeChanged(final HtmlAttributeChangeEvent event,
+                final String oldValue, final String newValue) {
+            if (cssPropertiesCache_.isEmpty()) {
+                return;
+            }
+
+            final HtmlElement element = event.getHtmlElement();
+            final String name = event.getName();
+            final boolean isClass = "class".equals(name);
+            if ((isClass || "id".equals(name)) && !(element instanceof HtmlStyle) && !(element instanceof HtmlLink)) {
+                // only the selector matching is affected; check if any selector uses the changed names
+                final Set<String> changed = new HashSet<>();
+                if (isClass) {
+                    final Set<String> oldClasses = new HashSet<>();
+                    if (oldValue != null) {
+                        oldClasses.addAll(Arrays.asList(StringUtils.split(oldValue)));
+                    }
+                    if (newValue != null) {
+                        for (final String className : StringUtils.split(newValue)) {
+                            if (!oldClasses.remove(className)) {
+                                changed.add(className);
+                            }
+                        }
+                    }
+                    changed.addAll(oldClasses);
+                }
+                else {
+                    if (oldValue != null) {
+                        changed.add(oldValue);
+                    }
+                    if (newValue != null) {
+                        changed.add(newValue);
+                    }
+                }
+
+                final SelectorDependencies dependencies = getSelectorDependencies(element);
+                if (dependencies != null) {
+                    final boolean affected = isClass
+                            ? dependencies.dependsOnClasses(changed)
+                            : dependencies.dependsOnIds(changed);
+                    if (affected) {
+                        cssPropertiesCache_.elementChanged(element, dependencies.hasSiblingCombinators(),
+                                ATTRIBUTES_AFFECTING_PARENT.contains(name));
+                    }
+                    return;
+                }
+            }
+
+            nodeChanged(element, element.getParentNode(), name);
+        }
+
+        private SelectorDependencies getSelectorDependencies(final DomNode node) {
+            final Object ownerDocument = node.getPage().getScriptableObject();
+            if (!(ownerDocument instanceof HTMLDocument)) {
+                return null;
+            }
+
+            final SelectorDependencies dependencies = new SelectorDependencies();
+            final StyleSheetList sheets = ((HTMLDocument) ownerDocument).getStyleSheets();
+            for (int i = 0; i < sheets.getLength(); i++) {
+                final Object sheet = sheets.item(i);
+                if (!(sheet instanceof CSSStyleSheet)) {
+                    return null;
+                }
+                dependencies.addAll(((CSSStyleSheet) sheet).getSelectorDependencies());
+            }
+            return dependencies;
         }
 
-        private void nodeChanged(final DomNode changed, final String attribName) {
+        private void nodeChanged(final DomNode changed, final DomNode parent, final String attribName) {
             // If a stylesheet was changed, all of our calculations could be off; clear the cache.
             if (changed instanceof HtmlStyle) {
                 clearComputedStyles();
@@ -2072,7 +2276,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
 
             // Apparently it wasn't a stylesheet that changed; be semi-smart about what we evict and when.
             final boolean clearParents = ATTRIBUTES_AFFECTING_PARENT.contains(attribName);
-            cssPropertiesCache_.nodeChanged(changed, clearParents);
+            cssPropertiesCache_.nodeChanged(changed, parent, clearParents);
         }
     }
 
@@ -43,7 +43,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -78,7 +77,6 @@ import com.gargoylesoftware.css.parser.CSSParseException;
 import com.gargoylesoftware.css.parser.InputSource;
 import com.gargoylesoftware.css.parser.LexicalUnit;
 import com.gargoylesoftware.css.parser.condition.Condition;
-import com.gargoylesoftware.css.parser.condition.Condition.ConditionType;
 import com.gargoylesoftware.css.parser.javacc.CSS3Parser;
 import com.gargoylesoftware.css.parser.media.MediaQuery;
 import com.gargoylesoftware.css.parser.selector.ChildSelector;
@@ -170,6 +168,17 @@ public class CSSStyleSheet extends StyleSheet {
 
     private boolean enabled_ = true;
 
+    /**
+     * The selector index of the wrapped sheet; the rule index of the (maybe shared) wrapped sheet
+     * is reset if the rules are changed, the index is valid as long as it is the one it was built for.
+     */
+    private transient SelectorIndex selectorIndex_;
+    private transient CSSStyleSheetImpl.CSSStyleSheetRuleIndex selectorIndexRuleIndex_;
+
+    /** The dependencies of the selectors, valid as long as the rule index is not reset. */
+    private transient SelectorDependencies selectorDependencies_;
+    private transient SelectorIndex selectorDependenciesIndex_;
+
     private static final Set<String> CSS2_PSEUDO_CLASSES = new HashSet<>(Arrays.asList(
             "link", "visited", "hover", "active",
             "focus", "lang", "first-child"));
@@ -273,9 +282,10 @@ public class CSSStyleSheet extends StyleSheet {
 
         final BrowserVersion browser = getBrowserVersion();
         final DomElement e = element.getDomNodeOrDie();
-        final List<CSSStyleSheetImpl.SelectorEntry> matchingRules =
-                selects(getRuleIndex(), this, browser, e, pseudoElement, false);
-        for (final CSSStyleSheetImpl.SelectorEntry entry : matchingRules) {
+        final List<SelectorIndex.Entry> matchingRules = new ArrayList<>();
+        selects(getSelectorIndex(), this, browser, e, pseudoElement, false, null, matchingRules);
+        SelectorIndex.sort(matchingRules);
+        for (final SelectorIndex.Entry entry : matchingRules) {
             final CSSStyleDeclarationImpl dec = entry.getRule().getStyle();
             style.applyStyleFromSelector(dec, entry.getSelector());
         }
@@ -327,7 +337,7 @@ public class CSSStyleSheet extends StyleSheet {
             // now we can look into the cache with the fixed request for
             // a cached script
             final Cache cache = client.getCache();
-            final Object fromCache = cache.getCachedObject(request);
+            final Object fromCache = cache.getCachedObject(request, client.getOptions().getMaxInMemory());
             if (fromCache instanceof CSSStyleSheetImpl) {
                 uri = request.getUrl().toExternalForm();
                 return new CSSStyleSheet(element, (CSSStyleSheetImpl) fromCache, uri);
@@ -1703,21 +1713,69 @@ public class CSSStyleSheet extends StyleSheet {
         }
     }
 
-    private CSSStyleSheetImpl.CSSStyleSheetRuleIndex getRuleIndex() {
+    private SelectorIndex getSelectorIndex() {
         final CSSStyleSheetImpl styleSheet = getWrappedSheet();
-        CSSStyleSheetImpl.CSSStyleSheetRuleIndex index = styleSheet.getRuleIndex();
+        CSSStyleSheetImpl.CSSStyleSheetRuleIndex ruleIndex = styleSheet.getRuleIndex();
 
-        if (index == null) {
-            index = new CSSStyleSheetImpl.CSSStyleSheetRuleIndex();
+        if (selectorIndex_ == null || ruleIndex == null || selectorIndexRuleIndex_ != ruleIndex) {
+            final SelectorIndex index = new SelectorIndex();
             final CSSRuleListImpl ruleList = styleSheet.getCssRules();
             index(index, ruleList, new HashSet<String>());
 
-            styleSheet.setRuleIndex(index);
+            // the rule index of the parser is only used to detect changes of the rules;
+            // a rule index set by another user of a shared sheet is still valid
+            if (ruleIndex == null) {
+                ruleIndex = new CSSStyleSheetImpl.CSSStyleSheetRuleIndex();
+                styleSheet.setRuleIndex(ruleIndex);
+            }
+            selectorIndex_ = index;
+            selectorIndexRuleIndex_ = ruleIndex;
+        }
+        return selectorIndex_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the class names and ids the selectors of this sheet (including the imported ones) depend on.
+     * @return the dependencies
+     */
+    public SelectorDependencies getSelectorDependencies() {
+        // building the index loads the imports
+        final SelectorIndex index = getSelectorIndex();
+        if (selectorDependencies_ == null || selectorDependenciesIndex_ != index) {
+            final SelectorDependencies dependencies = new SelectorDependencies();
+            addSelectorDependencies(dependencies, getWrappedSheet().getCssRules(), new HashSet<String>());
+            selectorDependencies_ = dependencies;
+            selectorDependenciesIndex_ = index;
+        }
+        return selectorDependencies_;
+    }
+
+    private void addSelectorDependencies(final SelectorDependencies dependencies, final CSSRuleListImpl ruleList,
+            final Set<String> alreadyProcessing) {
+        for (final AbstractCSSRuleImpl rule : ruleList.getRules()) {
+            if (rule instanceof CSSStyleRuleImpl) {
+                for (final Selector selector : ((CSSStyleRuleImpl) rule).getSelectors()) {
+                    dependencies.add(selector);
+                }
+            }
+            else if (rule instanceof CSSImportRuleImpl) {
+                final CSSStyleSheet sheet = imports_.get(rule);
+                if (sheet == null) {
+                    dependencies.setUnknown();
+                }
+                else if (alreadyProcessing.add(sheet.getUri())) {
+                    addSelectorDependencies(dependencies, sheet.getWrappedSheet().getCssRules(), alreadyProcessing);
+                }
+            }
+            else if (rule instanceof CSSMediaRuleImpl) {
+                addSelectorDependencies(dependencies, ((CSSMediaRuleImpl) rule).getCssRules(), alreadyProcessing);
+            }
         }
-        return index;
     }
 
-    private void index(final CSSStyleSheetImpl.CSSStyleSheetRuleIndex index, final CSSRuleListImpl ruleList,
+    private void index(final SelectorIndex index, final CSSRuleListImpl ruleList,
             final Set<String> alreadyProcessing) {
 
         for (final AbstractCSSRuleImpl rule : ruleList.getRules()) {
@@ -1725,25 +1783,7 @@ public class CSSStyleSheet extends StyleSheet {
                 final CSSStyleRuleImpl styleRule = (CSSStyleRuleImpl) rule;
                 final SelectorList selectors = styleRule.getSelectors();
                 for (final Selector selector : selectors) {
-                    final SimpleSelector simpleSel = selector.getSimpleSelector();
-                    if (SelectorType.ELEMENT_NODE_SELECTOR == simpleSel.getSelectorType()) {
-                        final ElementSelector es = (ElementSelector) simpleSel;
-                        boolean wasClass = false;
-                        final List<Condition> conds = es.getConditions();
-                        if (conds != null && conds.size() == 1) {
-                            final Condition c = conds.get(0);
-                            if (ConditionType.CLASS_CONDITION == c.getConditionType()) {
-                                index.addClassSelector(es, c.getValue(), selector, styleRule);
-                                wasClass = true;
-                            }
-                        }
-                        if (!wasClass) {
-                            index.addElementSelector(es, selector, styleRule);
-                        }
-                    }
-                    else {
-                        index.addOtherSelector(selector, styleRule);
-                    }
+                    index.add(selector, styleRule);
                 }
             }
             else if (rule instanceof CSSImportRuleImpl) {
@@ -1783,35 +1823,36 @@ public class CSSStyleSheet extends StyleSheet {
         }
     }
 
-    private List<CSSStyleSheetImpl.SelectorEntry> selects(
-                            final CSSStyleSheetImpl.CSSStyleSheetRuleIndex index,
-                            final SimpleScriptable scriptable,
+    private static void selects(final SelectorIndex index, final SimpleScriptable scriptable,
                             final BrowserVersion browserVersion, final DomElement element,
-                            final String pseudoElement, final boolean fromQuerySelectorAll) {
-
-        final List<CSSStyleSheetImpl.SelectorEntry> matchingRules = new ArrayList<>();
+                            final String pseudoElement, final boolean fromQuerySelectorAll,
+                            final SelectorIndex.AncestorFilter ancestorFilter,
+                            final List<SelectorIndex.Entry> matchingRules) {
 
         if (CSSStyleSheet.isActive(scriptable, index.getMediaList())) {
-            final String elementName = element.getLowercaseName();
-            final String[] classes = StringUtils.split(element.getAttributeDirect("class"), null, -1);
-            final Iterator<CSSStyleSheetImpl.SelectorEntry> iter =
-                    index.getSelectorEntriesIteratorFor(elementName, classes);
-
-            CSSStyleSheetImpl.SelectorEntry entry = iter.next();
-            while (null != entry) {
+            final List<SelectorIndex.Entry> candidates = new ArrayList<>();
+            index.collectCandidates(element, candidates);
+
+            SelectorIndex.AncestorFilter filter = ancestorFilter;
+            for (final SelectorIndex.Entry entry : candidates) {
+                if (entry.hasAncestorHashes()) {
+                    if (filter == null) {
+                        filter = new SelectorIndex.AncestorFilter(element);
+                    }
+                    if (!entry.mayMatchAncestors(filter)) {
+                        continue;
+                    }
+                }
                 if (CSSStyleSheet.selects(browserVersion, entry.getSelector(),
                                             element, pseudoElement, fromQuerySelectorAll)) {
                     matchingRules.add(entry);
                 }
-                entry = iter.next();
             }
 
-            for (final CSSStyleSheetImpl.CSSStyleSheetRuleIndex child : index.getChildren()) {
-                matchingRules.addAll(selects(child, scriptable, browserVersion,
-                                                    element, pseudoElement, fromQuerySelectorAll));
+            for (final SelectorIndex child : index.getChildren()) {
+                selects(child, scriptable, browserVersion, element, pseudoElement, fromQuerySelectorAll,
+                        filter, matchingRules);
             }
         }
-
-        return matchingRules;
     }
 }
@@ -91,11 +91,12 @@ import java.awt.font.FontRenderContext;
 import java.awt.font.LineBreakMeasurer;
 import java.awt.font.TextAttribute;
 import java.text.AttributedString;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -199,41 +200,48 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
         WIDOWS,
         WORD_SPACING);
 
+    /** Marks a cached value as not yet computed. */
+    private static final int NOT_COMPUTED = Integer.MIN_VALUE;
+
     /**
-     * Local modifications maintained here rather than in the element. We use a sorted
-     * map so that results are deterministic and thus easily testable.
+     * Local modifications maintained here rather than in the element. The modifications of the known
+     * attributes are stored in two small arrays, keyed by the ordinal of the attribute's
+     * {@link StyleAttributes.Definition}; all others in a map, created only if needed.
      */
-    private final SortedMap<String, StyleElement> localModifications_ = new TreeMap<>();
+    private short[] localModificationKeys_;
+    private StyleElement[] localModificationValues_;
+    private int localModificationsSize_;
+    private Map<String, StyleElement> otherLocalModifications_;
 
     /** The computed, cached width of the element to which this computed style belongs (no padding, borders, etc). */
-    private Integer width_;
+    private int width_ = NOT_COMPUTED;
 
     /**
      * The computed, cached height of the element to which this computed style belongs (no padding, borders, etc),
      * taking child elements into account.
      */
-    private Integer height_;
+    private int height_ = NOT_COMPUTED;
 
     /**
      * The computed, cached height of the element to which this computed style belongs (no padding, borders, etc),
      * <b>not</b> taking child elements into account.
      */
-    private Integer height2_;
+    private int height2_ = NOT_COMPUTED;
 
     /** The computed, cached horizontal padding (left + right) of the element to which this computed style belongs. */
-    private Integer paddingHorizontal_;
+    private int paddingHorizontal_ = NOT_COMPUTED;
 
     /** The computed, cached vertical padding (top + bottom) of the element to which this computed style belongs. */
-    private Integer paddingVertical_;
+    private int paddingVertical_ = NOT_COMPUTED;
 
     /** The computed, cached horizontal border (left + right) of the element to which this computed style belongs. */
-    private Integer borderHorizontal_;
+    private int borderHorizontal_ = NOT_COMPUTED;
 
     /** The computed, cached vertical border (top + bottom) of the element to which this computed style belongs. */
-    private Integer borderVertical_;
+    private int borderVertical_ = NOT_COMPUTED;
 
     /** The computed, cached top of the element to which this computed style belongs. */
-    private Integer top_;
+    private int top_ = NOT_COMPUTED;
 
     /**
      * Creates an instance.
@@ -280,7 +288,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
     private void applyLocalStyleAttribute(final String name, final String newValue, final String priority,
             final SelectorSpecificity specificity) {
         if (!StyleElement.PRIORITY_IMPORTANT.equals(priority)) {
-            final StyleElement existingElement = localModifications_.get(name);
+            final StyleElement existingElement = getLocalModification(name);
             if (existingElement != null) {
                 if (StyleElement.PRIORITY_IMPORTANT.equals(existingElement.getPriority())) {
                     return; // can't override a !important rule by a normal rule. Ignore it!
@@ -291,7 +299,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
             }
         }
         final StyleElement element = new StyleElement(name, newValue, priority, specificity);
-        localModifications_.put(name, element);
+        putLocalModification(name, element);
     }
 
     /**
@@ -304,19 +312,62 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
      */
     public void setDefaultLocalStyleAttribute(final String name, final String newValue) {
         final StyleElement element = new StyleElement(name, newValue, "", SelectorSpecificity.DEFAULT_STYLE_ATTRIBUTE);
-        localModifications_.put(name, element);
+        putLocalModification(name, element);
+    }
+
+    private StyleElement getLocalModification(final String name) {
+        final Definition definition = StyleAttributes.getDefinitionByAttributeName(name);
+        if (definition == null) {
+            return otherLocalModifications_ == null ? null : otherLocalModifications_.get(name);
+        }
+
+        final short key = (short) definition.ordinal();
+        for (int i = 0; i < localModificationsSize_; i++) {
+            if (localModificationKeys_[i] == key) {
+                return localModificationValues_[i];
+            }
+        }
+        return null;
+    }
+
+    private void putLocalModification(final String name, final StyleElement element) {
+        final Definition definition = StyleAttributes.getDefinitionByAttributeName(name);
+        if (definition == null) {
+            if (otherLocalModifications_ == null) {
+                otherLocalModifications_ = new HashMap<>();
+            }
+            otherLocalModifications_.put(name, element);
+            return;
+        }
+
+        final short key = (short) definition.ordinal();
+        for (int i = 0; i < localModificationsSize_; i++) {
+            if (localModificationKeys_[i] == key) {
+                localModificationValues_[i] = element;
+                return;
+            }
+        }
+
+        if (localModificationKeys_ == null) {
+            localModificationKeys_ = new short[8];
+            localModificationValues_ = new StyleElement[8];
+        }
+        else if (localModificationsSize_ == localModificationKeys_.length) {
+            final int newLength = localModificationsSize_ * 2;
+            localModificationKeys_ = Arrays.copyOf(localModificationKeys_, newLength);
+            localModificationValues_ = Arrays.copyOf(localModificationValues_, newLength);
+        }
+        localModificationKeys_[localModificationsSize_] = key;
+        localModificationValues_[localModificationsSize_] = element;
+        localModificationsSize_++;
     }
 
     @Override
     protected StyleElement getStyleElement(final String name) {
         final StyleElement existent = super.getStyleElement(name);
 
-        if (localModifications_ != null) {
-            final StyleElement localStyleMod = localModifications_.get(name);
-            if (localStyleMod == null) {
-                return existent;
-            }
-
+        final StyleElement localStyleMod = getLocalModification(name);
+        if (localStyleMod != null) {
             if (existent == null) {
                 // Local modifications represent either default style elements or style elements
                 // defined in stylesheets; either way, they shouldn't overwrite any style
@@ -971,20 +1022,20 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
     }
 
     private int getCalculatedWidth() {
-        if (width_ != null) {
-            return width_.intValue();
+        if (width_ != NOT_COMPUTED) {
+            return width_;
         }
 
         final Element element = getElement();
         final DomNode node = element.getDomNodeOrDie();
         if (!node.mayBeDisplayed()) {
-            width_ = Integer.valueOf(0);
+            width_ = 0;
             return 0;
         }
 
         final String display = getDisplay();
         if (NONE.equals(display)) {
-            width_ = Integer.valueOf(0);
+            width_ = 0;
             return 0;
         }
 
@@ -1062,7 +1113,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
             });
         }
 
-        width_ = Integer.valueOf(width);
+        width_ = width;
         return width;
     }
 
@@ -1135,8 +1186,8 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
      * @return the element's calculated height, taking both relevant CSS and the element's children into account
      */
     private int getCalculatedHeight() {
-        if (height_ != null) {
-            return height_.intValue();
+        if (height_ != NOT_COMPUTED) {
+            return height_;
         }
 
         final boolean isInline = "inline".equals(getDisplay()) && !(getElement() instanceof HTMLIFrameElement);
@@ -1144,12 +1195,12 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
         if (isInline || super.getHeight().isEmpty()) {
             final int contentHeight = getContentHeight();
             if (contentHeight > 0) {
-                height_ = Integer.valueOf(contentHeight);
+                height_ = contentHeight;
                 return height_;
             }
         }
 
-        height_ = Integer.valueOf(getEmptyHeight());
+        height_ = getEmptyHeight();
         return height_;
     }
 
@@ -1161,19 +1212,19 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
      *         elements
      */
     private int getEmptyHeight() {
-        if (height2_ != null) {
-            return height2_.intValue();
+        if (height2_ != NOT_COMPUTED) {
+            return height2_;
         }
 
         final DomNode node = getElement().getDomNodeOrDie();
         if (!node.mayBeDisplayed()) {
-            height2_ = Integer.valueOf(0);
+            height2_ = 0;
             return 0;
         }
 
         final String display = getDisplay();
         if (NONE.equals(display)) {
-            height2_ = Integer.valueOf(0);
+            height2_ = 0;
             return 0;
         }
 
@@ -1293,7 +1344,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
             height = defaultHeight;
         }
 
-        height2_ = Integer.valueOf(height);
+        height2_ = height;
         return height;
     }
 
@@ -1383,7 +1434,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
      */
     public int getTop(final boolean includeMargin, final boolean includeBorder, final boolean includePadding) {
         int top = 0;
-        if (null == top_) {
+        if (NOT_COMPUTED == top_) {
             final String p = getPositionWithInheritance();
             if (ABSOLUTE.equals(p)) {
                 top = getTopForAbsolutePositionWithInheritance();
@@ -1401,7 +1452,7 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
                         final String display = style.getDisplay();
                         if (isBlock(display)) {
                             int prevTop = 0;
-                            if (style.top_ == null) {
+                            if (style.top_ == NOT_COMPUTED) {
                                 final String prevPosition = style.getPositionWithInheritance();
                                 if (ABSOLUTE.equals(prevPosition)) {
                                     prevTop += style.getTopForAbsolutePositionWithInheritance();
@@ -1431,10 +1482,10 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
                     top += pixelValue(t);
                 }
             }
-            top_ = Integer.valueOf(top);
+            top_ = top;
         }
         else {
-            top = top_.intValue();
+            top = top_;
         }
 
         if (includeMargin) {
@@ -1734,19 +1785,19 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
     }
 
     private int getPaddingHorizontal() {
-        if (paddingHorizontal_ == null) {
+        if (paddingHorizontal_ == NOT_COMPUTED) {
             paddingHorizontal_ =
-                Integer.valueOf(NONE.equals(getDisplay()) ? 0 : getPaddingLeftValue() + getPaddingRightValue());
+                NONE.equals(getDisplay()) ? 0 : getPaddingLeftValue() + getPaddingRightValue();
         }
-        return paddingHorizontal_.intValue();
+        return paddingHorizontal_;
     }
 
     private int getPaddingVertical() {
-        if (paddingVertical_ == null) {
+        if (paddingVertical_ == NOT_COMPUTED) {
             paddingVertical_ =
-                Integer.valueOf(NONE.equals(getDisplay()) ? 0 : getPaddingTopValue() + getPaddingBottomValue());
+                NONE.equals(getDisplay()) ? 0 : getPaddingTopValue() + getPaddingBottomValue();
         }
-        return paddingVertical_.intValue();
+        return paddingVertical_;
     }
 
     /**
@@ -1782,19 +1833,19 @@ public class ComputedCSSStyleDeclaration extends CSSStyleDeclaration {
     }
 
     private int getBorderHorizontal() {
-        if (borderHorizontal_ == null) {
+        if (borderHorizontal_ == NOT_COMPUTED) {
             borderHorizontal_ =
-                Integer.valueOf(NONE.equals(getDisplay()) ? 0 : getBorderLeftValue() + getBorderRightValue());
+                NONE.equals(getDisplay()) ? 0 : getBorderLeftValue() + getBorderRightValue();
         }
-        return borderHorizontal_.intValue();
+        return borderHorizontal_;
     }
 
     private int getBorderVertical() {
-        if (borderVertical_ == null) {
+        if (borderVertical_ == NOT_COMPUTED) {
             borderVertical_ =
-                Integer.valueOf(NONE.equals(getDisplay()) ? 0 : getBorderTopValue() + getBorderBottomValue());
+                NONE.equals(getDisplay()) ? 0 : getBorderTopValue() + getBorderBottomValue();
         }
-        return borderVertical_.intValue();
+        return borderVertical_;
     }
 
     /**
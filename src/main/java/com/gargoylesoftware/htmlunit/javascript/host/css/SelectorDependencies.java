@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.css;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.selector.ChildSelector;
+import com.gargoylesoftware.css.parser.selector.DescendantSelector;
+import com.gargoylesoftware.css.parser.selector.DirectAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
+import com.gargoylesoftware.css.parser.selector.GeneralAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.Selector;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * The class names and ids the selectors of one or more style sheets depend on. Used to decide
+ * if a changed {@code class} or {@code id} attribute may change the computed style of any element.
+ */
+public final class SelectorDependencies {
+
+    private final Set<String> classes_ = new HashSet<>();
+    private final Set<String> ids_ = new HashSet<>();
+    private boolean anyId_;
+    private boolean siblingCombinators_;
+    private boolean unknown_;
+
+    /**
+     * Adds the dependencies of the given selector.
+     * @param selector the selector
+     */
+    void add(final Selector selector) {
+        switch (selector.getSelectorType()) {
+            case ELEMENT_NODE_SELECTOR:
+                final List<Condition> conditions = ((ElementSelector) selector).getConditions();
+                if (conditions != null) {
+                    for (final Condition condition : conditions) {
+                        add(condition);
+                    }
+                }
+                break;
+
+            case CHILD_SELECTOR:
+                final ChildSelector cs = (ChildSelector) selector;
+                add(cs.getSimpleSelector());
+                add(cs.getAncestorSelector());
+                break;
+
+            case DESCENDANT_SELECTOR:
+                final DescendantSelector ds = (DescendantSelector) selector;
+                add(ds.getSimpleSelector());
+                add(ds.getAncestorSelector());
+                break;
+
+            case DIRECT_ADJACENT_SELECTOR:
+                final DirectAdjacentSelector das = (DirectAdjacentSelector) selector;
+                siblingCombinators_ = true;
+                add(das.getSimpleSelector());
+                add(das.getSelector());
+                break;
+
+            case GENERAL_ADJACENT_SELECTOR:
+                final GeneralAdjacentSelector gas = (GeneralAdjacentSelector) selector;
+                siblingCombinators_ = true;
+                add(gas.getSimpleSelector());
+                add(gas.getSelector());
+                break;
+
+            case PSEUDO_ELEMENT_SELECTOR:
+                break;
+
+            default:
+                unknown_ = true;
+        }
+    }
+
+    private void add(final Condition condition) {
+        switch (condition.getConditionType()) {
+            case CLASS_CONDITION:
+                // escaped names are compared as is; this is a superset
+                classes_.add(condition.getValue().replace("\\", ""));
+                break;
+
+            case ID_CONDITION:
+                ids_.add(condition.getValue());
+                break;
+
+            case ATTRIBUTE_CONDITION:
+            case PREFIX_ATTRIBUTE_CONDITION:
+            case SUFFIX_ATTRIBUTE_CONDITION:
+            case SUBSTRING_ATTRIBUTE_CONDITION:
+            case BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+            case ONE_OF_ATTRIBUTE_CONDITION:
+                final String name = condition.getLocalName();
+                if ("class".equalsIgnoreCase(name) || "id".equalsIgnoreCase(name)) {
+                    unknown_ = true;
+                }
+                break;
+
+            case LANG_CONDITION:
+                break;
+
+            case PSEUDO_CLASS_CONDITION:
+                final String pseudoClass = condition.getValue();
+                // functional pseudo classes like :not(.foo) contain selectors as text
+                if (pseudoClass.indexOf('(') != -1) {
+                    unknown_ = true;
+                }
+                // :target compares the id with the ref of the url; the other pseudo classes
+                // do not read the class or the id, changes of their attributes invalidate as before
+                else if ("target".equals(pseudoClass)) {
+                    anyId_ = true;
+                }
+                break;
+
+            default:
+                unknown_ = true;
+        }
+    }
+
+    /**
+     * Adds all the dependencies of the other instance.
+     * @param other the other instance
+     */
+    public void addAll(final SelectorDependencies other) {
+        classes_.addAll(other.classes_);
+        ids_.addAll(other.ids_);
+        anyId_ |= other.anyId_;
+        siblingCombinators_ |= other.siblingCombinators_;
+        unknown_ |= other.unknown_;
+    }
+
+    /**
+     * Marks these dependencies as unknown, e.g. because an imported sheet is not available.
+     */
+    void setUnknown() {
+        unknown_ = true;
+    }
+
+    /**
+     * Returns whether any of the given class names is used by a selector.
+     * @param classNames the class names
+     * @return {@code true} if a selector may depend on one of the classes
+     */
+    public boolean dependsOnClasses(final Collection<String> classNames) {
+        if (unknown_) {
+            return true;
+        }
+        for (final String className : classNames) {
+            if (classes_.contains(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether any of the given ids is used by a selector.
+     * @param ids the ids
+     * @return {@code true} if a selector may depend on one of the ids
+     */
+    public boolean dependsOnIds(final Collection<String> ids) {
+        if (unknown_ || anyId_) {
+            return true;
+        }
+        for (final String id : ids) {
+            if (ids_.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a selector uses the sibling combinators {@code +} or {@code ~};
+     * then changes of an element may affect the following siblings.
+     * @return whether there are sibling combinators
+     */
+    public boolean hasSiblingCombinators() {
+        return siblingCombinators_ || unknown_;
+    }
+}
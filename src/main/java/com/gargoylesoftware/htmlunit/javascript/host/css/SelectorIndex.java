@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.css;
+
+import static com.gargoylesoftware.htmlunit.html.DomElement.ATTRIBUTE_NOT_DEFINED;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gargoylesoftware.css.dom.CSSStyleRuleImpl;
+import com.gargoylesoftware.css.dom.MediaListImpl;
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.selector.ChildSelector;
+import com.gargoylesoftware.css.parser.selector.DescendantSelector;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
+import com.gargoylesoftware.css.parser.selector.Selector;
+import com.gargoylesoftware.css.parser.selector.SimpleSelector;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+
+/**
+ * The index of the style rules of a style sheet, used to find the rules that may match an element.
+ * The rules are put into buckets keyed on the rightmost compound selector (id, class, attribute name
+ * or element name), only the rules of the buckets an element belongs to have to be checked.
+ * Rules with descendant or child combinators remember the names their ancestors must have; these
+ * are checked against an {@link AncestorFilter} before walking the ancestors.
+ */
+final class SelectorIndex {
+
+    private static final String ANY_ELEMENT = "*";
+
+    private final SelectorIndex root_;
+    private final MediaListImpl mediaList_;
+    private final List<SelectorIndex> children_ = new ArrayList<>();
+
+    private final Map<String, List<Entry>> ids_ = new HashMap<>();
+    private final Map<String, List<Entry>> classes_ = new HashMap<>();
+    private final Map<String, List<Entry>> attributes_ = new HashMap<>();
+    private final Map<String, List<Entry>> elements_ = new HashMap<>();
+    private final List<Entry> others_ = new ArrayList<>();
+
+    private int size_;
+
+    /**
+     * Creates a new root index.
+     */
+    SelectorIndex() {
+        this(null, new MediaListImpl(null));
+    }
+
+    private SelectorIndex(final SelectorIndex root, final MediaListImpl mediaList) {
+        root_ = root == null ? this : root;
+        mediaList_ = mediaList;
+    }
+
+    /**
+     * Creates a child index for rules only active for the given media.
+     * @param mediaList the media list
+     * @return the child index
+     */
+    SelectorIndex addMedia(final MediaListImpl mediaList) {
+        final SelectorIndex child = new SelectorIndex(root_, mediaList);
+        children_.add(child);
+        return child;
+    }
+
+    /**
+     * @return the media list
+     */
+    MediaListImpl getMediaList() {
+        return mediaList_;
+    }
+
+    /**
+     * @return the child indexes
+     */
+    List<SelectorIndex> getChildren() {
+        return children_;
+    }
+
+    /**
+     * Adds a selector of a style rule; the selectors have to be added in document order.
+     * @param selector the selector
+     * @param rule the rule
+     */
+    void add(final Selector selector, final CSSStyleRuleImpl rule) {
+        final Entry entry = new Entry(selector, rule, root_.size_++, ancestorHashes(selector));
+
+        final SimpleSelector simpleSelector = selector.getSimpleSelector();
+        if (Selector.SelectorType.ELEMENT_NODE_SELECTOR != simpleSelector.getSelectorType()) {
+            others_.add(entry);
+            return;
+        }
+
+        final ElementSelector es = (ElementSelector) simpleSelector;
+        final List<Condition> conditions = es.getConditions();
+        if (conditions != null) {
+            String className = null;
+            String attributeName = null;
+            for (final Condition condition : conditions) {
+                switch (condition.getConditionType()) {
+                    case ID_CONDITION:
+                        add(ids_, condition.getValue(), entry);
+                        return;
+
+                    case CLASS_CONDITION:
+                        if (className == null && condition.getValue().indexOf('\\') == -1) {
+                            className = condition.getValue();
+                        }
+                        break;
+
+                    case ATTRIBUTE_CONDITION:
+                    case PREFIX_ATTRIBUTE_CONDITION:
+                    case SUFFIX_ATTRIBUTE_CONDITION:
+                    case SUBSTRING_ATTRIBUTE_CONDITION:
+                    case ONE_OF_ATTRIBUTE_CONDITION:
+                        final String name = condition.getLocalName();
+                        if (attributeName == null && name != null
+                                && name.indexOf(':') == -1 && name.indexOf('|') == -1) {
+                            attributeName = name.toLowerCase(Locale.ROOT);
+                        }
+                        break;
+
+                    default:
+                }
+            }
+
+            if (className != null) {
+                add(classes_, className, entry);
+                return;
+            }
+            if (attributeName != null && es.getLocalName() == null) {
+                add(attributes_, attributeName, entry);
+                return;
+            }
+        }
+
+        final String elementName = es.getLocalNameLowerCase();
+        add(elements_, elementName == null ? ANY_ELEMENT : elementName, entry);
+    }
+
+    private static void add(final Map<String, List<Entry>> buckets, final String key, final Entry entry) {
+        List<Entry> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(key, bucket);
+        }
+        bucket.add(entry);
+    }
+
+    /**
+     * Adds the entries of this index (without the children) that may match the given element.
+     * @param element the element
+     * @param candidates the list to add the entries to
+     */
+    void collectCandidates(final DomElement element, final List<Entry> candidates) {
+        addAll(elements_.get(ANY_ELEMENT), candidates);
+        addAll(elements_.get(element.getLowercaseName()), candidates);
+        candidates.addAll(others_);
+
+        if (!ids_.isEmpty()) {
+            final String id = element.getId();
+            if (ATTRIBUTE_NOT_DEFINED != id) {
+                addAll(ids_.get(id), candidates);
+            }
+        }
+
+        if (!classes_.isEmpty()) {
+            final String classes = element.getAttributeDirect("class");
+            if (ATTRIBUTE_NOT_DEFINED != classes) {
+                for (final String className : StringUtils.split(classes)) {
+                    addAll(classes_.get(className), candidates);
+                }
+            }
+        }
+
+        if (!attributes_.isEmpty()) {
+            for (final String name : element.getAttributesMap().keySet()) {
+                addAll(attributes_.get(name.toLowerCase(Locale.ROOT)), candidates);
+            }
+        }
+    }
+
+    private static void addAll(final List<Entry> bucket, final List<Entry> candidates) {
+        if (bucket != null) {
+            candidates.addAll(bucket);
+        }
+    }
+
+    /**
+     * Sorts the given entries in document order and removes the duplicates.
+     * @param entries the entries
+     */
+    static void sort(final List<Entry> entries) {
+        if (entries.size() < 2) {
+            return;
+        }
+        Collections.sort(entries, (e1, e2) -> Integer.compare(e1.position_, e2.position_));
+        Entry last = null;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            final Entry entry = entries.get(i);
+            if (entry == last) {
+                entries.remove(i);
+            }
+            last = entry;
+        }
+    }
+
+    /**
+     * Returns the hashes of the names the ancestors of a matching element must have.
+     */
+    private static int[] ancestorHashes(final Selector selector) {
+        final List<String> keys = new ArrayList<>();
+        Selector current = selector;
+        while (current != null) {
+            final Selector ancestor;
+            switch (current.getSelectorType()) {
+                case DESCENDANT_SELECTOR:
+                    ancestor = ((DescendantSelector) current).getAncestorSelector();
+                    break;
+                case CHILD_SELECTOR:
+                    ancestor = ((ChildSelector) current).getAncestorSelector();
+                    break;
+                default:
+                    ancestor = null;
+            }
+            if (ancestor != null) {
+                final SimpleSelector simple = ancestor.getSimpleSelector();
+                if (Selector.SelectorType.ELEMENT_NODE_SELECTOR == simple.getSelectorType()) {
+                    addKeys((ElementSelector) simple, keys);
+                }
+            }
+            current = ancestor;
+        }
+
+        if (keys.isEmpty()) {
+            return null;
+        }
+        final int[] hashes = new int[keys.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = keys.get(i).hashCode();
+        }
+        return hashes;
+    }
+
+    private static void addKeys(final ElementSelector selector, final List<String> keys) {
+        final String name = selector.getLocalNameLowerCase();
+        if (name != null) {
+            keys.add(name);
+        }
+        final List<Condition> conditions = selector.getConditions();
+        if (conditions != null) {
+            for (final Condition condition : conditions) {
+                switch (condition.getConditionType()) {
+                    case ID_CONDITION:
+                        keys.add("#" + condition.getValue());
+                        break;
+
+                    case CLASS_CONDITION:
+                        if (condition.getValue().indexOf('\\') == -1) {
+                            keys.add("." + condition.getValue());
+                        }
+                        break;
+
+                    default:
+                }
+            }
+        }
+    }
+
+    /**
+     * A selector of a style rule.
+     */
+    static final class Entry {
+        private final Selector selector_;
+        private final CSSStyleRuleImpl rule_;
+        private final int position_;
+        private final int[] ancestorHashes_;
+
+        Entry(final Selector selector, final CSSStyleRuleImpl rule, final int position,
+                final int[] ancestorHashes) {
+            selector_ = selector;
+            rule_ = rule;
+            position_ = position;
+            ancestorHashes_ = ancestorHashes;
+        }
+
+        /**
+         * @return the selector
+         */
+        Selector getSelector() {
+            return selector_;
+        }
+
+        /**
+         * @return the rule
+         */
+        CSSStyleRuleImpl getRule() {
+            return rule_;
+        }
+
+        /**
+         * Returns whether the ancestors of the element may match, checked using the given filter.
+         * @param filter the filter of the element
+         * @return {@code false} if the ancestors are known not to match
+         */
+        boolean mayMatchAncestors(final AncestorFilter filter) {
+            if (ancestorHashes_ != null) {
+                for (final int hash : ancestorHashes_) {
+                    if (!filter.mayContain(hash)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return whether a filter is needed to call {@link #mayMatchAncestors(AncestorFilter)}
+         */
+        boolean hasAncestorHashes() {
+            return ancestorHashes_ != null;
+        }
+    }
+
+    /**
+     * A bloom filter of the element names, ids and class names of an element and its ancestors.
+     * The element itself is included because pseudo element selectors check the element itself.
+     */
+    static final class AncestorFilter {
+        private static final int MASK = 4095;
+
+        private final long[] bits_ = new long[(MASK + 1) / 64];
+
+        /**
+         * Creates the filter for the given element.
+         * @param element the element
+         */
+        AncestorFilter(final DomElement element) {
+            for (DomNode node = element; node instanceof DomElement; node = node.getParentNode()) {
+                final DomElement ancestor = (DomElement) node;
+                add(ancestor.getLowercaseName());
+
+                final String id = ancestor.getId();
+                if (ATTRIBUTE_NOT_DEFINED != id) {
+                    add("#" + id);
+                }
+
+                final String classes = ancestor.getAttributeDirect("class");
+                if (ATTRIBUTE_NOT_DEFINED != classes) {
+                    for (final String className : StringUtils.split(classes)) {
+                        add("." + className);
+                    }
+                }
+            }
+        }
+
+        private void add(final String key) {
+            final int hash = key.hashCode();
+            set(hash & MASK);
+            set((hash >>> 16) & MASK);
+        }
+
+        private void set(final int bit) {
+            bits_[bit >>> 6] |= 1L << bit;
+        }
+
+        private boolean isSet(final int bit) {
+            return (bits_[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        /**
+         * @param hash the hash of the key
+         * @return {@code false} if the key is known not to be contained
+         */
+        boolean mayContain(final int hash) {
+            return isSet(hash & MASK) && isSet((hash >>> 16) & MASK);
+        }
+    }
+}
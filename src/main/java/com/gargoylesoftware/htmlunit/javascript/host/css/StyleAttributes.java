@@ -41,10 +41,12 @@ import com.gargoylesoftware.htmlunit.BrowserVersion;
  */
 public final class StyleAttributes {
     private static final Map<String, Definition> styles_ = new HashMap<>();
+    private static final Map<String, Definition> attributes_ = new HashMap<>();
 
     static {
         for (final Definition definition : Definition.values()) {
             styles_.put(definition.getPropertyName(), definition);
+            attributes_.putIfAbsent(definition.getAttributeName(), definition);
         }
     }
 
@@ -73,6 +75,16 @@ public final class StyleAttributes {
         return definition;
     }
 
+    /**
+     * Gets the first style attributes definition with the given attribute name (like {@code background-color}),
+     * regardless of the browser version. All definitions of the same attribute share this one.
+     * @param attributeName the name of the attribute
+     * @return {@code null} if no definition exists
+     */
+    static Definition getDefinitionByAttributeName(final String attributeName) {
+        return attributes_.get(attributeName);
+    }
+
     /**
      * Gets the style attributes definitions for the specified browser version.
      * @param browserVersion the browser version
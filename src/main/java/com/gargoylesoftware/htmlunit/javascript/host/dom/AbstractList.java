@@ -16,17 +16,13 @@ package com.gargoylesoftware.htmlunit.javascript.host.dom;
 
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.HTMLCOLLECTION_NULL_IF_NOT_FOUND;
 
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.gargoylesoftware.htmlunit.html.DomChangeEvent;
-import com.gargoylesoftware.htmlunit.html.DomChangeListener;
+import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
-import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
-import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeListener;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
@@ -53,16 +49,6 @@ import net.sourceforge.htmlunit.corejs.javascript.Undefined;
 @JsxClass(isJSObject = false)
 public class AbstractList extends SimpleScriptable implements Function, ExternalArrayData {
 
-    /**
-     * Cache effect of some changes.
-     */
-    protected enum EffectOnCache {
-        /** No effect, cache is still valid. */
-        NONE,
-        /** Cache is not valid anymore and should be reset. */
-        RESET
-    }
-
     private boolean avoidObjectDetection_;
 
     private boolean attributeChangeSensitive_;
@@ -72,7 +58,12 @@ public class AbstractList extends SimpleScriptable implements Function, External
      */
     private List<DomNode> cachedElements_;
 
-    private boolean listenerRegistered_;
+    /**
+     * The change counters of the DOM node the cache was computed for, see {@link DomNode#getDomChangeCount()}.
+     */
+    private int domChangeCount_;
+    private int attributeChangeCount_;
+    private int dependentAttributeChangeCount_;
 
     /**
      * Creates an instance.
@@ -121,8 +112,8 @@ public class AbstractList extends SimpleScriptable implements Function, External
         }
         attributeChangeSensitive_ = attributeChangeSensitive;
         cachedElements_ = initialElements;
-        if (initialElements != null) {
-            registerListener();
+        if (initialElements != null && domNode != null) {
+            updateChangeCounts(domNode);
         }
         setExternalArrayData(this);
     }
@@ -191,8 +182,8 @@ public class AbstractList extends SimpleScriptable implements Function, External
 
         super.setDomNode(domNode, assignScriptObject);
 
-        if (oldDomNode != domNode) {
-            listenerRegistered_ = false;
+        if (oldDomNode != domNode && domNode != null && cachedElements_ != null) {
+            updateChangeCounts(domNode);
         }
     }
 
@@ -203,42 +194,77 @@ public class AbstractList extends SimpleScriptable implements Function, External
     public List<DomNode> getElements() {
         // a bit strange but we like to avoid sync
         List<DomNode> cachedElements = cachedElements_;
+        final DomNode domNode = getDomNodeOrNull();
 
+        if (cachedElements != null && domNode != null && !isCacheValid(domNode)) {
+            cachedElements = null;
+        }
         if (cachedElements == null) {
             if (getParentScope() == null) {
                 cachedElements = new ArrayList<>();
             }
             else {
+                if (domNode != null) {
+                    updateChangeCounts(domNode);
+                }
                 cachedElements = computeElements();
             }
             cachedElements_ = cachedElements;
         }
-        registerListener();
 
-        // maybe the cache was cleared in between
-        // then this returns the old state and never null
         return cachedElements;
     }
 
-    private void registerListener() {
-        if (!listenerRegistered_) {
-            final DomNode domNode = getDomNodeOrNull();
-            if (domNode != null) {
-                final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-                domNode.addDomChangeListener(listener);
-                if (attributeChangeSensitive_) {
-                    if (domNode instanceof HtmlElement) {
-                        ((HtmlElement) domNode).addHtmlAttributeChangeListener(listener);
-                    }
-                    else if (domNode instanceof HtmlPage) {
-                        ((HtmlPage) domNode).addHtmlAttributeChangeListener(listener);
-                    }
-                }
-                listenerRegistered_ = true;
+    /**
+     * Returns whether the cache is still valid, that is the DOM node did not change in a way
+     * that may change the elements since the cache was computed.
+     */
+    private boolean isCacheValid(final DomNode domNode) {
+        if (domNode.getDomChangeCount() != domChangeCount_) {
+            return false;
+        }
+        if (!attributeChangeSensitive_) {
+            return true;
+        }
+
+        final int attributeChangeCount = domNode.getAttributeChangeCount();
+        if (attributeChangeCount == attributeChangeCount_) {
+            return true;
+        }
+        final String[] attributeNames = getAttributeDependencies();
+        if (attributeNames == null
+                || getDependentAttributeChangeCount(domNode, attributeNames) != dependentAttributeChangeCount_) {
+            return false;
+        }
+        // only other attributes changed
+        attributeChangeCount_ = attributeChangeCount;
+        return true;
+    }
+
+    private void updateChangeCounts(final DomNode domNode) {
+        domChangeCount_ = domNode.getDomChangeCount();
+        attributeChangeCount_ = domNode.getAttributeChangeCount();
+        if (attributeChangeSensitive_) {
+            final String[] attributeNames = getAttributeDependencies();
+            if (attributeNames != null) {
+                dependentAttributeChangeCount_ = getDependentAttributeChangeCount(domNode, attributeNames);
             }
         }
     }
 
+    private static int getDependentAttributeChangeCount(final DomNode domNode, final String[] attributeNames) {
+        final Page page = domNode.getPage();
+        if (!(page instanceof HtmlPage)) {
+            return 0;
+        }
+        // the counters never decrease, the sum changes if one of them changes
+        int count = 0;
+        for (final String attributeName : attributeNames) {
+            count += ((HtmlPage) page).getAttributeChangeCount(attributeName);
+        }
+        return count;
+    }
+
     /**
      * Returns the elements whose associated host objects are available through this collection.
      * @return the elements whose associated host objects are available through this collection
@@ -417,94 +443,13 @@ public class AbstractList extends SimpleScriptable implements Function, External
         return super.equivalentValues(other);
     }
 
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
-
-        private transient WeakReference<AbstractList> nodeList_;
-
-        DomHtmlAttributeChangeListenerImpl(final AbstractList nodeList) {
-            super();
-
-            nodeList_ = new WeakReference<>(nodeList);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            handleChangeOnCache(event);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            handleChangeOnCache(event);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            final AbstractList nodes = nodeList_.get();
-            if (null == nodes) {
-                return;
-            }
-            if (nodes.attributeChangeSensitive_) {
-                handleChangeOnCache(event);
-            }
-        }
-
-        private void handleChangeOnCache(final HtmlAttributeChangeEvent event) {
-            final AbstractList nodes = nodeList_.get();
-            if (null == nodes) {
-                return;
-            }
-
-            final EffectOnCache effectOnCache = nodes.getEffectOnCache(event);
-            if (EffectOnCache.NONE == effectOnCache) {
-                return;
-            }
-            if (EffectOnCache.RESET == effectOnCache) {
-                clearCache();
-            }
-        }
-
-        private void clearCache() {
-            final AbstractList nodes = nodeList_.get();
-            if (null != nodes) {
-                nodes.cachedElements_ = null;
-            }
-        }
-    }
-
     /**
-     * Gets the effect of the change on an attribute of the reference node
-     * on this collection's cache.
-     * @param event the change event
-     * @return the effect on cache
+     * Returns the names of the attributes the elements of this collection depend on; changes of
+     * other attributes don't change the collection. Only used for collections sensitive to attribute changes.
+     * @return the attribute names or {@code null} if a change of any attribute may change the collection
      */
-    protected EffectOnCache getEffectOnCache(final HtmlAttributeChangeEvent event) {
-        return EffectOnCache.RESET;
+    protected String[] getAttributeDependencies() {
+        return null;
     }
 
     /**
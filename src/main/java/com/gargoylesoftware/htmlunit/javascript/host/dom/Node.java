@@ -50,6 +50,7 @@ import net.sourceforge.htmlunit.corejs.javascript.Interpreter;
 import net.sourceforge.htmlunit.corejs.javascript.JavaScriptException;
 import net.sourceforge.htmlunit.corejs.javascript.RhinoException;
 import net.sourceforge.htmlunit.corejs.javascript.ScriptRuntime;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptStackElement;
 import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
 import net.sourceforge.htmlunit.corejs.javascript.Undefined;
 
@@ -255,8 +256,6 @@ public class Node extends EventTarget {
         exception.setParentScope(w);
 
         // get current line and file name
-        // this method can only be used in interpreted mode. If one day we choose to use compiled mode,
-        // then we'll have to find an other way here.
         final String fileName;
         final int lineNumber;
         if (Context.getCurrentContext().getOptimizationLevel() == -1) {
@@ -266,7 +265,16 @@ public class Node extends EventTarget {
             lineNumber = linep[0];
         }
         else {
-            throw new Error("HtmlUnit not ready to run in compiled mode");
+            // compiled mode; the generated classes are part of the java stack
+            final ScriptStackElement[] stack = new JavaScriptException("", null, 0).getScriptStack();
+            if (stack.length > 0) {
+                fileName = stack[0].fileName.replaceFirst("script in (.*) from .*", "$1");
+                lineNumber = stack[0].lineNumber;
+            }
+            else {
+                fileName = "";
+                lineNumber = 0;
+            }
         }
 
         exception.setLocation(fileName, lineNumber);
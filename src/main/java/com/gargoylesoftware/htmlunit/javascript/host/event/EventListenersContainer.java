@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.gargoylesoftware.htmlunit.ScriptResult;
+import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.javascript.host.Window;
@@ -229,9 +230,17 @@ public class EventListenersContainer implements Serializable {
             }
             return false;
         }
+        addEventListenerType(type);
         return true;
     }
 
+    private void addEventListenerType(final String type) {
+        final SgmlPage page = jsNode_.getEventListenerTypesPage();
+        if (page != null) {
+            page.addEventListenerType(type);
+        }
+    }
+
     private TypeContainer getTypeContainer(final String type) {
         final String typeLC = type.toLowerCase(Locale.ROOT);
         return typeContainers_.getOrDefault(typeLC, TypeContainer.EMPTY);
@@ -286,6 +295,9 @@ public class EventListenersContainer implements Serializable {
             }
             return container.setPropertyHandler(handler);
         });
+        if (handler != null) {
+            addEventListenerType(eventType);
+        }
     }
 
     private void executeEventListeners(final int eventPhase, final Event event, final Object[] args) {
@@ -22,11 +22,13 @@ import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBr
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.gargoylesoftware.htmlunit.ScriptResult;
+import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
@@ -41,6 +43,7 @@ import com.gargoylesoftware.htmlunit.javascript.host.dom.Document;
 import net.sourceforge.htmlunit.corejs.javascript.Context;
 import net.sourceforge.htmlunit.corejs.javascript.Function;
 import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
 
 /**
  * A JavaScript object for {@code EventTarget}.
@@ -124,27 +127,14 @@ public class EventTarget extends SimpleScriptable {
             final DomNode ourParentNode = (ourNode != null) ? ourNode.getParentNode() : null;
 
             // Determine the propagation path which is fixed here and not affected by
-            // DOM tree modification from intermediate listeners (tested in Chrome)
-            final List<EventTarget> propagationPath = new ArrayList<>();
-
-            // We're added to the propagation path first
-            propagationPath.add(this);
-
-            // Then add all our parents if we have any (pure JS object such as XMLHttpRequest
-            // and MessagePort, etc. will not have any parents)
-            for (DomNode parent = ourParentNode; parent != null; parent = parent.getParentNode()) {
-                propagationPath.add(parent.getScriptableObject());
+            // DOM tree modification from intermediate listeners (tested in Chrome).
+            // If no one listens for this type, we don't have to create the js objects of the path.
+            final List<EventTarget> propagationPath;
+            if (mayHaveEventListeners(event.getType())) {
+                propagationPath = getPropagationPath(event, window, ourParentNode);
             }
-
-            // The load event has some unnatural behavior that we need to handle specially
-            // The load event for other elements target that element and but path only
-            // up to Document and not Window, so do nothing here
-            // (see Note in https://www.w3.org/TR/DOM-Level-3-Events/#event-type-load)
-            if (!Event.TYPE_LOAD.equals(event.getType())) {
-                // Add Window if the the propagation path reached Document
-                if (propagationPath.get(propagationPath.size() - 1) instanceof Document) {
-                    propagationPath.add(window);
-                }
+            else {
+                propagationPath = Collections.emptyList();
             }
 
             // capturing phase
@@ -226,6 +216,65 @@ public class EventTarget extends SimpleScriptable {
         return new ScriptResult(null);
     }
 
+    private List<EventTarget> getPropagationPath(final Event event, final Window window,
+            final DomNode ourParentNode) {
+        final List<EventTarget> propagationPath = new ArrayList<>();
+
+        // We're added to the propagation path first
+        propagationPath.add(this);
+
+        // Then add all our parents if we have any (pure JS object such as XMLHttpRequest
+        // and MessagePort, etc. will not have any parents)
+        for (DomNode parent = ourParentNode; parent != null; parent = parent.getParentNode()) {
+            propagationPath.add(parent.getScriptableObject());
+        }
+
+        // The load event has some unnatural behavior that we need to handle specially
+        // The load event for other elements target that element and but path only
+        // up to Document and not Window, so do nothing here
+        // (see Note in https://www.w3.org/TR/DOM-Level-3-Events/#event-type-load)
+        if (!Event.TYPE_LOAD.equals(event.getType())) {
+            // Add Window if the the propagation path reached Document
+            if (propagationPath.get(propagationPath.size() - 1) instanceof Document) {
+                propagationPath.add(window);
+            }
+        }
+        return propagationPath;
+    }
+
+    /**
+     * Returns {@code false} if there is for sure no listener for the given event type
+     * on this object, on one of the parents or on the window.
+     * @param type the event type
+     * @return whether there might be listeners
+     */
+    private boolean mayHaveEventListeners(final String type) {
+        final SgmlPage page = getEventListenerTypesPage();
+        return page == null || page.mayHaveEventListeners(type);
+    }
+
+    /**
+     * Returns the page remembering the types of the listeners added to this object.
+     * @return the page or {@code null}
+     */
+    SgmlPage getEventListenerTypesPage() {
+        final DomNode node = getDomNodeOrNull();
+        if (node != null) {
+            return node.getPage();
+        }
+        final Scriptable top = ScriptableObject.getTopLevelScope(this);
+        if (top instanceof Window) {
+            final Document document = ((Window) top).getDocument();
+            if (document != null) {
+                final DomNode page = document.getDomNodeOrNull();
+                if (page instanceof SgmlPage) {
+                    return (SgmlPage) page;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns {@code true} if there are any event handlers for the specified event.
      * @param eventName the event name (e.g. "onclick")
@@ -48,7 +48,6 @@ import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.FrameWindow;
 import com.gargoylesoftware.htmlunit.html.HtmlApplet;
-import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlForm;
 import com.gargoylesoftware.htmlunit.html.HtmlImage;
@@ -633,11 +632,8 @@ public class HTMLDocument extends Document {
             }
 
             @Override
-            protected EffectOnCache getEffectOnCache(final HtmlAttributeChangeEvent event) {
-                if ("name".equals(event.getName())) {
-                    return EffectOnCache.RESET;
-                }
-                return EffectOnCache.NONE;
+            protected String[] getAttributeDependencies() {
+                return new String[] {"name"};
             }
         };
     }
@@ -692,13 +688,11 @@ public class HTMLDocument extends Document {
             }
 
             @Override
-            protected EffectOnCache getEffectOnCache(final HtmlAttributeChangeEvent event) {
-                final String attributeName = event.getName();
-                if ("name".equals(attributeName) || (forIDAndOrName && "id".equals(attributeName))) {
-                    return EffectOnCache.RESET;
+            protected String[] getAttributeDependencies() {
+                if (forIDAndOrName) {
+                    return new String[] {"name", "id"};
                 }
-
-                return EffectOnCache.NONE;
+                return new String[] {"name"};
             }
 
             @Override
@@ -42,7 +42,6 @@ import com.gargoylesoftware.htmlunit.WebRequest;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.FormFieldWithNameHistory;
-import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
 import com.gargoylesoftware.htmlunit.html.HtmlButton;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlForm;
@@ -160,11 +159,6 @@ public class HTMLFormElement extends HTMLElement implements Function {
                 return HTMLFormElement.this.getWithPreemption(name);
             }
 
-            @Override
-            public EffectOnCache getEffectOnCache(final HtmlAttributeChangeEvent event) {
-                return EffectOnCache.NONE;
-            }
-
             @Override
             protected boolean isMatching(final DomNode node) {
                 if (node instanceof HtmlForm) {
@@ -36,9 +36,9 @@ import com.gargoylesoftware.htmlunit.html.DomAttr;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
-import com.gargoylesoftware.htmlunit.javascript.HtmlUnitScriptable;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.configuration.ClassConfiguration;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxClass;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstructor;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxFunction;
@@ -169,15 +169,10 @@ public class XMLDocument extends Document {
         // TODO: cleanup, getScriptObject() should be used!!!
         if (domNode instanceof DomElement && !(domNode instanceof HtmlElement)) {
             if (domNode instanceof SvgElement) {
-                final Class<? extends HtmlUnitScriptable> javaScriptClass
+                final ClassConfiguration config
                     = ((JavaScriptEngine) getWindow().getWebWindow().getWebClient()
-                        .getJavaScriptEngine()).getJavaScriptClass(domNode.getClass());
-                try {
-                    scriptable = (SimpleScriptable) javaScriptClass.newInstance();
-                }
-                catch (final Exception e) {
-                    throw Context.throwAsScriptRuntimeEx(e);
-                }
+                        .getJavaScriptEngine()).getJavaScriptClassConfiguration(domNode.getClass());
+                scriptable = (SimpleScriptable) config.newInstance();
             }
             else {
                 scriptable = new Element();
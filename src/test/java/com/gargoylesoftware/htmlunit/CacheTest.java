@@ -21,11 +21,13 @@ import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -36,6 +38,7 @@ import org.apache.commons.lang3.time.DateUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.gargoylesoftware.css.dom.CSSStyleSheetImpl;
 import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.util.MimeType;
@@ -667,6 +670,216 @@ public class CacheTest extends SimpleWebTestCase {
 
         verify(response1);
     }
+
+    /**
+     * The least recently used entry has to be evicted first.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final Cache cache = new Cache();
+        cache.setMaxSize(2);
+
+        final CSSStyleSheetImpl a = new CSSStyleSheetImpl();
+        final CSSStyleSheetImpl b = new CSSStyleSheetImpl();
+        final CSSStyleSheetImpl c = new CSSStyleSheetImpl();
+        cache.cache("a {}", a);
+        cache.cache("b {}", b);
+        assertSame(a, cache.getCachedStyleSheet("a {}"));
+
+        cache.cache("c {}", c);
+        assertEquals(2, cache.getSize());
+        assertSame(a, cache.getCachedStyleSheet("a {}"));
+        assertNull(cache.getCachedStyleSheet("b {}"));
+        assertSame(c, cache.getCachedStyleSheet("c {}"));
+
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(1L, cache.getEvictionCount());
+    }
+
+    /**
+     * The size in bytes limits the cache in addition to the number of entries.
+     */
+    @Test
+    public void maxSizeInBytes() {
+        final Cache cache = new Cache();
+        cache.cache("a {}", new CSSStyleSheetImpl());
+        cache.cache("b {}", new CSSStyleSheetImpl());
+        cache.cache("c {}", new CSSStyleSheetImpl());
+        assertEquals(3, cache.getSize());
+        assertEquals(0L, cache.getSizeInBytes());
+
+        // every snippet is weighed with 8 bytes
+        cache.setMaxSizeInBytes(20);
+        assertEquals(2, cache.getSize());
+        assertEquals(16L, cache.getSizeInBytes());
+        assertNull(cache.getCachedStyleSheet("a {}"));
+
+        cache.cache("d {}", new CSSStyleSheetImpl());
+        assertEquals(2, cache.getSize());
+        assertNull(cache.getCachedStyleSheet("b {}"));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0L, cache.getSizeInBytes());
+    }
+
+    /**
+     * Many threads sharing a cache.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void concurrentAccess() throws Exception {
+        final Cache cache = new Cache();
+        cache.setMaxSize(100);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int threadNo = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    final String css = "t" + threadNo + "_" + (i % 200) + " {}";
+                    if (cache.getCachedStyleSheet(css) == null) {
+                        cache.cache(css, new CSSStyleSheetImpl());
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("size: " + cache.getSize(), cache.getSize() <= 100);
+        assertEquals(80_000L, cache.getHitCount() + cache.getMissCount());
+    }
+
+    /**
+     * A stale entry with a validator is revalidated using a conditional request; the 304 response
+     * refreshes the entry and the cached content is used.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void revalidateStaleEntry() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script src='foo.js'></script>\n"
+            + "</head><body></body></html>";
+
+        final List<String> conditionalHeaders = new ArrayList<>();
+        final MockWebConnection connection = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (request.getUrl().getPath().endsWith("foo.js")) {
+                    conditionalHeaders.add(request.getAdditionalHeader(HttpHeader.IF_NONE_MATCH)
+                            + " " + request.getAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE));
+                }
+                return super.getResponse(request);
+            }
+        };
+        final WebClient client = getWebClient();
+        client.setWebConnection(connection);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        final URL scriptUrl = new URL(URL_FIRST, "foo.js");
+        connection.setResponse(pageUrl, html);
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Last-Modified", "Tue, 20 Feb 2018 10:00:00 GMT"));
+        headers.add(new NameValuePair("ETag", "\"v1\""));
+        headers.add(new NameValuePair("Cache-Control", "max-age=0"));
+        connection.setResponse(scriptUrl, "alert('v1');", 200, "OK", MimeType.APPLICATION_JAVASCRIPT, headers);
+
+        client.getPage(pageUrl);
+        assertEquals(1, client.getCache().getSize());
+
+        // the server confirms that the script is still valid, this time for one hour
+        final List<NameValuePair> notModifiedHeaders = new ArrayList<>();
+        notModifiedHeaders.add(new NameValuePair("ETag", "\"v1\""));
+        notModifiedHeaders.add(new NameValuePair("Cache-Control", "max-age=3600"));
+        connection.setResponse(scriptUrl, "", 304, "Not Modified", MimeType.APPLICATION_JAVASCRIPT, notModifiedHeaders);
+
+        client.getPage(pageUrl);
+        // now fresh again
+        client.getPage(pageUrl);
+
+        assertEquals(Arrays.asList("v1", "v1", "v1"), collectedAlerts);
+        assertEquals(Arrays.asList("null null", "\"v1\" Tue, 20 Feb 2018 10:00:00 GMT"), conditionalHeaders);
+        assertEquals(5, connection.getRequestCount());
+
+        final WebResponse cached = client.getCache().getCachedResponse(new WebRequest(scriptUrl));
+        assertEquals(200, cached.getStatusCode());
+        assertEquals("max-age=3600", cached.getResponseHeaderValue("Cache-Control"));
+        assertEquals("alert('v1');", cached.getContentAsString());
+    }
+
+    /**
+     * A stale page body saved in a temporary file must not be deleted when leaving the page,
+     * the entry is revalidated and the content reused when coming back.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void revalidateLargePageAfterNavigation() throws Exception {
+        final int maxInMemory = 100;
+        final StringBuilder html = new StringBuilder("<html><head><title>page1</title></head><body>\n");
+        for (int i = 0; i < 100; i++) {
+            html.append("<p>").append(i).append("</p>\n");
+        }
+        html.append("</body></html>");
+
+        final MockWebConnection connection = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                final WebResponse response = super.getResponse(request);
+                if (response.getContentLength() <= maxInMemory) {
+                    return response;
+                }
+
+                // like the HttpWebConnection, save large bodies in temporary files
+                final DownloadedContent content;
+                try (InputStream is = response.getContentAsStream()) {
+                    content = HttpWebConnection.downloadContent(is, maxInMemory, response.getContentLength());
+                }
+                assertTrue(content instanceof DownloadedContent.OnFile);
+                final WebResponseData data = new WebResponseData(content, response.getStatusCode(),
+                        response.getStatusMessage(), response.getResponseHeaders());
+                return new WebResponse(data, request, response.getLoadTime());
+            }
+        };
+        final WebClient client = getWebClient();
+        client.getOptions().setMaxInMemory(maxInMemory);
+        client.setWebConnection(connection);
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Last-Modified", "Tue, 20 Feb 2018 10:00:00 GMT"));
+        headers.add(new NameValuePair("ETag", "\"v1\""));
+        headers.add(new NameValuePair("Cache-Control", "max-age=0"));
+        connection.setResponse(pageUrl, html.toString(), 200, "OK", MimeType.TEXT_HTML, headers);
+        connection.setResponse(URL_SECOND, "<html><head><title>page2</title></head><body></body></html>");
+
+        HtmlPage page = client.getPage(pageUrl);
+        assertEquals("page1", page.getTitleText());
+        assertEquals(1, client.getCache().getSize());
+
+        // leaving the page must not delete the content of the stale entry
+        page = client.getPage(URL_SECOND);
+        assertEquals("page2", page.getTitleText());
+        assertTrue(client.getCache().contains(new WebRequest(pageUrl)));
+
+        final List<NameValuePair> notModifiedHeaders = new ArrayList<>();
+        notModifiedHeaders.add(new NameValuePair("ETag", "\"v1\""));
+        notModifiedHeaders.add(new NameValuePair("Cache-Control", "max-age=3600"));
+        connection.setResponse(pageUrl, "", 304, "Not Modified", MimeType.TEXT_HTML, notModifiedHeaders);
+
+        page = client.getPage(pageUrl);
+        assertEquals(3, connection.getRequestCount());
+        assertEquals("page1", page.getTitleText());
+        assertEquals(html.toString(), page.getWebResponse().getContentAsString());
+    }
+
 }
 
 class DummyWebResponse extends WebResponse {
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * Tests for {@link DiskCache}.
+ */
+@RunWith(BrowserRunner.class)
+public class DiskCacheTest extends SimpleWebTestCase {
+
+    private static final List<NameValuePair> CACHE_HEADERS =
+        Collections.singletonList(new NameValuePair("Last-Modified", "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+    /**
+     * Has to be public due to JUnit's constraints for @Rule.
+     */
+    @Rule
+    public final TemporaryFolder tmpFolderProvider_ = new TemporaryFolder();
+
+    /**
+     * The responses stored by one client are used by a new client (with a new
+     * memory cache) without hitting the network again.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void warmRestart() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script src='foo.js'></script>\n"
+                + "</head><body></body></html>";
+        final URL scriptUrl = new URL(URL_FIRST, "foo.js");
+        final File directory = tmpFolderProvider_.newFolder();
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(scriptUrl, "alert('foo');", 200, "OK", MimeType.APPLICATION_JAVASCRIPT, CACHE_HEADERS);
+
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setDiskCache(new DiskCache(directory, 1024 * 1024));
+            loadPage(client, html, collectedAlerts);
+        }
+        assertEquals(2, connection.getRequestCount());
+
+        final DiskCache diskCache = new DiskCache(directory, 1024 * 1024);
+        assertEquals(1, diskCache.getSize());
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setDiskCache(diskCache);
+            loadPage(client, html, collectedAlerts);
+        }
+
+        assertEquals(Arrays.asList("foo", "foo"), collectedAlerts);
+        // only the page was requested again
+        assertEquals(3, connection.getRequestCount());
+        assertEquals(1L, diskCache.getHitCount());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void responseDataRestored() throws Exception {
+        final URL url = new URL(URL_FIRST, "foo.txt");
+        final List<NameValuePair> headers = new ArrayList<>(CACHE_HEADERS);
+        headers.add(new NameValuePair("ETag", "\"abc\""));
+        headers.add(new NameValuePair("Content-Type", MimeType.TEXT_PLAIN));
+        final WebResponseData data = new WebResponseData("hello \u00e4".getBytes(UTF_8), 200, "OK", headers);
+        final WebRequest request = new WebRequest(url);
+
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder(), 1024 * 1024);
+        diskCache.store(url.toExternalForm(), new WebResponse(data, request, 0), 4711L);
+
+        final DiskCache.CachedResponse cached = diskCache.load(url.toExternalForm(), request, 1024);
+        assertNotNull(cached);
+        assertEquals(4711L, cached.getCreatedAt());
+
+        final WebResponse response = cached.getResponse();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("OK", response.getStatusMessage());
+        assertEquals("\"abc\"", response.getResponseHeaderValue("ETag"));
+        assertEquals("hello \u00e4", response.getContentAsString(UTF_8));
+
+        assertNull(diskCache.load(new URL(URL_FIRST, "bar.txt").toExternalForm(), request, 1024));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxSizeInBytes() throws Exception {
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder(), 10_000);
+        final byte[] body = new byte[3_000];
+
+        for (int i = 0; i < 5; i++) {
+            final URL url = new URL(URL_FIRST, "foo" + i + ".bin");
+            final WebResponseData data = new WebResponseData(body, 200, "OK", CACHE_HEADERS);
+            diskCache.store(url.toExternalForm(), new WebResponse(data, new WebRequest(url), 0), 0L);
+        }
+
+        assertEquals(3, diskCache.getSize());
+        assertTrue(diskCache.getSizeInBytes() <= 10_000);
+        assertNull(diskCache.load(new URL(URL_FIRST, "foo0.bin").toExternalForm(), new WebRequest(URL_FIRST), 0));
+        assertNotNull(diskCache.load(new URL(URL_FIRST, "foo4.bin").toExternalForm(), new WebRequest(URL_FIRST), 0));
+
+        diskCache.clear();
+        assertEquals(0, diskCache.getSize());
+        assertEquals(0L, diskCache.getSizeInBytes());
+        assertEquals(0, diskCache.getDirectory().list().length);
+    }
+
+    /**
+     * A body larger than the in memory limit is copied, the response does not depend on
+     * the cache file and cleaning up the response does not touch the cache.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void largeBodyCopied() throws Exception {
+        final URL url = new URL(URL_FIRST, "foo.bin");
+        final WebResponseData data = new WebResponseData(new byte[3_000], 200, "OK", CACHE_HEADERS);
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder(), 1024 * 1024);
+        diskCache.store(url.toExternalForm(), new WebResponse(data, new WebRequest(url), 0), 0L);
+
+        final WebResponse response = diskCache.load(url.toExternalForm(), new WebRequest(url), 1_000).getResponse();
+        response.cleanUp();
+        assertEquals(1, diskCache.getSize());
+
+        final WebResponse second = diskCache.load(url.toExternalForm(), new WebRequest(url), 1_000).getResponse();
+        diskCache.clear();
+        assertEquals(3_000L, second.getContentLength());
+        assertEquals(0, diskCache.getDirectory().list().length);
+        second.cleanUp();
+    }
+
+    /**
+     * A revalidation only replaces the metadata, the body file is kept.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void updateMetaKeepsBody() throws Exception {
+        final URL url = new URL(URL_FIRST, "foo.txt");
+        final WebRequest request = new WebRequest(url);
+        final WebResponseData data = new WebResponseData("hello".getBytes(UTF_8), 200, "OK", CACHE_HEADERS);
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder(), 1024 * 1024);
+        diskCache.store(url.toExternalForm(), new WebResponse(data, request, 0), 1L);
+
+        // change the stored body behind the cache's back to detect a rewrite
+        final File[] bodies = diskCache.getDirectory().listFiles((dir, name) -> name.endsWith(".body"));
+        assertEquals(1, bodies.length);
+        FileUtils.writeStringToFile(bodies[0], "world", UTF_8);
+
+        final List<NameValuePair> headers = new ArrayList<>(CACHE_HEADERS);
+        headers.add(new NameValuePair("ETag", "\"def\""));
+        final WebResponseData refreshed = new WebResponseData("hello".getBytes(UTF_8), 200, "OK", headers);
+        diskCache.updateMeta(url.toExternalForm(), new WebResponse(refreshed, request, 0), 2L);
+
+        final DiskCache.CachedResponse cached = diskCache.load(url.toExternalForm(), request, 1024);
+        assertEquals(2L, cached.getCreatedAt());
+        assertEquals("\"def\"", cached.getResponse().getResponseHeaderValue("ETag"));
+        assertEquals("world", cached.getResponse().getContentAsString(UTF_8));
+        assertEquals(1, diskCache.getSize());
+    }
+}
@@ -28,6 +28,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -599,6 +600,91 @@ public class HttpWebConnectionTest extends WebServerTestCase {
         assertEquals(webClient.getBrowserVersion().getUserAgent(), userAgent);
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContent() throws Exception {
+        final int tempFiles = TemporaryFiles.size();
+
+        // known, unknown and wrong content length
+        for (final int length : new int[] {0, 1, 1000, 8 * 1024, 20_000}) {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) i;
+            }
+            for (final long contentLength : new long[] {-1, length, length / 2, length + 10}) {
+                final DownloadedContent content =
+                        HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 10_000, contentLength);
+                assertEquals(length, content.length());
+                assertEquals(length > 10_000 || contentLength > 10_000,
+                        content instanceof DownloadedContent.OnFile);
+                try (InputStream is = content.getInputStream()) {
+                    assertTrue(Arrays.equals(bytes, IOUtils.toByteArray(is)));
+                }
+                content.cleanUp();
+            }
+        }
+
+        // the temporary files are forgotten after the clean up
+        assertEquals(tempFiles, TemporaryFiles.size());
+    }
+
+    /**
+     * Content larger than maxInMemory has to be saved in a temporary file, with and
+     * without a known content length.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContentLarge() throws Exception {
+        final int maxInMemory = 1024;
+        for (final int length : new int[] {maxInMemory, maxInMemory + 1, 100 * maxInMemory}) {
+            for (final long contentLength : new long[] {-1, length}) {
+                final DownloadedContent content =
+                        HttpWebConnection.downloadContent(new GeneratedInputStream(length), maxInMemory, contentLength);
+                try {
+                    assertEquals(length, content.length());
+                    assertEquals(length > maxInMemory, content instanceof DownloadedContent.OnFile);
+                    try (InputStream is = content.getInputStream()) {
+                        assertEquals(length, IOUtils.toByteArray(is).length);
+                    }
+                }
+                finally {
+                    content.cleanUp();
+                }
+            }
+        }
+    }
+
+    private static final class GeneratedInputStream extends InputStream {
+        private final int length_;
+        private int pos_;
+
+        GeneratedInputStream(final int length) {
+            length_ = length;
+        }
+
+        @Override
+        public int read() {
+            if (pos_ >= length_) {
+                return -1;
+            }
+            return pos_++ & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (pos_ >= length_) {
+                return -1;
+            }
+            final int count = Math.min(len, length_ - pos_);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) pos_++;
+            }
+            return count;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> T get(final Object o, final String fieldName) throws Exception {
         final Field field = o.getClass().getDeclaredField(fieldName);
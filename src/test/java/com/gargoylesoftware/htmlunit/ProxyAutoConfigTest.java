@@ -136,4 +136,43 @@ public class ProxyAutoConfigTest extends SimpleWebTestCase {
         final boolean isInNet = ProxyAutoConfig.isInNet("172.22.0.7", "172.16.0.0", "255.240.0.0");
         assertTrue(isInNet);
     }
+
+    /**
+     * The script is evaluated once and the results are cached per URL.
+     */
+    @Test
+    public void compile() {
+        final String content = "var count = 0;\n"
+            + "function FindProxyForURL(url, host) {\n"
+            + "  count++;\n"
+            + "  return 'PROXY ' + host + ':' + count;\n"
+            + "}\n";
+
+        final ProxyAutoConfig cached = ProxyAutoConfig.compile(content, 60_000);
+        assertEquals("PROXY " + URL_FIRST.getHost() + ":1", cached.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY " + URL_FIRST.getHost() + ":1", cached.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY " + URL_THIRD.getHost() + ":2", cached.findProxyForURL(URL_THIRD));
+
+        final ProxyAutoConfig uncached = ProxyAutoConfig.compile(content, 0);
+        assertEquals("PROXY " + URL_FIRST.getHost() + ":1", uncached.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY " + URL_FIRST.getHost() + ":2", uncached.findProxyForURL(URL_FIRST));
+    }
+
+    /**
+     * The content provided by a subclass of {@link ProxyConfig} is compiled.
+     */
+    @Test
+    public void contentFromSubclass() {
+        final ProxyConfig proxyConfig = new ProxyConfig() {
+            @Override
+            protected String getProxyAutoConfigContent() {
+                return "function FindProxyForURL(url, host) { return 'PROXY my.proxy:8080'; }";
+            }
+        };
+
+        final ProxyAutoConfig proxyAutoConfig = proxyConfig.getProxyAutoConfig();
+        assertNotNull(proxyAutoConfig);
+        assertEquals("PROXY my.proxy:8080", proxyAutoConfig.findProxyForURL(URL_FIRST));
+        assertSame(proxyAutoConfig, proxyConfig.getProxyAutoConfig());
+    }
 }
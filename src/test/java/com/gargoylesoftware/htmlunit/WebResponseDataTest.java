@@ -15,6 +15,7 @@
 package com.gargoylesoftware.htmlunit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -73,6 +74,46 @@ public class WebResponseDataTest extends WebServerTestCase {
         assertEquals(body, response.getContentAsString(UTF_8));
     }
 
+    /**
+     * Compressed content is decoded only once if enabled.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void decodeContentOnce() throws Exception {
+        final byte[] zippedContent;
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(GZIPPED_FILE)) {
+            zippedContent = IOUtils.toByteArray(stream);
+        }
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Content-Encoding", "gzip"));
+
+        // decoded on every read
+        WebResponseData data = new WebResponseData(zippedContent, HttpStatus.SC_OK, "OK", headers);
+        final byte[] body = data.getBody();
+        assertArrayEquals(body, data.getBody());
+        assertArrayEquals(body, data.getBody());
+        assertEquals(3, data.getDecodeCount());
+        assertEquals(3L * body.length, data.getDecodedBytes());
+
+        // decoded once, in memory
+        data = new WebResponseData(zippedContent, HttpStatus.SC_OK, "OK", headers);
+        data.setKeepDecodedContent(1024 * 1024);
+        assertArrayEquals(body, data.getBody());
+        assertArrayEquals(body, data.getBody());
+        assertArrayEquals(body, data.getBody());
+        assertEquals(1, data.getDecodeCount());
+        assertEquals(Long.valueOf(body.length), Long.valueOf(data.getDecodedBytes()));
+
+        // decoded once, on file
+        data = new WebResponseData(zippedContent, HttpStatus.SC_OK, "OK", headers);
+        data.setKeepDecodedContent(10);
+        assertArrayEquals(body, data.getBody());
+        assertArrayEquals(body, data.getBody());
+        assertEquals(1, data.getDecodeCount());
+        data.cleanUp();
+    }
+
     /**
      * Tests that empty gzipped content is handled correctly (bug 3566999).
      * @throws Exception if the test fails
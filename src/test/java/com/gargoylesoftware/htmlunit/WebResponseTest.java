@@ -202,6 +202,32 @@ public class WebResponseTest extends WebServerTestCase {
         }
     }
 
+    /**
+     * The decoded content is reused per charset until the response is cleaned up.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getContentAsStringMemoized() throws Exception {
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.TEXT_HTML));
+        final byte[] bytes = "<html><body>\u00e4\u00f6\u00fc</body></html>".getBytes(UTF_8);
+        final WebResponseData data = new WebResponseData(bytes, HttpStatus.SC_OK, "OK", headers);
+        final WebResponse response = new WebResponse(data, URL_FIRST, HttpMethod.GET, 0);
+
+        final String utf8 = response.getContentAsString(UTF_8);
+        assertSame(utf8, response.getContentAsString(UTF_8));
+
+        final String latin1 = response.getContentAsString(ISO_8859_1);
+        assertFalse(utf8.equals(latin1));
+        assertSame(latin1, response.getContentAsString(ISO_8859_1));
+        assertSame(utf8, response.getContentAsString(UTF_8));
+
+        response.cleanUp();
+        final String afterCleanUp = response.getContentAsString(UTF_8);
+        assertNotSame(utf8, afterCleanUp);
+        assertEquals(utf8, afterCleanUp);
+    }
+
     /**
      * @throws Exception if the test fails
      */
@@ -23,6 +23,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.xml.sax.helpers.AttributesImpl;
 
+import com.gargoylesoftware.css.parser.CSSException;
+import com.gargoylesoftware.css.parser.selector.SelectorList;
 import com.gargoylesoftware.htmlunit.BrowserRunner;
 import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
 import com.gargoylesoftware.htmlunit.ElementNotFoundException;
@@ -884,4 +886,54 @@ public class DomNodeTest extends SimpleWebTestCase {
         assertTrue(elem1.isDisplayed());
         assertTrue(elem2.isDisplayed());
     }
+
+    /**
+     * querySelector() returns the first match in document order, even if a later
+     * selector of the group matches an earlier element.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelector_documentOrder() throws Exception {
+        final String content = "<html><body>\n"
+            + "<div id='a'><span id='b'></span></div>\n"
+            + "<p id='c'></p>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        assertEquals("b", page.<DomElement>querySelector("p, span").getId());
+        assertEquals("c", page.<DomElement>querySelector("p").getId());
+        assertEquals("c", page.<DomElement>querySelector("p").getId());
+        assertNull(page.querySelector("table"));
+        assertEquals(2, page.querySelectorAll("p, span").size());
+    }
+
+    /**
+     * The parsed selectors are reused, invalid selectors fail on every call.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelector_cachedSelectors() throws Exception {
+        final StringBuilder content = new StringBuilder("<html><body>\n<div class='first'></div>\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("<div><span>").append(i).append("</span></div>\n");
+        }
+        content.append("</body></html>");
+        final HtmlPage page = loadPage(content.toString());
+
+        final SelectorList selectors = page.getSelectorList("body > div.first", getBrowserVersion());
+        assertSame(selectors, page.getSelectorList("body > div.first", getBrowserVersion()));
+        assertSame(page.getBody().getFirstElementChild(), page.querySelector("body > div.first"));
+        assertSame(selectors, page.getSelectorList("body > div.first", getBrowserVersion()));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                page.querySelector("div:unknown");
+                fail("CSSException expected");
+            }
+            catch (final CSSException e) {
+                // expected
+            }
+        }
+    }
+
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.HttpHeader;
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.WebConnectionWrapper;
+
+/**
+ * Tests for {@link ResourcePreloader}.
+ */
+@RunWith(BrowserRunner.class)
+public class ResourcePreloaderTest extends SimpleWebTestCase {
+
+    /**
+     * The scripts are downloaded in parallel but executed in document order.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void scriptsInOrder() throws Exception {
+        final StringBuilder html = new StringBuilder("<html><head>\n");
+        final MockWebConnection connection = getMockWebConnection();
+        final List<String> expectedAlerts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            html.append("<script src='script").append(i).append(".js'></script>\n");
+            connection.setResponse(new URL(URL_FIRST, "script" + i + ".js"),
+                    "alert('" + i + "');", MimeType.APPLICATION_JAVASCRIPT);
+            expectedAlerts.add(Integer.toString(i));
+        }
+        html.append("</head><body></body></html>");
+        connection.setResponse(URL_FIRST, html.toString());
+
+        final WebClient client = getWebClient();
+        client.getOptions().setPreloadEnabled(true);
+        client.setWebConnection(connection);
+        final List<String> events = recordRequests(client, ".js", 5);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        final HtmlPage page = client.getPage(URL_FIRST);
+
+        assertEquals(expectedAlerts, collectedAlerts);
+        assertEquals(6, connection.getRequestCount());
+        assertEquals(0, page.getResourcePreloader().getPendingCount());
+        assertEquals(Arrays.asList("start", "start", "start", "start", "start"), events.subList(0, 5));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void stylesheetAndBase() throws Exception {
+        final String html = "<html><head>\n"
+                + "<base href='" + URL_SECOND + "'>\n"
+                + "<link rel='stylesheet' href='style.css'>\n"
+                + "</head><body></body></html>";
+
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(new URL(URL_SECOND, "style.css"), "body { color: red }", MimeType.TEXT_CSS);
+
+        final WebClient client = getWebClient();
+        client.getOptions().setPreloadEnabled(true);
+        final HtmlPage page = loadPage(client, html, null);
+
+        assertEquals(0, page.getResourcePreloader().getPendingCount());
+        assertEquals(Arrays.asList(URL_FIRST.toExternalForm(), new URL(URL_SECOND, "style.css").toExternalForm()),
+                toStrings(connection.getRequestedUrls()));
+    }
+
+    /**
+     * References inside comments and scripts are not preloaded.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void ignoreCommentsAndScriptContent() throws Exception {
+        final String html = "<html><head>\n"
+                + "<!-- <script src='comment.js'></script> -->\n"
+                + "<script>var s = \"<script src='inline.js'></\" + \"script>\";</script>\n"
+                + "<script type='text/template' src='template.js'></script>\n"
+                + "</head><body></body></html>";
+
+        final WebClient client = getWebClient();
+        client.getOptions().setPreloadEnabled(true);
+        final HtmlPage page = loadPage(client, html, null);
+
+        assertEquals(1, getMockWebConnection().getRequestCount());
+        assertEquals(0, page.getResourcePreloader().getPendingCount());
+    }
+
+    /**
+     * Only GET requests are preloaded, the preloaded response does not answer a POST to the same url.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void onlyGet() throws Exception {
+        final URL url = new URL(URL_FIRST, "foo.html");
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(URL_FIRST, "<html><body></body></html>");
+        connection.setDefaultResponse("<html><body></body></html>");
+
+        final HtmlPage page = getWebClient().getPage(URL_FIRST);
+        final ResourcePreloader preloader = new ResourcePreloader(page);
+
+        preloader.preload(new WebRequest(url, HttpMethod.POST));
+        assertEquals(0, preloader.getPendingCount());
+
+        preloader.preload(new WebRequest(url));
+        assertEquals(1, preloader.getPendingCount());
+        assertNull(preloader.getResponse(new WebRequest(url, HttpMethod.POST)));
+        assertEquals(1, preloader.getPendingCount());
+        assertNotNull(preloader.getResponse(new WebRequest(url)));
+        assertEquals(0, preloader.getPendingCount());
+    }
+
+    /**
+     * The preloading is opt-in.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void disabledByDefault() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script src='foo.js'></script>\n"
+                + "</head><body></body></html>";
+        getMockWebConnection().setResponse(new URL(URL_FIRST, "foo.js"), "", MimeType.APPLICATION_JAVASCRIPT);
+
+        final HtmlPage page = loadPage(html);
+        assertNull(page.getResourcePreloader());
+    }
+
+    /**
+     * The frame documents are downloaded in parallel but initialized in document order.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void framesInParallel() throws Exception {
+        assertEquals(Arrays.asList("start", "start", "start", "start"), loadFrames(6).subList(0, 4));
+    }
+
+    /**
+     * The number of parallel requests to one host is limited.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void framesMaxRequestsPerHost() throws Exception {
+        assertEquals(Arrays.asList("start", "end", "start", "end", "start", "end", "start", "end"), loadFrames(1));
+    }
+
+    /**
+     * Returns the start and end events of the frame requests.
+     */
+    private List<String> loadFrames(final int maxRequestsPerHost) throws Exception {
+        final StringBuilder html = new StringBuilder("<html><head></head><body>\n");
+        final MockWebConnection connection = getMockWebConnection();
+        final List<String> expectedAlerts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            html.append("<iframe src='frame").append(i).append(".html'></iframe>\n");
+            connection.setResponse(new URL(URL_FIRST, "frame" + i + ".html"),
+                    "<html><body><script>alert('" + i + "');</script></body></html>");
+            expectedAlerts.add(Integer.toString(i));
+        }
+        html.append("</body></html>");
+        connection.setResponse(URL_FIRST, html.toString());
+
+        final WebClient client = getWebClient();
+        client.getOptions().setParallelFrameLoadingEnabled(true);
+        client.getOptions().setMaxPreloadRequestsPerHost(maxRequestsPerHost);
+        client.setWebConnection(connection);
+        final List<String> events = recordRequests(client, "frame", maxRequestsPerHost < 4 ? 1 : 4);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        final HtmlPage page = client.getPage(URL_FIRST);
+
+        assertEquals(expectedAlerts, collectedAlerts);
+        assertEquals(5, connection.getRequestCount());
+        assertEquals(0, page.getResourcePreloader().getPendingCount());
+        return events;
+    }
+
+    /**
+     * Records the start and the end of the requests having the marker in their path. Every one of them
+     * waits until the given number of them has started; the requests fail if they are not loaded in parallel.
+     */
+    private static List<String> recordRequests(final WebClient client, final String marker, final int parallel) {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(parallel);
+        new WebConnectionWrapper(client) {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (!request.getUrl().getPath().contains(marker)) {
+                    return super.getResponse(request);
+                }
+                events.add("start");
+                started.countDown();
+                try {
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        throw new IOException("Only " + (parallel - started.getCount()) + " requests started");
+                    }
+                    return super.getResponse(request);
+                }
+                catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                finally {
+                    events.add("end");
+                }
+            }
+        };
+        return events;
+    }
+
+    /**
+     * A response discarded while it is still loading is released by the download itself;
+     * the request passed to the preloader is not changed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void discardWhileLoading() throws Exception {
+        final URL frameUrl = new URL(URL_FIRST, "frame.html");
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(URL_FIRST, "<html><body></body></html>");
+        connection.setResponse(frameUrl, "<html><body></body></html>");
+
+        final WebClient client = getWebClient();
+        client.setWebConnection(connection);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final CountDownLatch cleanedUp = new CountDownLatch(1);
+        new WebConnectionWrapper(client) {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                final WebResponse response = super.getResponse(request);
+                if (!frameUrl.equals(request.getUrl())) {
+                    return response;
+                }
+                started.countDown();
+                try {
+                    proceed.await();
+                }
+                catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                final WebResponseData data = new WebResponseData(response.getContentAsString().getBytes(UTF_8),
+                        response.getStatusCode(), response.getStatusMessage(), response.getResponseHeaders());
+                return new WebResponse(data, request, 0) {
+                    @Override
+                    public void cleanUp() {
+                        cleanedUp.countDown();
+                    }
+                };
+            }
+        };
+
+        final HtmlPage page = client.getPage(URL_FIRST);
+        final ResourcePreloader preloader = new ResourcePreloader(page);
+        final WebRequest request = new WebRequest(frameUrl);
+        preloader.preload(request);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        preloader.discard(request);
+        proceed.countDown();
+        assertTrue(cleanedUp.await(10, TimeUnit.SECONDS));
+        assertEquals(0, preloader.getPendingCount());
+        assertFalse(request.isAdditionalHeader(HttpHeader.ACCEPT));
+    }
+
+    private static List<String> toStrings(final List<URL> urls) {
+        final List<String> result = new ArrayList<>();
+        for (final URL url : urls) {
+            result.add(url.toExternalForm());
+        }
+        return result;
+    }
+}
@@ -25,6 +25,8 @@ import org.junit.runner.RunWith;
 
 import com.gargoylesoftware.htmlunit.BrowserRunner;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.html.DomAttr;
+import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.DomText;
 import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
@@ -268,4 +270,236 @@ public class HtmlUnitXPathTest extends SimpleWebTestCase {
         div.setAttribute("class", "design");
         assertSame(div, page.getFirstByXPath("//*[@class = 'design']"));
     }
+
+    /**
+     * The XPath context of the page is reused; changes of the DOM have to be visible anyway.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void reuseAfterDomChanges() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body><div id='d1' class='a'>foo</div></body>\n"
+            + "</html>";
+
+        final HtmlPage page = loadPage(content);
+        assertEquals(1, page.getByXPath("//div").size());
+        assertEquals(1, page.getByXPath("//div[@class='a']").size());
+
+        // node added
+        final HtmlDivision div = (HtmlDivision) page.createElement("div");
+        div.setAttribute("class", "a");
+        page.getBody().appendChild(div);
+        assertEquals(2, page.getByXPath("//div").size());
+        assertEquals(2, page.getByXPath("//div[@class='a']").size());
+
+        // attribute changed
+        div.setAttribute("class", "b");
+        assertEquals(1, page.getByXPath("//div[@class='a']").size());
+        assertEquals(div, page.getFirstByXPath("//div[@class='b']"));
+
+        // attribute removed
+        div.removeAttribute("class");
+        assertNull(page.getFirstByXPath("//div[@class='b']"));
+
+        // text changed
+        ((DomText) page.getHtmlElementById("d1").getFirstChild()).setData("bar");
+        assertEquals("bar", page.getFirstByXPath("string(//div[@id='d1'])"));
+
+        // node removed
+        div.remove();
+        assertEquals(1, page.getByXPath("//div").size());
+    }
+
+    /**
+     * Attributes set or removed as nodes invalidate the cached context.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void reuseAfterAttributeNodeChanges() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body><div id='d1'>foo</div></body>\n"
+            + "</html>";
+
+        final HtmlPage page = loadPage(content);
+        final DomElement div = page.getHtmlElementById("d1");
+        // count() is not handled by the native evaluator
+        assertEquals(Double.valueOf(0), page.getFirstByXPath("count(//div[@title='t'])"));
+
+        final DomAttr title = page.createAttribute("title");
+        title.setValue("t");
+        div.setAttributeNode(title);
+        assertEquals(Double.valueOf(1), page.getFirstByXPath("count(//div[@title='t'])"));
+
+        div.getAttributes().removeNamedItem("title");
+        assertEquals(Double.valueOf(0), page.getFirstByXPath("count(//div[@title='t'])"));
+
+        div.getAttributes().setNamedItem(title);
+        assertEquals(Double.valueOf(1), page.getFirstByXPath("count(//div[@title='t'])"));
+    }
+
+    /**
+     * Nodes not attached to the page use their own context.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void detachedNode() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body><div id='d1'>foo</div></body>\n"
+            + "</html>";
+
+        final HtmlPage page = loadPage(content);
+        assertEquals(1, page.getByXPath("//div").size());
+
+        final HtmlDivision div = (HtmlDivision) page.createElement("div");
+        final HtmlDivision child = (HtmlDivision) page.createElement("div");
+        div.appendChild(child);
+        assertEquals(child, div.getFirstByXPath("./div"));
+
+        child.appendChild(page.createElement("span"));
+        assertEquals(1, div.getByXPath(".//span").size());
+        assertEquals(1, page.getByXPath("//div").size());
+    }
+
+    /**
+     * The native evaluator has to return the same nodes as Xalan.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void nativeEvaluation() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body>\n"
+            + "<div id='d1' class='a'>foo<span>bar</span>baz</div>\n"
+            + "<div id='d2' class='a b'><p>one</p><p>two</p><p title='x'>three</p></div>\n"
+            + "<DIV ID='d3'><a href='foo.html'>Foo</a><a href='bar.html'><b>Bar</b></a></DIV>\n"
+            + "<table><tr><td>1</td><td>2</td></tr><tr><td>3</td><td>4</td></tr></table>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+        final HtmlUnitPrefixResolver resolver = new HtmlUnitPrefixResolver(page.getDocumentElement());
+
+        final String[] expressions = {"/html/body/div", "//div", "//DIV", "/html//p", "//div/p", "//div//b",
+            "//*", "//div[@id]", "//div[@id='d2']", "//div[@ID='d3']", "//div[@id!='d2']", "//p[@title='x']",
+            "//div[2]", "//div[last()]", "//div[2]/p[3]", "//p[2]", "//td[1]", "//tr[2]/td[last()]",
+            "//div[@class='a'][1]", "//p[not(@title)][2]", "//div[contains(@class, 'b')]",
+            "//a[starts-with(@href, 'bar')]", "//p[text()='two']", "//p[.='three']", "//a[.='Bar']",
+            "//div[contains(text(), 'baz')]", "//div[contains(., 'bar')]", "//div[text()]",
+            "//div[@id='d1' or @id='d3']", "//div[(@id='d1' or @id='d2') and not(contains(@class, 'b'))]",
+            "//div/text()", "//p/text()", "//a/@href", "/html/body/div[1]/@class", "body", "./body/div",
+            ".//span", "//nothing", "//div[4]"};
+
+        for (final String expression : expressions) {
+            assertNotNull(expression, NativeXPathEvaluator.parse(expression));
+            assertEquals(expression, page.getByXPath(expression, resolver), page.getByXPath(expression));
+
+            final List<?> xalan = page.getByXPath(expression, resolver);
+            assertEquals(expression, xalan.isEmpty() ? null : xalan.get(0), page.getFirstByXPath(expression));
+        }
+
+        final HtmlElement div = page.getHtmlElementById("d2");
+        assertEquals(div.getByXPath("p", resolver), div.getByXPath("p"));
+        assertEquals(div.getByXPath("//a", resolver), div.getByXPath("//a"));
+        assertEquals(div.getByXPath(".//p[@title]", resolver), div.getByXPath(".//p[@title]"));
+    }
+
+    /**
+     * Expressions not supported by the native evaluator are processed by Xalan.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void nativeEvaluationFallback() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body><div id='d1'><p>one</p><p>two</p></div></body>\n"
+            + "</html>";
+
+        final HtmlPage page = loadPage(content);
+        final String[] expressions = {"count(//p)", "//p[position() > 1]", "//div | //p", "//p/..",
+            "//p/following-sibling::p", "//@id", "//p[@*]", "string(//p)", "id('d1')"};
+        for (final String expression : expressions) {
+            assertNull(expression, NativeXPathEvaluator.parse(expression));
+        }
+
+        assertEquals(Arrays.asList(Double.valueOf(2)), page.getByXPath("count(//p)"));
+        assertEquals(3, page.getByXPath("//div | //p").size());
+        assertEquals("two", ((DomNode) page.getFirstByXPath("//p[position() > 1]")).asText());
+        assertEquals(page.getHtmlElementById("d1"), page.getFirstByXPath("//p/.."));
+    }
+
+    /**
+     * Pages with elements outside of the html namespace (inline svg) are evaluated by Xalan.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void nativeEvaluationForeignElements() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body>\n"
+            + "<div id='d1'><svg><rect id='r1'/><title>svg</title><a id='a1'/></svg></div>\n"
+            + "<div id='d2'><a href='foo.html'>Foo</a><rect/></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+        final HtmlUnitPrefixResolver resolver = new HtmlUnitPrefixResolver(page.getDocumentElement());
+
+        final String[] expressions = {"//svg", "//rect", "//title", "//a", "//*", "//svg/*", "//div/*",
+            "//div[1]/*[last()]", "//a[@id]", "//*[@id='r1']"};
+
+        for (final String expression : expressions) {
+            assertNull(expression, NativeXPathEvaluator.parse(expression).evaluate(page, false));
+            assertEquals(expression, page.getByXPath(expression, resolver), page.getByXPath(expression));
+
+            final List<?> xalan = page.getByXPath(expression, resolver);
+            assertEquals(expression, xalan.isEmpty() ? null : xalan.get(0), page.getFirstByXPath(expression));
+        }
+
+        final DomElement svg = page.getFirstByXPath("//div[1]/*");
+        assertNull(NativeXPathEvaluator.parse("rect").evaluate(svg, false));
+        assertEquals(svg.getByXPath("*", resolver), svg.getByXPath("*"));
+    }
+
+    /**
+     * The XPath context of a deserialized page is invalidated by DOM changes.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void reuseAfterSerialization() throws Exception {
+        final String content = "<html><head><title>Test page</title></head>\n"
+            + "<body><div id='d'><span></span></div></body>\n"
+            + "</html>";
+
+        HtmlPage page = loadPage(content);
+        assertEquals(Arrays.asList(Double.valueOf(1)), page.getByXPath("count(//span)"));
+
+        page = clone(page);
+        final XPathCache cache = page.getXPathCache();
+        assertEquals(Arrays.asList(Double.valueOf(1)), page.getByXPath("count(//span)"));
+        assertSame(cache, page.getXPathCache());
+
+        page.getHtmlElementById("d").appendChild(page.createElement("span"));
+        assertEquals(Arrays.asList(Double.valueOf(2)), page.getByXPath("count(//span)"));
+    }
+
+    /**
+     * The native evaluator stops at the first match and the parsed expressions are reused.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void getFirstByXPath_firstOnly() throws Exception {
+        final StringBuilder content = new StringBuilder("<html><body>\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("<div class='c'><span>").append(i).append("</span></div>\n");
+        }
+        content.append("</body></html>");
+        final HtmlPage page = loadPage(content.toString());
+
+        final String expression = "//div[@class='c']";
+        final NativeXPathEvaluator evaluator = NativeXPathEvaluator.parse(expression);
+        assertSame(evaluator, NativeXPathEvaluator.parse(expression));
+
+        final List<Object> first = evaluator.evaluate(page, true);
+        assertEquals(1, first.size());
+        assertEquals(100, evaluator.evaluate(page, false).size());
+
+        final Object firstDiv = page.getBody().getFirstElementChild();
+        assertSame(firstDiv, first.get(0));
+        assertSame(firstDiv, page.getFirstByXPath(expression));
+    }
 }
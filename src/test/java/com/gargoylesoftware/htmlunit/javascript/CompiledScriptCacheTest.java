@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+
+/**
+ * Tests for {@link CompiledScriptCache}.
+ */
+@RunWith(BrowserRunner.class)
+public class CompiledScriptCacheTest extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedBetweenClients() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script src='script.js'></script>\n"
+                + "<script>alert('inline');</script>\n"
+                + "</head><body></body></html>";
+
+        final CompiledScriptCache scriptCache = new CompiledScriptCache(10);
+        final List<String> collectedAlerts = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            try (WebClient client = new WebClient(getBrowserVersion())) {
+                client.setCompiledScriptCache(scriptCache);
+
+                // no caching headers, the http cache will not store the compiled script
+                getMockWebConnection().setResponse(new URL(URL_FIRST, "script.js"),
+                        "alert('external');", MimeType.APPLICATION_JAVASCRIPT);
+
+                loadPage(client, html, collectedAlerts);
+            }
+        }
+
+        assertEquals(Arrays.asList("external", "inline", "external", "inline"), collectedAlerts);
+        assertEquals(2, scriptCache.getSize());
+        assertEquals(2L, scriptCache.getMisses());
+        assertEquals(2L, scriptCache.getHits());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void eviction() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script>alert(1);</script>\n"
+                + "<script>alert(2);</script>\n"
+                + "<script>alert(3);</script>\n"
+                + "</head><body></body></html>";
+
+        final CompiledScriptCache scriptCache = new CompiledScriptCache(2);
+        final WebClient client = getWebClient();
+        client.setCompiledScriptCache(scriptCache);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(client, html, collectedAlerts);
+
+        assertEquals(Arrays.asList("1", "2", "3"), collectedAlerts);
+        assertEquals(2, scriptCache.getSize());
+        assertEquals(1L, scriptCache.getEvictions());
+        assertEquals(0L, scriptCache.getHits());
+    }
+
+    /**
+     * The cache is opt-in.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void disabledByDefault() throws Exception {
+        assertNull(getWebClient().getCompiledScriptCache());
+    }
+}
@@ -14,12 +14,19 @@
  */
 package com.gargoylesoftware.htmlunit.javascript;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
 
 /**
  * Tests for {@link HtmlUnitContextFactory}.
@@ -45,4 +52,90 @@ public class HtmlUnitContextFactoryTest extends SimpleWebTestCase {
 
         loadPage(browserVersion, html, null, URL_FIRST);
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"55", "hello world", "caught 42", "3", "exception"})
+    public void compileToBytecode() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var sum = 0;\n"
+            + "    for (var i = 1; i <= 10; i++) { sum += i; }\n"
+            + "    alert(sum);\n"
+            + "    var greet = function(name) { return function(x) { return x + ' ' + name; }; };\n"
+            + "    alert(greet('world')('hello'));\n"
+            + "    try { throw 42; } catch (e) { alert('caught ' + e); }\n"
+            + "    alert(document.getElementsByTagName('div').length);\n"
+            + "    try {\n"
+            + "      document.body.removeChild(document.createElement('p'));\n"
+            + "    } catch (e) { alert('exception'); }\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div></div><div></div><div></div>\n"
+            + "</body></html>";
+
+        final WebClient client = getWebClient();
+        ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory().setCompileToBytecode(true);
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * The timeout is enforced for compiled scripts too.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compileToBytecodeTimeout() throws Exception {
+        final WebClient client = getWebClient();
+        ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory().setCompileToBytecode(true);
+        client.getOptions().setThrowExceptionOnScriptError(false);
+        client.setJavaScriptTimeout(500);
+
+        final MockWebConnection webConnection = getMockWebConnection();
+        webConnection.setResponse(URL_FIRST,
+                "<html><body><script>while(1) {}</script><script>alert('next')</script></body></html>");
+        client.setWebConnection(webConnection);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler((page, message) -> collectedAlerts.add(message));
+
+        client.getPage(URL_FIRST);
+
+        assertEquals(Arrays.asList("next"), collectedAlerts);
+    }
+
+    /**
+     * A script produces the same result in interpreted and compiled mode.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compileToBytecodeSameResult() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }\n"
+            + "  var parts = [];\n"
+            + "  for (var i = 0; i < 20000; i++) {\n"
+            + "    parts.push({ id: i, name: 'item' + i });\n"
+            + "  }\n"
+            + "  var names = parts.filter(function(p) { return p.id % 2 == 0; })\n"
+            + "                   .map(function(p) { return p.name; }).join(',').length;\n"
+            + "  alert(fib(22) + ' ' + names);\n"
+            + "</script>\n"
+            + "</head><body></body></html>";
+
+        assertEquals(Arrays.asList("17711 94444"), load(html, false));
+        assertEquals(Arrays.asList("17711 94444"), load(html, true));
+    }
+
+    private List<String> load(final String html, final boolean compileToBytecode) throws Exception {
+        final WebClient client = getWebClient();
+        ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory().setCompileToBytecode(compileToBytecode);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(html, collectedAlerts);
+        return collectedAlerts;
+    }
 }
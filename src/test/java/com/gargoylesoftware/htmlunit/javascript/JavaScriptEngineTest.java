@@ -52,6 +52,7 @@ import com.gargoylesoftware.htmlunit.html.HtmlFrame;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.html.HtmlScript;
 import com.gargoylesoftware.htmlunit.html.HtmlTextInput;
+import com.gargoylesoftware.htmlunit.javascript.configuration.JavaScriptConfiguration;
 import com.gargoylesoftware.htmlunit.util.NameValuePair;
 import com.gargoylesoftware.htmlunit.util.UrlUtils;
 
@@ -1372,6 +1373,64 @@ public class JavaScriptEngineTest extends SimpleWebTestCase {
         }
     }
 
+    /**
+     * The prototypes are set up from a template shared by all windows; the modifications
+     * done by a window must not be visible in other windows.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void prototypesNotSharedBetweenWindows() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    HTMLElement.prototype.foo = 'foo';\n"
+            + "    var frame = document.getElementById('f').contentWindow;\n"
+            + "    alert(document.body.foo);\n"
+            + "    alert(frame.document.body.foo);\n"
+            + "    alert(frame.HTMLElement === HTMLElement);\n"
+            + "    alert(Object.getPrototypeOf(frame.HTMLDivElement.prototype) === frame.HTMLElement.prototype);\n"
+            + "    alert(frame.Image === Image);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<iframe id='f' src='about:blank'></iframe>\n"
+            + "</body></html>";
+
+        final String[] expectedAlerts = {"foo", "undefined", "false", "true", "false"};
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(html, collectedAlerts);
+        assertEquals(expectedAlerts, collectedAlerts);
+    }
+
+    /**
+     * The window independent setup is done once per browser version and shared by all clients.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void windowTemplateShared() throws Exception {
+        final String html = "<html><head><title>foo</title></head><body></body></html>";
+
+        final MockWebConnection webConnection = new MockWebConnection();
+        webConnection.setDefaultResponse(html);
+        try (WebClient webClient1 = new WebClient(getBrowserVersion());
+                WebClient webClient2 = new WebClient(getBrowserVersion())) {
+            webClient1.setWebConnection(webConnection);
+            webClient2.setWebConnection(webConnection);
+
+            final JavaScriptConfiguration jsConfig1 =
+                    ((JavaScriptEngine) webClient1.getJavaScriptEngine()).getJavaScriptConfiguration();
+            final JavaScriptConfiguration jsConfig2 =
+                    ((JavaScriptEngine) webClient2.getJavaScriptEngine()).getJavaScriptConfiguration();
+            final WindowTemplate template = WindowTemplate.getInstance(jsConfig1, getBrowserVersion());
+            assertSame(template, WindowTemplate.getInstance(jsConfig2, getBrowserVersion()));
+
+            assertEquals("foo", webClient1.<HtmlPage>getPage(URL_FIRST).getTitleText());
+            assertEquals("foo", webClient2.<HtmlPage>getPage(URL_FIRST).getTitleText());
+            assertEquals("foo", webClient1.<HtmlPage>getPage(URL_FIRST).getTitleText());
+            assertSame(template, WindowTemplate.getInstance(jsConfig1, getBrowserVersion()));
+        }
+    }
+
     /**
      * Test case where {@link JavaScriptEngine#registerWindowAndMaybeStartEventLoop(WebWindow)}
      * is being called after {@link JavaScriptEngine#shutdown()}.
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.host.Window;
+
+import net.sourceforge.htmlunit.corejs.javascript.Function;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
+
+/**
+ * Tests for {@link WindowHostClasses}.
+ */
+@RunWith(BrowserRunner.class)
+public class WindowHostClassesTest extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"function", "true", "true", "true", "true", "false"})
+    public void constructors() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var div = document.getElementById('d');\n"
+            + "    alert(typeof XMLHttpRequest);\n"
+            + "    alert(Object.getPrototypeOf(div) === HTMLDivElement.prototype);\n"
+            + "    alert(Object.getPrototypeOf(HTMLDivElement.prototype) === HTMLElement.prototype);\n"
+            + "    alert('Node' in window);\n"
+            + "    alert(window.hasOwnProperty('Element'));\n"
+            + "    alert(Object.getOwnPropertyDescriptor(window, 'Text').enumerable);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"undefined", "42", "function"})
+    public void changedBeforeFirstUse() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    delete window.Range;\n"
+            + "    alert(typeof window.Range);\n"
+            + "    window.DOMParser = 42;\n"
+            + "    alert(DOMParser);\n"
+            + "    alert(typeof document.createRange);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * A simple page does not need most of the host classes.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void setUpOnFirstUse() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    document.getElementById('d').innerHTML = 'hello';\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final WindowHostClasses hostClasses = getHostClasses(page);
+        final int pending = hostClasses.getPendingCount();
+        assertTrue("Only " + pending + " host classes not set up", pending > 100);
+
+        hostClasses.initializeAll();
+        assertEquals(0, hostClasses.getPendingCount());
+        assertEquals("hello", page.getElementById("d").asText());
+    }
+
+    /**
+     * The host classes not set up so far are set up before the window is serialized.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void serialization() throws Exception {
+        final String html = "<html><head></head>\n"
+            + "<body>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = clone(loadPage(html));
+        final Window window = page.getEnclosingWindow().getScriptableObject();
+
+        assertNotNull(window.getPrototype("XMLHttpRequest"));
+        assertTrue(ScriptableObject.getProperty(window, "XMLHttpRequest") instanceof Function);
+    }
+
+    /**
+     * Object.getOwnPropertyNames() sets up all host classes and returns the same names
+     * as if all were set up with the window.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void ownPropertyNames() throws Exception {
+        final String html = "<html><head></head>\n"
+            + "<body>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+        final String script = "Object.getOwnPropertyNames(window).sort().join()";
+
+        final HtmlPage lazyPage = loadPage(html);
+        final Object lazy = lazyPage.executeJavaScript(script).getJavaScriptResult();
+        assertEquals(0, getHostClasses(lazyPage).getPendingCount());
+
+        final HtmlPage eagerPage = loadPage(html);
+        getHostClasses(eagerPage).initializeAll();
+        final Object eager = eagerPage.executeJavaScript(script).getJavaScriptResult();
+
+        assertEquals(eager, lazy);
+    }
+
+    private static WindowHostClasses getHostClasses(final HtmlPage page) throws Exception {
+        final Window window = page.getEnclosingWindow().getScriptableObject();
+        final Field field = Window.class.getDeclaredField("hostClasses_");
+        field.setAccessible(true);
+        return (WindowHostClasses) field.get(window);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.lang3.mutable.MutableInt;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+
+/**
+ * Tests for {@link EventDrivenJavaScriptExecutor}.
+ */
+public class EventDrivenJavaScriptExecutorTest {
+
+    private WebClient client_;
+    private WebWindow window_;
+    private Page page_;
+    private JavaScriptJobManagerImpl manager_;
+    private EventDrivenJavaScriptExecutor eventLoop_;
+
+    /**
+     * Initializes variables required by the unit tests.
+     */
+    @Before
+    public void before() {
+        client_ = new WebClient();
+        window_ = EasyMock.createNiceMock(WebWindow.class);
+        page_ = EasyMock.createNiceMock(Page.class);
+        manager_ = new JavaScriptJobManagerImpl(window_);
+        EasyMock.expect(window_.getEnclosedPage()).andReturn(page_).anyTimes();
+        EasyMock.expect(window_.getJobManager()).andReturn(manager_).anyTimes();
+        EasyMock.replay(window_, page_);
+        eventLoop_ = new EventDrivenJavaScriptExecutor(client_);
+        eventLoop_.addWindow(window_);
+    }
+
+    /**
+     * Shuts down the event loop.
+     */
+    @After
+    public void after() {
+        eventLoop_.shutdown();
+        if (client_ != null) {
+            client_.close();
+        }
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void addJob_singleExecution() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(5, null) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        manager_.addJob(job, page_);
+        manager_.waitForJobs(1000);
+        assertEquals(1, count.intValue());
+        assertEquals(0, manager_.getJobCount());
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void addJob_periodicJob() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(5, Integer.valueOf(100)) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        manager_.addJob(job, page_);
+        final int remainingJobs = manager_.waitForJobs(1090);
+        assertTrue("At least one remaining job expected.", remainingJobs >= 1);
+        assertTrue("Less than 10 jobs (" + count.intValue() + ") processed.", count.intValue() >= 10);
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void addJob_multipleExecution_removeJob() throws Exception {
+        final MutableInt id = new MutableInt();
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(50, Integer.valueOf(50)) {
+            @Override
+            public void run() {
+                count.increment();
+                if (count.intValue() >= 5) {
+                    manager_.removeJob(id.intValue());
+                }
+            }
+        };
+        id.setValue(manager_.addJob(job, page_));
+        manager_.waitForJobs(1000);
+        assertEquals(5, count.intValue());
+    }
+
+    /**
+     * Adding a job to an idle executor wakes it up, there is no polling.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void addJob_wakesUpExecutor() throws Exception {
+        eventLoop_.shutdown();
+        final MutableInt wakeUps = new MutableInt(0);
+        eventLoop_ = new EventDrivenJavaScriptExecutor(client_) {
+            @Override
+            protected void wakeUp() {
+                wakeUps.increment();
+                super.wakeUp();
+            }
+        };
+        eventLoop_.addWindow(window_);
+
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(0, null) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        // the queue changed callback is invoked by the thread adding the job
+        final int before = wakeUps.intValue();
+        manager_.addJob(job, page_);
+        assertTrue(wakeUps.intValue() > before);
+        manager_.waitForJobs(1000);
+        assertEquals(1, count.intValue());
+    }
+
+    /**
+     * Removing the earliest job must not block the execution of the later ones.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void removeJob_earliest() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job1 = new BasicJavaScriptJob(10_000, null) {
+            @Override
+            public void run() {
+                count.add(10);
+            }
+        };
+        final JavaScriptJob job2 = new BasicJavaScriptJob(50, null) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        final int id = manager_.addJob(job1, page_);
+        Thread.sleep(20);
+        manager_.addJob(job2, page_);
+        manager_.removeJob(id);
+        manager_.waitForJobs(1000);
+        assertEquals(1, count.intValue());
+        assertEquals(0, manager_.getJobCount());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+
+/**
+ * Tests for {@link JavaScriptExecutorPool}.
+ */
+public class JavaScriptExecutorPoolTest {
+
+    private static final int THREADS = 4;
+
+    private WebClient client_;
+    private JavaScriptExecutorPool pool_;
+    private final List<JavaScriptExecutor> executors_ = new ArrayList<>();
+
+    /**
+     * Initializes variables required by the unit tests.
+     */
+    @Before
+    public void before() {
+        client_ = new WebClient();
+        pool_ = new JavaScriptExecutorPool(THREADS);
+    }
+
+    /**
+     * Shuts down the pool.
+     */
+    @After
+    public void after() {
+        for (final JavaScriptExecutor executor : executors_) {
+            executor.shutdown();
+        }
+        pool_.shutdown();
+        client_.close();
+    }
+
+    /**
+     * The jobs of one client have to run one after the other in queue order.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void jobsOfOneClientRunInOrder() throws Exception {
+        final Client client = new Client();
+        final List<Integer> executed = new ArrayList<>();
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicBoolean overlap = new AtomicBoolean();
+
+        for (int i = 0; i < 100; i++) {
+            final Integer no = Integer.valueOf(i);
+            client.manager_.addJob(new BasicJavaScriptJob(0, null) {
+                @Override
+                public void run() {
+                    if (!running.compareAndSet(false, true)) {
+                        overlap.set(true);
+                    }
+                    executed.add(no);
+                    running.set(false);
+                }
+            }, client.page_);
+        }
+        client.manager_.waitForJobs(5_000);
+
+        assertFalse("jobs of one client overlapped", overlap.get());
+        assertEquals(100, executed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, executed.get(i).intValue());
+        }
+    }
+
+    /**
+     * Serves a growing number of clients; the number of threads has to stay bounded
+     * and all jobs have to be executed without overlapping inside one client.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void scalability() throws Exception {
+        final int jobsPerClient = 20;
+        long executedBefore = 0;
+        for (final int clientCount : new int[] {10, 100, 500}) {
+            final List<Client> clients = new ArrayList<>();
+            final AtomicBoolean overlap = new AtomicBoolean();
+            for (int i = 0; i < clientCount; i++) {
+                clients.add(new Client());
+            }
+
+            for (final Client client : clients) {
+                final AtomicBoolean running = new AtomicBoolean();
+                for (int j = 0; j < jobsPerClient; j++) {
+                    client.manager_.addJob(new BasicJavaScriptJob(j % 5, null) {
+                        @Override
+                        public void run() {
+                            if (!running.compareAndSet(false, true)) {
+                                overlap.set(true);
+                            }
+                            running.set(false);
+                        }
+                    }, client.page_);
+                }
+            }
+            for (final Client client : clients) {
+                assertEquals(0, client.manager_.waitForJobs(10_000));
+            }
+
+            assertFalse("jobs of one client overlapped", overlap.get());
+            assertEquals(executedBefore + clientCount * jobsPerClient, pool_.getExecutedJobCount());
+            assertTrue("Too many threads: " + pool_.getThreadCount(), pool_.getThreadCount() <= THREADS);
+            executedBefore = pool_.getExecutedJobCount();
+        }
+    }
+
+    /**
+     * Shutting down one client must not affect the others.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void shutdownClient() throws Exception {
+        final Client client1 = new Client();
+        final Client client2 = new Client();
+        assertEquals(2, pool_.getActiveClientCount());
+
+        final AtomicBoolean executed1 = new AtomicBoolean();
+        final AtomicBoolean executed2 = new AtomicBoolean();
+        client1.manager_.addJob(new BasicJavaScriptJob(100, null) {
+            @Override
+            public void run() {
+                executed1.set(true);
+            }
+        }, client1.page_);
+        client2.manager_.addJob(new BasicJavaScriptJob(100, null) {
+            @Override
+            public void run() {
+                executed2.set(true);
+            }
+        }, client2.page_);
+
+        client1.executor_.shutdown();
+        assertEquals(1, pool_.getActiveClientCount());
+
+        client2.manager_.waitForJobs(1_000);
+        Thread.sleep(100);
+        assertFalse(executed1.get());
+        assertTrue(executed2.get());
+    }
+
+    /**
+     * A client is no longer active as soon as all its windows are closed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void closeWindow() throws Exception {
+        final Client client1 = new Client();
+        final Client client2 = new Client();
+        assertEquals(2, pool_.getActiveClientCount());
+
+        client1.manager_.shutdown();
+        assertEquals(1, pool_.getActiveClientCount());
+
+        client2.manager_.shutdown();
+        assertEquals(0, pool_.getActiveClientCount());
+
+        client1.executor_.shutdown();
+        client2.executor_.shutdown();
+        assertEquals(0, pool_.getActiveClientCount());
+    }
+
+    private final class Client {
+        private final Page page_;
+        private final JavaScriptJobManagerImpl manager_;
+        private final JavaScriptExecutor executor_;
+
+        Client() {
+            final WebWindow window = EasyMock.createNiceMock(WebWindow.class);
+            page_ = EasyMock.createNiceMock(Page.class);
+            manager_ = new JavaScriptJobManagerImpl(window);
+            EasyMock.expect(window.getEnclosedPage()).andReturn(page_).anyTimes();
+            EasyMock.expect(window.getJobManager()).andReturn(manager_).anyTimes();
+            EasyMock.replay(window, page_);
+
+            executor_ = pool_.createJavaScriptExecutor(client_);
+            executor_.addWindow(window);
+            executors_.add(executor_);
+        }
+    }
+}
@@ -15,6 +15,7 @@
 package com.gargoylesoftware.htmlunit.javascript.background;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -351,4 +352,61 @@ public class JavaScriptJobManagerMinimalTest {
         // the call waits until both job1 and job2 finish.
         waitForComplexJobs(WaitingMode.WAIT_STARTING_BEFORE, 0);
     }
+
+    /**
+     * Adding and removing lots of timers (like debounce libraries do) must not leave anything behind.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void addJob_removeJob_churn() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final int timers = 10_000;
+
+        int lastId = 0;
+        for (int i = 0; i < timers; i++) {
+            final JavaScriptJob job = new BasicJavaScriptJob(10_000 + (i % 100), null) {
+                @Override
+                public void run() {
+                    count.increment();
+                }
+            };
+            final int id = manager_.addJob(job, page_);
+            if (lastId != 0) {
+                manager_.removeJob(lastId);
+            }
+            lastId = id;
+        }
+        assertEquals(1, manager_.getJobCount());
+        assertEquals(lastId, manager_.getEarliestJob().getId().intValue());
+        manager_.removeJob(lastId);
+
+        assertEquals(0, manager_.getJobCount());
+        assertNull(manager_.getEarliestJob());
+        assertEquals(0, count.intValue());
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void removeJob_manyPendingJobs() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final int[] ids = new int[1_000];
+        for (int i = 0; i < ids.length; i++) {
+            final JavaScriptJob job = new BasicJavaScriptJob(100, null) {
+                @Override
+                public void run() {
+                    count.increment();
+                }
+            };
+            ids[i] = manager_.addJob(job, page_);
+        }
+        for (int i = 0; i < ids.length; i += 2) {
+            manager_.removeJob(ids[i]);
+        }
+        assertEquals(ids.length / 2, manager_.getJobCount());
+
+        manager_.waitForJobs(2_000);
+        assertEquals(ids.length / 2, count.intValue());
+    }
 }
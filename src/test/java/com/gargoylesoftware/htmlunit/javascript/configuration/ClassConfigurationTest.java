@@ -14,10 +14,17 @@
  */
 package com.gargoylesoftware.htmlunit.javascript.configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.gargoylesoftware.htmlunit.MockWebConnection;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.javascript.HtmlUnitScriptable;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.host.html.HTMLDivElement;
 
 /**
  * Tests for {@link ClassConfiguration}.
@@ -45,6 +52,55 @@ public class ClassConfigurationTest extends SimpleWebTestCase {
         assertFalse("JSObject Flag should not have been set", config1.isJsObject());
     }
 
+    /**
+     * @throws Exception on error
+     */
+    @Test
+    public void newInstance() throws Exception {
+        final ClassConfiguration config = new ClassConfiguration(HTMLDivElement.class, null, true, null, "");
+        final HtmlUnitScriptable first = config.newInstance();
+        final HtmlUnitScriptable second = config.newInstance();
+
+        assertEquals(HTMLDivElement.class, first.getClass());
+        assertEquals(HTMLDivElement.class, second.getClass());
+        assertNotSame(first, second);
+    }
+
+    /**
+     * Creates host objects and uses their properties and functions; the host objects
+     * are created without reflection.
+     * @throws Exception on error
+     */
+    @Test
+    public void hostObjectAccess() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var count = 0;\n"
+            + "    for (var i = 0; i < 1000; i++) {\n"
+            + "      var div = document.createElement('div');\n"
+            + "      div.id = 'd' + i;\n"
+            + "      div.title = div.id;\n"
+            + "      div.setAttribute('lang', 'en');\n"
+            + "      if (div.getAttribute('title') == div.id && div.hasAttribute('lang')) {\n"
+            + "        count++;\n"
+            + "      }\n"
+            + "    }\n"
+            + "    alert(count);\n"
+            + "  }\n"
+            + "</script></head><body onload='test()'></body></html>";
+
+        final MockWebConnection webConnection = new MockWebConnection();
+        webConnection.setDefaultResponse(html);
+        try (WebClient webClient = new WebClient()) {
+            webClient.setWebConnection(webConnection);
+            final List<String> collectedAlerts = new ArrayList<>();
+            webClient.setAlertHandler((page, message) -> collectedAlerts.add(message));
+
+            webClient.getPage(URL_FIRST);
+            assertEquals(new String[] {"1000"}, collectedAlerts);
+        }
+    }
+
     /**
      * Test class.
      */
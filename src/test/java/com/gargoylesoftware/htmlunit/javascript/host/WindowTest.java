@@ -54,6 +54,7 @@ import com.gargoylesoftware.htmlunit.html.HtmlInput;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.util.MimeType;
 import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.UrlUtils;
 
 /**
  * Tests for {@link Window}.
@@ -1583,4 +1584,115 @@ public class WindowTest extends SimpleWebTestCase {
         final HtmlPage page = loadPageWithAlerts(html);
         assertEquals("hello", page.getTitleText());
     }
+
+    /**
+     * Changing a class no selector depends on keeps the cached computed styles;
+     * changing a referenced class or id updates them.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(0, 0, 0)", "rgb(0, 0, 0)", "rgb(0, 0, 0)", "rgb(255, 0, 0)", "rgb(0, 128, 0)",
+                "rgb(0, 0, 255)", "rgb(0, 0, 0)", "rgb(0, 0, 0)"})
+    public void computedStyleClassChange() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  .active { color: rgb(255, 0, 0); }\n"
+            + "  #special { color: rgb(0, 0, 255); }\n"
+            + "  .active + span { color: rgb(0, 128, 0); }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var d = document.getElementById('d');\n"
+            + "    var s = document.getElementById('s');\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    d.className = 'unused';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    alert(window.getComputedStyle(s, null).color);\n"
+            + "    d.className = 'unused active';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    alert(window.getComputedStyle(s, null).color);\n"
+            + "    d.id = 'special';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    d.id = 'd2';\n"
+            + "    d.className = 'unused';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    alert(window.getComputedStyle(s, null).color);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d'></div><span id='s'></span>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * Toggling classes no selector depends on keeps the cached computed styles;
+     * changing a referenced class drops only the styles of the element and its subtree.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"true", "true", "true", "false", "true", "rgb(255, 0, 0)", "false"})
+    public void computedStyleClassToggleKeepsCache() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  .active { color: rgb(255, 0, 0); }\n"
+            + "  div div { margin-left: 1px; }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var a = document.getElementById('a');\n"
+            + "    var b = document.getElementById('b');\n"
+            + "    var c = document.getElementById('c');\n"
+            + "    var d = document.getElementById('d');\n"
+            + "    var sa = window.getComputedStyle(a, null);\n"
+            + "    var sb = window.getComputedStyle(b, null);\n"
+            + "    var sd = window.getComputedStyle(d, null);\n"
+            + "    a.classList.toggle('hover');\n"
+            + "    alert(window.getComputedStyle(a, null) === sa);\n"
+            + "    alert(window.getComputedStyle(b, null) === sb);\n"
+            + "    alert(window.getComputedStyle(d, null) === sd);\n"
+            + "    a.className = 'active';\n"
+            + "    alert(window.getComputedStyle(a, null) === sa);\n"
+            + "    alert(window.getComputedStyle(b, null) === sb);\n"
+            + "    alert(window.getComputedStyle(a, null).color);\n"
+            + "    c.className = 'active';\n"
+            + "    alert(window.getComputedStyle(d, null) === sd);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='p'><div id='a'></div><div id='b'></div><div id='c'><div id='d'></div></div></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * Changing the id of an element updates the computed style of a :target rule.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(0, 0, 0)", "rgb(255, 0, 0)", "rgb(0, 0, 0)"})
+    public void computedStyleIdChangeTarget() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  :target { color: rgb(255, 0, 0); }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var d = document.getElementById('d');\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    d.id = 't';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "    d.id = 'x';\n"
+            + "    alert(window.getComputedStyle(d, null).color);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+
+        getMockWebConnection().setDefaultResponse(html);
+        loadPageWithAlerts(html, UrlUtils.getUrlWithNewRef(URL_FIRST, "t"), -1);
+    }
 }
@@ -20,6 +20,7 @@ import org.w3c.dom.NodeList;
 
 import com.gargoylesoftware.css.parser.selector.Selector;
 import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
 import com.gargoylesoftware.htmlunit.html.DomElement;
@@ -239,4 +240,82 @@ public class CSSStyleSheet2Test extends SimpleWebTestCase {
         assertEquals("CSSStyleDeclaration for ''", style.toString());
     }
 
+    /**
+     * Rules with id, attribute, compound and descendant selectors are found using the rule index;
+     * rules with the same specificity are applied in document order.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(255, 0, 0)", "rgb(0, 0, 255)", "rgb(0, 128, 0)", "rgb(255, 165, 0)", "rgb(0, 0, 0)",
+                "rgb(128, 0, 128)", "rgb(0, 0, 0)", "rgb(0, 128, 0)"})
+    public void ruleIndex() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  #i1 { color: rgb(255, 0, 0); }\n"
+            + "  .a.b { color: rgb(0, 0, 255); }\n"
+            + "  [data-x] { color: rgb(0, 128, 0); }\n"
+            + "  input[type='text'] { color: rgb(255, 165, 0); }\n"
+            + "  .outer span { color: rgb(128, 0, 128); }\n"
+            + "  .c { color: rgb(0, 0, 255); }\n"
+            + "  [title] { color: rgb(0, 128, 0); }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function color(id) {\n"
+            + "    alert(window.getComputedStyle(document.getElementById(id), null).color);\n"
+            + "  }\n"
+            + "  function test() {\n"
+            + "    color('i1');\n"
+            + "    color('ab');\n"
+            + "    color('data');\n"
+            + "    color('text');\n"
+            + "    color('check');\n"
+            + "    color('inner');\n"
+            + "    color('notInner');\n"
+            + "    color('order');\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='i1'></div>\n"
+            + "<div id='ab' class='b a'></div>\n"
+            + "<div id='data' data-x='1'></div>\n"
+            + "<input id='text' type='text'>\n"
+            + "<input id='check' type='checkbox'>\n"
+            + "<div class='outer'><div><span id='inner'></span></div></div>\n"
+            + "<div class='other'><span id='notInner'></span></div>\n"
+            + "<div id='order' class='c' title='t'></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * The rule index is rebuilt if the rules of the sheet are changed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(0, 0, 0)", "rgb(255, 0, 0)", "rgb(0, 0, 0)"})
+    public void ruleIndexAfterRulesChanged() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  #other { color: rgb(0, 128, 0); }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function color() {\n"
+            + "    alert(window.getComputedStyle(document.getElementById('d'), null).color);\n"
+            + "  }\n"
+            + "  function test() {\n"
+            + "    var sheet = document.styleSheets[0];\n"
+            + "    color();\n"
+            + "    sheet.insertRule('.a.b { color: rgb(255, 0, 0); }', 1);\n"
+            + "    color();\n"
+            + "    sheet.deleteRule(1);\n"
+            + "    color();\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d' class='a b'></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.css;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+
+/**
+ * Tests for the storage of the local modifications of {@link ComputedCSSStyleDeclaration}.
+ */
+@RunWith(BrowserRunner.class)
+public class ComputedCSSStyleDeclaration2Test extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(0, 128, 0)", "rgb(255, 0, 0)", "rgb(0, 0, 255)", "block", "inline", "10px", "20px"})
+    public void localModifications() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  div { color: rgb(255, 0, 0) !important; margin-left: 10px; }\n"
+            + "  #d1 { color: rgb(0, 0, 255); }\n"
+            + "  #d2 { color: rgb(0, 128, 0) !important; margin-left: 20px; }\n"
+            + "  .c { color: rgb(0, 0, 255); display: inline; -foo-unknown: 1px; }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var d1 = window.getComputedStyle(document.getElementById('d1'), null);\n"
+            + "    var d2 = window.getComputedStyle(document.getElementById('d2'), null);\n"
+            + "    var s = window.getComputedStyle(document.getElementById('s'), null);\n"
+            + "    alert(d2.color);\n"
+            + "    alert(d1.color);\n"
+            + "    alert(s.color);\n"
+            + "    alert(d1.display);\n"
+            + "    alert(s.display);\n"
+            + "    alert(d1.marginLeft);\n"
+            + "    alert(d2.marginLeft);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d1'></div>\n"
+            + "<div id='d2'></div>\n"
+            + "<span id='s' class='c'></span>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * More local modifications than fit into the initial arrays.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"10px", "2px", "4px", "5px", "8px", "9px", "inline"})
+    public void manyLocalModifications() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  div { margin-left: 1px; margin-right: 2px; margin-top: 3px; margin-bottom: 4px;\n"
+            + "        padding-left: 5px; padding-right: 6px; padding-top: 7px; padding-bottom: 8px;\n"
+            + "        font-size: 9px; }\n"
+            + "  #d { display: inline; margin-left: 10px; }\n"
+            + "</style>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    var s = window.getComputedStyle(document.getElementById('d'), null);\n"
+            + "    alert(s.marginLeft);\n"
+            + "    alert(s.marginRight);\n"
+            + "    alert(s.marginBottom);\n"
+            + "    alert(s.paddingLeft);\n"
+            + "    alert(s.paddingBottom);\n"
+            + "    alert(s.fontSize);\n"
+            + "    alert(s.display);\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "<div id='d'></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2021 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+/**
+ * Tests for the event types remembered by the page to skip the dispatch of events
+ * no one listens for.
+ */
+@RunWith(BrowserRunner.class)
+public class EventTarget2Test extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void eventListenerTypes() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function add() {\n"
+            + "    document.getElementById('inner').addEventListener('MyEvent', function() {}, false);\n"
+            + "    window.onresize = function() {};\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='add()'>\n"
+            + "<div><div><div id='inner' onkeydown='alert(1)'></div></div></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        assertTrue(page.mayHaveEventListeners("load"));
+        assertTrue(page.mayHaveEventListeners("keydown"));
+        assertTrue(page.mayHaveEventListeners("myevent"));
+        assertTrue(page.mayHaveEventListeners("resize"));
+        assertFalse(page.mayHaveEventListeners("click"));
+        assertFalse(page.mayHaveEventListeners("mousedown"));
+    }
+
+    /**
+     * The handler attribute of a parent is executed even if the js object of the parent
+     * was not created before.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void handlerAttributeOfParent() throws Exception {
+        final String html = "<html><head></head>\n"
+            + "<body>\n"
+            + "<div onclick='alert(\"outer\")'><div><div><span id='inner'>click</span></div></div></div>\n"
+            + "<span id='other'>other</span>\n"
+            + "</body></html>";
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        final HtmlPage page = loadPage(html, collectedAlerts);
+        page.getHtmlElementById("other").click();
+        assertEquals(new ArrayList<String>(), collectedAlerts);
+
+        page.getHtmlElementById("inner").click();
+        assertEquals(Arrays.asList("outer"), collectedAlerts);
+    }
+
+    /**
+     * The listeners of nodes moved to another document are still known.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts(DEFAULT = "custom",
+            IE = "exception")
+    public void adoptedNode() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function test() {\n"
+            + "    try {\n"
+            + "      var doc = document.implementation.createHTMLDocument('test');\n"
+            + "      var div = doc.createElement('div');\n"
+            + "      div.addEventListener('custom', function() { alert('custom'); }, false);\n"
+            + "      document.body.appendChild(document.adoptNode(div));\n"
+            + "      div.dispatchEvent(new CustomEvent('custom'));\n"
+            + "    } catch (e) { alert('exception'); }\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body onload='test()'>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+}
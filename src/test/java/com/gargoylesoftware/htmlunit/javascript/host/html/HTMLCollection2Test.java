@@ -69,4 +69,94 @@ public class HTMLCollection2Test extends SimpleWebTestCase {
         client.getPage(URL_FIRST);
         assertEquals(getExpectedAlerts(), collectedAlerts);
     }
+
+    /**
+     * The collections are updated after DOM and attribute changes.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"1", "2", "2", "1", "1", "2", "0", "1", "1", "0", "2", "3", "2"})
+    public void liveAfterChanges() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var a1 = document.getElementById('a1');\n"
+            + "    var a2 = document.getElementById('a2');\n"
+            + "    var links = document.links;\n"
+            + "    alert(links.length);\n"
+            + "    a2.setAttribute('href', '#');\n"
+            + "    alert(links.length);\n"
+            + "    a2.setAttribute('title', 'foo');\n"
+            + "    alert(links.length);\n"
+            + "    a1.removeAttribute('href');\n"
+            + "    alert(links.length);\n"
+
+            + "    var byName = document.getElementsByName('n');\n"
+            + "    alert(byName.length);\n"
+            + "    a1.setAttribute('name', 'n');\n"
+            + "    alert(byName.length);\n"
+
+            + "    var byClass = document.getElementById('outer').getElementsByClassName('c');\n"
+            + "    alert(byClass.length);\n"
+            + "    document.getElementById('inner').className = 'c';\n"
+            + "    alert(byClass.length);\n"
+            + "    a1.className = 'c';\n"
+            + "    alert(byClass.length);\n"
+            + "    document.getElementById('inner').className = '';\n"
+            + "    alert(byClass.length);\n"
+
+            + "    var divs = document.body.getElementsByTagName('div');\n"
+            + "    alert(divs.length);\n"
+            + "    var div = document.createElement('div');\n"
+            + "    document.getElementById('inner').appendChild(div);\n"
+            + "    alert(divs.length);\n"
+            + "    div.parentNode.removeChild(div);\n"
+            + "    alert(divs.length);\n"
+            + "  }\n"
+            + "</script></head><body onload='test()'>\n"
+            + "<a id='a1' href='#'>1</a><a id='a2'>2</a><input name='n'>\n"
+            + "<div id='outer'><div id='inner'></div></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
+
+    /**
+     * Many collections on nested roots are all updated by a change deep inside.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"1", "2", "10", "1", "10", "1"})
+    public void mutationsWithManyCollections() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function count(collections, length) {\n"
+            + "    var n = 0;\n"
+            + "    for (var i = 0; i < collections.length; i++) {\n"
+            + "      if (collections[i].length == length) {\n"
+            + "        n++;\n"
+            + "      }\n"
+            + "    }\n"
+            + "    return n;\n"
+            + "  }\n"
+            + "  function test() {\n"
+            + "    var collections = [];\n"
+            + "    for (var i = 0; i < 10; i++) {\n"
+            + "      collections.push(document.getElementById('d' + i).getElementsByTagName('p'));\n"
+            + "    }\n"
+            + "    alert(collections[9].length);\n"
+            + "    var p = document.getElementById('d9').appendChild(document.createElement('p'));\n"
+            + "    alert(collections[0].length);\n"
+            + "    alert(count(collections, 2));\n"
+            + "    p.parentNode.removeChild(p);\n"
+            + "    alert(collections[0].length);\n"
+            + "    alert(count(collections, 1));\n"
+            + "    alert(document.getElementById('d9').getElementsByTagName('p').length);\n"
+            + "  }\n"
+            + "</script></head><body onload='test()'>\n"
+            + "<div id='d0'><div id='d1'><div id='d2'><div id='d3'><div id='d4'>\n"
+            + "<div id='d5'><div id='d6'><div id='d7'><div id='d8'><div id='d9'><p></p>\n"
+            + "</div></div></div></div></div></div></div></div></div></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+    }
 }